@@ -8,7 +8,13 @@ export const authApi = {
   },
 
   logout: () => {
+    const refreshToken = localStorage.getItem('refresh_token');
+    if (refreshToken) {
+      // Отзываем цепочку refresh-токенов; результат не ждем
+      apiClient.post('/auth/logout', { refreshToken }).catch(() => undefined);
+    }
     localStorage.removeItem('jwt_token');
+    localStorage.removeItem('refresh_token');
     localStorage.removeItem('username');
     localStorage.removeItem('roles');
   },
@@ -54,10 +54,34 @@ apiClient.interceptors.request.use(
   (error) => Promise.reject(error)
 );
 
+// Обмен refresh-токена на новую пару; параллельные 401 ждут один и тот же запрос
+let refreshPromise: Promise<string | null> | null = null;
+
+const refreshAccessToken = (): Promise<string | null> => {
+  const refreshToken = localStorage.getItem('refresh_token');
+  if (!refreshToken) {
+    return Promise.resolve(null);
+  }
+  if (!refreshPromise) {
+    refreshPromise = axios
+      .post(`${API_BASE_URL}/auth/refresh`, { refreshToken })
+      .then((response) => {
+        localStorage.setItem('jwt_token', response.data.token);
+        localStorage.setItem('refresh_token', response.data.refreshToken);
+        return response.data.token as string;
+      })
+      .catch(() => null)
+      .finally(() => {
+        refreshPromise = null;
+      });
+  }
+  return refreshPromise;
+};
+
 // Обработка ошибок авторизации
 apiClient.interceptors.response.use(
   (response) => response,
-  (error) => {
+  async (error) => {
     // Логирование для отладки (включаем и в продакшене)
     const fullUrl = error.config?.baseURL && !error.config.baseURL.startsWith('http')
       ? `${window.location.origin}${error.config.baseURL}${error.config.url}`
@@ -73,12 +97,24 @@ apiClient.interceptors.response.use(
       message: error.message
     });
     
+    const originalRequest = error.config;
+    if (error.response?.status === 401 && originalRequest && !originalRequest._retry
+        && !originalRequest.url?.startsWith('/auth/')) {
+      originalRequest._retry = true;
+      const token = await refreshAccessToken();
+      if (token) {
+        originalRequest.headers.Authorization = `Bearer ${token}`;
+        return apiClient(originalRequest);
+      }
+    }
+
     if (error.response?.status === 401) {
       // Не делаем редирект, если мы уже на странице логина
       // (проверяем по URL или по наличию токена)
       const currentPath = window.location.pathname;
       if (currentPath !== '/login' && currentPath !== '/') {
         localStorage.removeItem('jwt_token');
+        localStorage.removeItem('refresh_token');
         localStorage.removeItem('username');
         localStorage.removeItem('roles');
         window.location.href = '/login';
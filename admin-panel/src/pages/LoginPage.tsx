@@ -29,6 +29,9 @@ export default function LoginPage() {
       console.log('=== LoginPage: Получен ответ:', response);
       
       localStorage.setItem('jwt_token', response.token);
+      if (response.refreshToken) {
+        localStorage.setItem('refresh_token', response.refreshToken);
+      }
       localStorage.setItem('username', response.username);
       localStorage.setItem('roles', JSON.stringify(response.roles));
       
@@ -5,6 +5,8 @@ export interface AuthRequest {
 
 export interface AuthResponse {
   token: string;
+  refreshToken?: string;
+  expiresIn?: number;
   username: string;
   roles: string[];
 }
@@ -1,18 +1,93 @@
 package com.example.airline.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * Конфигурация асинхронного выполнения задач.
  * Включает поддержку асинхронных методов, помеченных аннотацией @Async.
- * 
- * Используется для асинхронной отправки email-уведомлений,
- * чтобы не блокировать основной поток выполнения при взаимодействии с SMTP-сервером.
+ *
+ * Письма отправляются пакетами на пуле mailSenderExecutor, поэтому поток запроса
+ * не ждет SMTP-сервер.
  */
 @Configuration
 @EnableAsync
 public class AsyncConfig {
-    // Конфигурация по умолчанию использует SimpleAsyncTaskExecutor
-    // Для production-среды рекомендуется настроить ThreadPoolTaskExecutor
+    // Для @Async используется applicationTaskExecutor Spring Boot
+    // (spring.task.execution.mode=force, чтобы пулы ниже его не отключали)
+
+    /**
+     * Ограниченный пул для параллельной сборки составных ответов (карточка тура).
+     * Очередь ограничена: при переполнении задача отклоняется, и часть ответа деградирует,
+     * а не блокирует поток запроса.
+     */
+    @Bean(name = "tourDetailsExecutor")
+    public ThreadPoolTaskExecutor tourDetailsExecutor(
+            @Value("${app.tour-details.pool-size:8}") int poolSize,
+            @Value("${app.tour-details.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("tour-details-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Пул для BCrypt при входе и регистрации. Размер по умолчанию - число ядер:
+     * хэширование загружает процессор, больше потоков не ускорит его. Переполнение
+     * очереди отклоняет задачу, и вход получает 503 вместо ожидания в потоке запроса.
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(
+            @Value("${app.security.hashing.pool-size:0}") int poolSize,
+            @Value("${app.security.hashing.queue-capacity:64}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Пул для построения уменьшенных вариантов изображений туров. По умолчанию половина ядер,
+     * чтобы декодирование картинок не отнимало процессор у запросов. При переполнении очереди
+     * вариант не строится сразу, а откладывается до первого запроса.
+     */
+    @Bean(name = "imageDerivativeExecutor")
+    public ThreadPoolTaskExecutor imageDerivativeExecutor(
+            @Value("${app.images.pool-size:0}") int poolSize,
+            @Value("${app.images.queue-capacity:100}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-derivative-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Пул отправки пакетов писем: по потоку на SMTP-соединение пула. Очередь короткая - письма
+     * ждут в очереди MailBatchSender, а не здесь.
+     */
+    @Bean(name = "mailSenderExecutor")
+    public ThreadPoolTaskExecutor mailSenderExecutor(
+            @Value("${app.email.pool.size:2}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize);
+        executor.setThreadNamePrefix("mail-sender-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,13 @@
+package com.example.airline.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включает выполнение периодических задач (@Scheduled),
+ * например сброс счетчиков вовлеченности в БД.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,7 +1,13 @@
 package com.example.airline.config;
 
+import com.example.airline.security.ConcurrencyLimitFilter;
+import com.example.airline.security.ConcurrencyLimiter;
 import com.example.airline.security.CustomUserDetailsService;
 import com.example.airline.security.JwtAuthenticationFilter;
+import com.example.airline.security.RateLimitFilter;
+import com.example.airline.security.RateLimiter;
+import com.example.airline.security.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -15,6 +21,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 
 @Configuration
@@ -24,16 +31,40 @@ public class SecurityConfig {
 
     private final CustomUserDetailsService userDetailsService;
     private final com.example.airline.security.JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final RateLimiter rateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    @Value("${app.security.bcrypt.strength:10}")
+    private int bcryptStrength = 10;
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled = true;
+
+    @Value("${app.rate-limit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    @Value("${app.concurrency.enabled:true}")
+    private boolean concurrencyLimitEnabled = true;
+
+    @Value("${app.concurrency.retry-after-seconds:1}")
+    private int concurrencyRetryAfterSeconds = 1;
     
     public SecurityConfig(CustomUserDetailsService userDetailsService, 
-                         com.example.airline.security.JwtUtil jwtUtil) {
+                         com.example.airline.security.JwtUtil jwtUtil,
+                         TokenRevocationService tokenRevocationService,
+                         RateLimiter rateLimiter,
+                         ConcurrencyLimiter concurrencyLimiter) {
         this.userDetailsService = userDetailsService;
         this.jwtUtil = jwtUtil;
+        this.tokenRevocationService = tokenRevocationService;
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
     
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+        return new JwtAuthenticationFilter(jwtUtil, tokenRevocationService);
     }
 
     @Bean
@@ -60,6 +91,9 @@ public class SecurityConfig {
                     return corsConfig;
                 }))
                 .authorizeHttpRequests(auth -> auth
+                        // Повторная диспетчеризация Mono-ответа: исходный запрос уже прошел авторизацию,
+                        // а JWT-фильтр на ASYNC-диспетчеризации не выполняется
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/", "/health", "/actuator/health").permitAll()
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs", "/v3/api-docs/**").permitAll()
@@ -91,6 +125,16 @@ public class SecurityConfig {
                         })
                 );
         
+        if (rateLimitEnabled) {
+            // Не объявлен как @Bean, иначе Spring Boot зарегистрирует его еще и как сервлетный фильтр
+            http.addFilterAfter(new RateLimitFilter(rateLimiter, trustForwardedFor), JwtAuthenticationFilter.class);
+        }
+        if (concurrencyLimitEnabled) {
+            // Сразу после CORS: отказ 503 дешевле разбора JWT и доступен браузеру с CORS-заголовками
+            http.addFilterAfter(new ConcurrencyLimitFilter(concurrencyLimiter, concurrencyRetryAfterSeconds),
+                    org.springframework.web.filter.CorsFilter.class);
+        }
+        
         return http.build();
     }
 
@@ -109,7 +153,8 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // При повышении стоимости хэши пересчитываются при следующем входе пользователя
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 }
 
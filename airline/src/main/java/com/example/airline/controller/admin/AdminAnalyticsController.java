@@ -1,268 +1,268 @@
 package com.example.airline.controller.admin;
 
+import com.example.airline.service.analytics.AnalyticsOverviewService;
+import com.example.airline.service.analytics.DemandForecastService;
+import com.example.airline.service.analytics.StreamingAnomalyDetector;
+import com.example.airline.service.ml.MlCallGuard;
+import com.example.airline.service.ml.MlCircuitBreaker;
+import com.example.airline.service.ml.MlResponseCache;
 import com.example.airline.service.ml.MlServiceClient;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Контроллер аналитики для администраторов
- * Интеграция с ML-сервисом
+ * Интеграция с ML-сервисом.
+ * Методы возвращают Mono: поток Tomcat освобождается на время ожидания ответа ML-сервиса.
  */
 @RestController
 @RequestMapping("/admin/analytics")
 public class AdminAnalyticsController {
 
     private static final Logger logger = LoggerFactory.getLogger(AdminAnalyticsController.class);
-    
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
     private final MlServiceClient mlServiceClient;
+    private final MlResponseCache mlResponseCache;
+    private final AnalyticsOverviewService overviewService;
+    private final MlCallGuard mlCallGuard;
+    private final DemandForecastService demandForecastService;
+    private final StreamingAnomalyDetector anomalyDetector;
+
+    // ml - ML-сервис с локальным прогнозом как fallback, local - только локальный прогноз
+    @Value("${app.analytics.forecast.source:ml}")
+    private String forecastSource = "ml";
 
-    public AdminAnalyticsController(MlServiceClient mlServiceClient) {
+    public AdminAnalyticsController(MlServiceClient mlServiceClient,
+                                    MlResponseCache mlResponseCache,
+                                    AnalyticsOverviewService overviewService,
+                                    MlCallGuard mlCallGuard,
+                                    DemandForecastService demandForecastService,
+                                    StreamingAnomalyDetector anomalyDetector) {
         this.mlServiceClient = mlServiceClient;
+        this.mlResponseCache = mlResponseCache;
+        this.overviewService = overviewService;
+        this.mlCallGuard = mlCallGuard;
+        this.demandForecastService = demandForecastService;
+        this.anomalyDetector = anomalyDetector;
     }
 
     /**
      * Получить полную аналитику
      */
     @GetMapping
-    public ResponseEntity<JsonNode> getFullAnalytics(
+    public Mono<ResponseEntity<JsonNode>> getFullAnalytics(
             @RequestParam(defaultValue = "month") String period
     ) {
-        try {
-            JsonNode result = mlServiceClient.getAnalytics(period)
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting full analytics", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return respond(mlServiceClient.getAnalytics(period), "full analytics");
+    }
+
+    /**
+     * Сводка для админ-панели: дашборд, статистика, тренды, аномалии и прогноз одним запросом.
+     * Части запрашиваются параллельно; не успевшие части перечислены в degraded_sections.
+     */
+    @GetMapping("/overview")
+    public Mono<ResponseEntity<JsonNode>> getOverview(
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "12") int months,
+            @RequestParam(required = false) String destination
+    ) {
+        return respond(overviewService.getOverview(days, months, destination), "analytics overview");
     }
 
     /**
      * Получить данные для дашборда
      */
     @GetMapping("/dashboard")
-    public ResponseEntity<JsonNode> getDashboard() {
-        try {
-            JsonNode result = mlServiceClient.getDashboardData()
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting dashboard data", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public Mono<ResponseEntity<JsonNode>> getDashboard() {
+        return respond(mlServiceClient.getDashboardData(), "dashboard data");
     }
 
     /**
      * Получить статистику по заявкам
      */
     @GetMapping("/statistics")
-    public ResponseEntity<JsonNode> getStatistics(
+    public Mono<ResponseEntity<JsonNode>> getStatistics(
             @RequestParam(defaultValue = "30") int days
     ) {
-        try {
-            JsonNode result = mlServiceClient.getStatistics(days)
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting statistics", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return respond(mlServiceClient.getStatistics(days), "statistics");
     }
 
     /**
-     * Получить прогноз спроса
+     * Получить прогноз спроса.
+     * Если ML-сервис недоступен, прогноз строится локально по истории заявок.
      */
     @GetMapping("/forecast")
-    public ResponseEntity<JsonNode> getDemandForecast(
+    public Mono<ResponseEntity<JsonNode>> getDemandForecast(
             @RequestParam(required = false) String destination
     ) {
-        try {
-            JsonNode result = mlServiceClient.getDemandForecast(destination)
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting demand forecast", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return respond(forecast(() -> mlServiceClient.getDemandForecast(destination),
+                () -> demandForecastService.getForecast(destination, 6)), "demand forecast");
     }
 
     /**
      * Получить прогноз спроса в табличном формате
      */
     @GetMapping("/forecast/table")
-    public ResponseEntity<JsonNode> getDemandForecastTable() {
-        try {
-            JsonNode result = mlServiceClient.getDemandForecastTable()
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting demand forecast table", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public Mono<ResponseEntity<JsonNode>> getDemandForecastTable() {
+        return respond(mlServiceClient.getDemandForecastTable(), "demand forecast table");
     }
 
     /**
-     * Проверить доступность ML-сервиса
+     * Проверить доступность ML-сервиса.
+     * Кроме ответа /health возвращает состояние circuit breaker и загрузку bulkhead'ов.
      */
     @GetMapping("/health")
-    public ResponseEntity<Map<String, Object>> checkMlServiceHealth() {
-        try {
-            Boolean isHealthy = mlServiceClient.healthCheck()
-                    .block(Duration.ofSeconds(5));
-            return ResponseEntity.ok(Map.of(
-                    "ml_service", isHealthy != null && isHealthy ? "available" : "unavailable",
-                    "status", isHealthy != null && isHealthy ? "ok" : "degraded"
-            ));
-        } catch (Exception e) {
-            logger.error("Error checking ML service health", e);
-            return ResponseEntity.ok(Map.of(
-                    "ml_service", "unavailable",
-                    "status", "error"
-            ));
-        }
+    public Mono<ResponseEntity<Map<String, Object>>> checkMlServiceHealth() {
+        return mlServiceClient.healthCheck()
+                .timeout(Duration.ofSeconds(5))
+                .defaultIfEmpty(false)
+                .map(isHealthy -> ResponseEntity.ok(health(
+                        isHealthy ? "available" : "unavailable",
+                        isHealthy && mlCallGuard.getCircuitState() == MlCircuitBreaker.State.CLOSED ? "ok" : "degraded"
+                )))
+                .onErrorResume(e -> {
+                    logger.error("Error checking ML service health", e);
+                    return Mono.just(ResponseEntity.ok(health("unavailable", "error")));
+                });
+    }
+
+    /**
+     * Статистика кэша ответов ML-сервиса по endpoint'ам: доля попаданий и устаревшие ответы
+     */
+    @GetMapping("/ml-cache")
+    public ResponseEntity<Map<String, Map<String, Object>>> getMlCacheStats() {
+        return ResponseEntity.ok(mlResponseCache.getStats());
     }
 
     /**
      * Получить кластеры туров
      */
     @GetMapping("/clusters")
-    public ResponseEntity<JsonNode> getTourClusters(
+    public Mono<ResponseEntity<JsonNode>> getTourClusters(
             @RequestParam(defaultValue = "3") int n_clusters
     ) {
-        try {
-            JsonNode result = mlServiceClient.getTourClusters(n_clusters)
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting tour clusters", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return respond(mlServiceClient.getTourClusters(n_clusters), "tour clusters");
     }
 
     /**
      * Получить метрики моделей
      */
     @GetMapping("/model-metrics")
-    public ResponseEntity<JsonNode> getModelMetrics() {
-        try {
-            JsonNode result = mlServiceClient.getModelMetrics()
-                    .block(Duration.ofSeconds(30));
-            if (result == null || result.isEmpty()) {
-                return ResponseEntity.ok(com.fasterxml.jackson.databind.node.JsonNodeFactory.instance.arrayNode());
-            }
-            // ML сервис возвращает объект {metrics: [], hasMore: bool, total: number}
-            // Извлекаем поле "metrics" для фронтенда
-            if (result.has("metrics") && result.get("metrics").isArray()) {
-                return ResponseEntity.ok(result.get("metrics"));
-            }
-            // Если формат неожиданный, возвращаем как есть (для обратной совместимости)
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            logger.error("Error getting model metrics", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public Mono<ResponseEntity<JsonNode>> getModelMetrics() {
+        return mlServiceClient.getModelMetrics()
+                .timeout(REQUEST_TIMEOUT)
+                .filter(result -> !result.isEmpty())
+                // ML сервис возвращает объект {metrics: [], hasMore: bool, total: number}
+                // Извлекаем поле "metrics" для фронтенда; если формат неожиданный, возвращаем как есть
+                .map(result -> result.has("metrics") && result.get("metrics").isArray()
+                        ? result.get("metrics")
+                        : result)
+                .defaultIfEmpty(JsonNodeFactory.instance.arrayNode())
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    logger.error("Error getting model metrics", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
     }
 
     /**
      * Получить аномальные туры
      */
     @GetMapping("/anomalies")
-    public ResponseEntity<JsonNode> getAnomalousTours() {
-        try {
-            JsonNode result = mlServiceClient.getAnomalousTours()
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting anomalous tours", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public Mono<ResponseEntity<JsonNode>> getAnomalousTours() {
+        return respond(mlServiceClient.getAnomalousTours(), "anomalous tours");
+    }
+
+    /**
+     * Аномалии цен и частоты заявок, обнаруженные backend'ом по мере поступления событий
+     */
+    @GetMapping("/anomalies/live")
+    public ResponseEntity<List<Map<String, Object>>> getLiveAnomalies() {
+        return ResponseEntity.ok(anomalyDetector.getAnomalies());
     }
 
     /**
      * Получить сезонные тренды
      */
     @GetMapping("/trends")
-    public ResponseEntity<JsonNode> getSeasonalTrends(
+    public Mono<ResponseEntity<JsonNode>> getSeasonalTrends(
             @RequestParam(defaultValue = "12") int months
     ) {
-        try {
-            JsonNode result = mlServiceClient.getSeasonalTrends(months)
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting seasonal trends", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return respond(mlServiceClient.getSeasonalTrends(months), "seasonal trends");
     }
 
     /**
      * Получить все направления из базы данных
      */
     @GetMapping("/all-destinations")
-    public ResponseEntity<JsonNode> getAllDestinations() {
-        try {
-            JsonNode result = mlServiceClient.getAllDestinations()
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        } catch (Exception e) {
-            logger.error("Error getting all destinations", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public Mono<ResponseEntity<JsonNode>> getAllDestinations() {
+        return respond(mlServiceClient.getAllDestinations(), "all destinations");
     }
 
     /**
-     * Получить прогноз сезонных трендов на N месяцев вперед
+     * Получить прогноз сезонных трендов на N месяцев вперед.
+     * Если ML-сервис недоступен, прогноз строится локально по истории заявок.
      */
     @GetMapping("/forecast/seasonal")
-    public ResponseEntity<JsonNode> getSeasonalForecast(
+    public Mono<ResponseEntity<JsonNode>> getSeasonalForecast(
             @RequestParam(defaultValue = "3") int forecast_months
     ) {
-        try {
-            JsonNode result = mlServiceClient.getSeasonalForecast(forecast_months)
-                    .block(Duration.ofSeconds(30));
-            if (result != null) {
-                return ResponseEntity.ok(result);
-            }
-            // Возвращаем пустой массив вместо ошибки для graceful degradation
-            return ResponseEntity.ok(com.fasterxml.jackson.databind.node.JsonNodeFactory.instance.arrayNode());
-        } catch (Exception e) {
-            logger.error("Error getting seasonal forecast", e);
-            // Возвращаем пустой массив вместо ошибки 500
-            return ResponseEntity.ok(com.fasterxml.jackson.databind.node.JsonNodeFactory.instance.arrayNode());
+        return forecast(() -> mlServiceClient.getSeasonalForecast(forecast_months),
+                () -> demandForecastService.getSeasonalForecast(forecast_months))
+                .timeout(REQUEST_TIMEOUT)
+                .map(ResponseEntity::ok)
+                // Возвращаем пустой массив вместо ошибки для graceful degradation
+                .defaultIfEmpty(ResponseEntity.ok(JsonNodeFactory.instance.arrayNode()))
+                .onErrorResume(e -> {
+                    logger.error("Error getting seasonal forecast", e);
+                    return Mono.just(ResponseEntity.ok(JsonNodeFactory.instance.arrayNode()));
+                });
+    }
+
+    // Локальный прогноз строится на boundedElastic: первый вызов читает историю заявок из БД
+    private Mono<JsonNode> forecast(Supplier<Mono<JsonNode>> ml, Supplier<JsonNode> local) {
+        Mono<JsonNode> fallback = Mono.fromCallable(local::get).subscribeOn(Schedulers.boundedElastic());
+        if ("local".equals(forecastSource)) {
+            return fallback;
         }
+        return ml.get().switchIfEmpty(fallback);
+    }
+
+    private Map<String, Object> health(String mlService, String status) {
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("ml_service", mlService);
+        health.put("status", status);
+        health.putAll(mlCallGuard.getStats());
+        return health;
+    }
+
+    /**
+     * Ответ ML-сервиса: 200 с телом, 503 если ML-сервис не вернул данных, 500 при ошибке
+     */
+    private Mono<ResponseEntity<JsonNode>> respond(Mono<JsonNode> call, String description) {
+        return call
+                .timeout(REQUEST_TIMEOUT)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build())
+                .onErrorResume(e -> {
+                    logger.error("Error getting {}", description, e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
     }
 }
@@ -0,0 +1,49 @@
+package com.example.airline.controller.admin;
+
+import com.example.airline.service.recommendation.UserRecommendationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Управление предварительно рассчитанными рекомендациями
+ */
+@RestController
+@RequestMapping("/admin/recommendations")
+public class AdminRecommendationController {
+
+    private final UserRecommendationService userRecommendationService;
+
+    public AdminRecommendationController(UserRecommendationService userRecommendationService) {
+        this.userRecommendationService = userRecommendationService;
+    }
+
+    /**
+     * Рассчитать рекомендации для списка пользователей (например, перед рассылкой)
+     */
+    @PostMapping("/precompute")
+    public Mono<ResponseEntity<Map<String, Object>>> precompute(@RequestBody Map<String, List<Long>> request) {
+        List<Long> userIds = request.get("user_ids");
+        if (userIds == null || userIds.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return userRecommendationService.precomputeBatch(userIds)
+                .map(precomputed -> ResponseEntity.ok(Map.<String, Object>of(
+                        "requested", userIds.size(),
+                        "precomputed", precomputed,
+                        "cached_users", userRecommendationService.size()
+                )));
+    }
+
+    /**
+     * Сбросить все рассчитанные рекомендации
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> invalidate() {
+        userRecommendationService.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.airline.controller.admin;
+
+import com.example.airline.security.ConcurrencyLimiter;
+import com.example.airline.security.RateLimiter;
+import com.example.airline.service.notification.MailBatchSender;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Состояние защиты от перегрузки и исходящей почты
+ */
+@RestController
+@RequestMapping("/admin/traffic")
+public class AdminTrafficController {
+
+    private final RateLimiter rateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final MailBatchSender mailBatchSender;
+
+    public AdminTrafficController(RateLimiter rateLimiter, ConcurrencyLimiter concurrencyLimiter,
+                                  MailBatchSender mailBatchSender) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.mailBatchSender = mailBatchSender;
+    }
+
+    /**
+     * Лимиты частоты запросов по маршрутам и число отклоненных запросов
+     */
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Object>> getRateLimits() {
+        return ResponseEntity.ok(rateLimiter.getStats());
+    }
+
+    /**
+     * Адаптивный лимит одновременных запросов: общий и по группам маршрутов
+     */
+    @GetMapping("/concurrency")
+    public ResponseEntity<Map<String, Object>> getConcurrency() {
+        return ResponseEntity.ok(concurrencyLimiter.getStats());
+    }
+
+    /**
+     * Очередь писем, отправленные и отклоненные письма, SMTP-соединения пула
+     */
+    @GetMapping("/mail")
+    public ResponseEntity<Map<String, Object>> getMail() {
+        return ResponseEntity.ok(mailBatchSender.getStats());
+    }
+}
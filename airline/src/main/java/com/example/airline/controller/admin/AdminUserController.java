@@ -0,0 +1,34 @@
+package com.example.airline.controller.admin;
+
+import com.example.airline.security.TokenRevocationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Управление доступом пользователей
+ */
+@RestController
+@RequestMapping("/admin/users")
+public class AdminUserController {
+
+    private final TokenRevocationService tokenRevocationService;
+
+    public AdminUserController(TokenRevocationService tokenRevocationService) {
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    /**
+     * Отозвать все выданные пользователю токены (например, при компрометации или увольнении)
+     */
+    @PostMapping("/{userId}/revoke-tokens")
+    public ResponseEntity<Map<String, Object>> revokeTokens(@PathVariable Long userId) {
+        try {
+            int version = tokenRevocationService.revokeAllForUser(userId);
+            return ResponseEntity.ok(Map.of("user_id", userId, "token_version", version));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
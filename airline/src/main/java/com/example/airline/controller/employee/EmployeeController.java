@@ -4,6 +4,7 @@ import com.example.airline.dto.employee.EmployeeDto;
 import com.example.airline.dto.employee.EmployeeSalesDto;
 import com.example.airline.dto.request.ClientRequestDto;
 import com.example.airline.entity.tour.RequestStatus;
+import com.example.airline.security.AuthenticatedUser;
 import com.example.airline.service.employee.EmployeeService;
 import com.example.airline.service.request.ClientRequestService;
 import org.springframework.data.domain.Page;
@@ -12,11 +13,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/employee")
@@ -24,37 +25,30 @@ public class EmployeeController {
     
     private final EmployeeService employeeService;
     private final ClientRequestService requestService;
-    private final com.example.airline.repository.user.UserRepository userRepository;
-    private final com.example.airline.repository.user.EmployeeRepository employeeRepository;
     
     public EmployeeController(
             EmployeeService employeeService,
-            ClientRequestService requestService,
-            com.example.airline.repository.user.UserRepository userRepository,
-            com.example.airline.repository.user.EmployeeRepository employeeRepository) {
+            ClientRequestService requestService) {
         this.employeeService = employeeService;
         this.requestService = requestService;
-        this.userRepository = userRepository;
-        this.employeeRepository = employeeRepository;
     }
     
     @GetMapping("/profile")
-    public ResponseEntity<EmployeeDto> getProfile(Authentication authentication) {
-        String username = ((UserDetails) authentication.getPrincipal()).getUsername();
-        return userRepository.findByUsername(username)
-                .flatMap(user -> employeeService.findByUserId(user.getId()))
+    public ResponseEntity<EmployeeDto> getProfile(@AuthenticationPrincipal AuthenticatedUser user) {
+        return Optional.ofNullable(getCurrentEmployeeId(user))
+                .flatMap(employeeService::findById)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/requests")
     public ResponseEntity<Page<ClientRequestDto>> getMyRequests(
-            Authentication authentication,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestParam(required = false) RequestStatus status,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         
-        Long employeeId = getCurrentEmployeeId(authentication);
+        Long employeeId = getCurrentEmployeeId(user);
         if (employeeId == null) {
             return ResponseEntity.notFound().build();
         }
@@ -86,9 +80,9 @@ public class EmployeeController {
     @PatchMapping("/requests/{id}/take")
     public ResponseEntity<ClientRequestDto> takeRequest(
             @PathVariable Long id,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         
-        Long employeeId = getCurrentEmployeeId(authentication);
+        Long employeeId = getCurrentEmployeeId(user);
         if (employeeId == null) {
             return ResponseEntity.status(org.springframework.http.HttpStatus.FORBIDDEN).build();
         }
@@ -105,9 +99,9 @@ public class EmployeeController {
     public ResponseEntity<ClientRequestDto> updateRequestStatus(
             @PathVariable Long id,
             @RequestParam RequestStatus status,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         
-        Long employeeId = getCurrentEmployeeId(authentication);
+        Long employeeId = getCurrentEmployeeId(user);
         if (employeeId == null) {
             return ResponseEntity.status(org.springframework.http.HttpStatus.FORBIDDEN).build();
         }
@@ -122,11 +116,11 @@ public class EmployeeController {
     
     @GetMapping("/sales")
     public ResponseEntity<EmployeeSalesDto> getMySales(
-            Authentication authentication,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         
-        Long employeeId = getCurrentEmployeeId(authentication);
+        Long employeeId = getCurrentEmployeeId(user);
         if (employeeId == null) {
             return ResponseEntity.notFound().build();
         }
@@ -138,12 +132,8 @@ public class EmployeeController {
         return ResponseEntity.ok(sales);
     }
     
-    private Long getCurrentEmployeeId(Authentication authentication) {
-        String username = ((UserDetails) authentication.getPrincipal()).getUsername();
-        return userRepository.findByUsername(username)
-                .flatMap(user -> employeeRepository.findByUserId(user.getId()))
-                .map(emp -> emp.getId())
-                .orElse(null);
+    private Long getCurrentEmployeeId(AuthenticatedUser user) {
+        return user != null ? user.getEmployeeId() : null;
     }
 }
 
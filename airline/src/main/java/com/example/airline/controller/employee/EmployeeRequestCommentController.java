@@ -1,12 +1,12 @@
 package com.example.airline.controller.employee;
 
 import com.example.airline.dto.request.RequestCommentDto;
+import com.example.airline.security.AuthenticatedUser;
 import com.example.airline.service.request.RequestCommentService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -16,24 +16,18 @@ import java.util.List;
 public class EmployeeRequestCommentController {
     
     private final RequestCommentService commentService;
-    private final com.example.airline.repository.user.EmployeeRepository employeeRepository;
-    private final com.example.airline.repository.user.UserRepository userRepository;
     
     public EmployeeRequestCommentController(
-            RequestCommentService commentService,
-            com.example.airline.repository.user.EmployeeRepository employeeRepository,
-            com.example.airline.repository.user.UserRepository userRepository) {
+            RequestCommentService commentService) {
         this.commentService = commentService;
-        this.employeeRepository = employeeRepository;
-        this.userRepository = userRepository;
     }
     
     @PostMapping
     public ResponseEntity<RequestCommentDto> createComment(
             @PathVariable Long requestId,
             @Valid @RequestBody RequestCommentDto dto,
-            Authentication authentication) {
-        Long employeeId = getCurrentEmployeeId(authentication);
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        Long employeeId = getCurrentEmployeeId(user);
         if (employeeId == null) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
@@ -55,8 +49,8 @@ public class EmployeeRequestCommentController {
     public ResponseEntity<Void> deleteComment(
             @PathVariable Long requestId,
             @PathVariable Long commentId,
-            Authentication authentication) {
-        Long employeeId = getCurrentEmployeeId(authentication);
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        Long employeeId = getCurrentEmployeeId(user);
         if (employeeId == null) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
@@ -69,11 +63,7 @@ public class EmployeeRequestCommentController {
         }
     }
     
-    private Long getCurrentEmployeeId(Authentication authentication) {
-        String username = ((UserDetails) authentication.getPrincipal()).getUsername();
-        return userRepository.findByUsername(username)
-                .flatMap(user -> employeeRepository.findByUserId(user.getId()))
-                .map(emp -> emp.getId())
-                .orElse(null);
+    private Long getCurrentEmployeeId(AuthenticatedUser user) {
+        return user != null ? user.getEmployeeId() : null;
     }
 }
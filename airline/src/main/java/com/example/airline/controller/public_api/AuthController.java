@@ -2,9 +2,12 @@ package com.example.airline.controller.public_api;
 
 import com.example.airline.dto.auth.AuthRequest;
 import com.example.airline.dto.auth.AuthResponse;
+import com.example.airline.dto.auth.RefreshRequest;
 import com.example.airline.dto.auth.RegisterRequest;
 import com.example.airline.service.auth.AuthService;
+import com.example.airline.service.auth.PasswordHashingBusyException;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -30,6 +33,8 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
                 Map.of("error", "Неверное имя пользователя или пароль")
             );
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
                 Map.of("error", "Ошибка аутентификации: " + e.getMessage())
@@ -46,11 +51,43 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                 Map.of("error", e.getMessage())
             );
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
                 Map.of("error", "Ошибка регистрации: " + e.getMessage())
             );
         }
     }
-}
 
+    /**
+     * Новая пара токенов по refresh-токену; использованный refresh-токен больше не принимается
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshRequest request) {
+        try {
+            return ResponseEntity.ok(authService.refresh(request.getRefreshToken()));
+        } catch (BadCredentialsException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
+                Map.of("error", "Недействительный refresh-токен")
+            );
+        }
+    }
+
+    /**
+     * Выход из аккаунта: текущий access-токен и цепочка refresh-токена больше не принимаются
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                       @RequestBody(required = false) RefreshRequest request) {
+        String token = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        authService.logout(token, request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<?> busy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+}
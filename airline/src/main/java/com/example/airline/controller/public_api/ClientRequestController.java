@@ -1,14 +1,14 @@
 package com.example.airline.controller.public_api;
 
 import com.example.airline.dto.request.ClientRequestDto;
+import com.example.airline.security.AuthenticatedUser;
 import com.example.airline.service.request.ClientRequestService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -19,16 +19,9 @@ import org.springframework.web.bind.annotation.*;
 public class ClientRequestController {
 
     private final ClientRequestService requestService;
-    private final com.example.airline.repository.client.ClientRepository clientRepository;
-    private final com.example.airline.repository.user.UserRepository userRepository;
 
-    public ClientRequestController(
-            ClientRequestService requestService,
-            com.example.airline.repository.client.ClientRepository clientRepository,
-            com.example.airline.repository.user.UserRepository userRepository) {
+    public ClientRequestController(ClientRequestService requestService) {
         this.requestService = requestService;
-        this.clientRepository = clientRepository;
-        this.userRepository = userRepository;
     }
 
     /**
@@ -36,18 +29,11 @@ public class ClientRequestController {
      */
     @GetMapping("/requests")
     public ResponseEntity<Page<ClientRequestDto>> getMyRequests(
-            Authentication authentication,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         
-        String username = ((UserDetails) authentication.getPrincipal()).getUsername();
-        
-        // Находим клиента по username
-        Long clientId = userRepository.findByUsername(username)
-                .flatMap(user -> clientRepository.findByUserId(user.getId()))
-                .map(client -> client.getId())
-                .orElse(null);
-        
+        Long clientId = user != null ? user.getClientId() : null;
         if (clientId == null) {
             return ResponseEntity.notFound().build();
         }
@@ -2,10 +2,7 @@ package com.example.airline.controller.public_api;
 
 import com.example.airline.dto.favorite.AddToFavoritesRequest;
 import com.example.airline.dto.favorite.FavoriteTourDto;
-import com.example.airline.entity.client.Client;
-import com.example.airline.entity.user.User;
-import com.example.airline.repository.client.ClientRepository;
-import com.example.airline.repository.user.UserRepository;
+import com.example.airline.security.AuthenticatedUser;
 import com.example.airline.service.favorite.FavoriteTourService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -13,8 +10,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -25,36 +21,25 @@ import java.util.Map;
 public class FavoritesController {
     
     private final FavoriteTourService favoriteTourService;
-    private final ClientRepository clientRepository;
-    private final UserRepository userRepository;
     
-    public FavoritesController(
-            FavoriteTourService favoriteTourService,
-            ClientRepository clientRepository,
-            UserRepository userRepository) {
+    public FavoritesController(FavoriteTourService favoriteTourService) {
         this.favoriteTourService = favoriteTourService;
-        this.clientRepository = clientRepository;
-        this.userRepository = userRepository;
     }
     
-    private Long getClientIdFromAuth(Authentication authentication) {
-        String username = ((UserDetails) authentication.getPrincipal()).getUsername();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
-        
-        Client client = clientRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new IllegalArgumentException("Клиент не найден для пользователя"));
-        
-        return client.getId();
+    private Long getClientIdFromAuth(AuthenticatedUser user) {
+        if (user == null || user.getClientId() == null) {
+            throw new IllegalArgumentException("Клиент не найден для пользователя");
+        }
+        return user.getClientId();
     }
     
     @GetMapping
     public ResponseEntity<Page<FavoriteTourDto>> getFavorites(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            Long clientId = getClientIdFromAuth(authentication);
+            Long clientId = getClientIdFromAuth(user);
             Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
             Page<FavoriteTourDto> favorites = favoriteTourService.getFavorites(clientId, pageable);
             return ResponseEntity.ok(favorites);
@@ -66,9 +51,9 @@ public class FavoritesController {
     @PostMapping
     public ResponseEntity<FavoriteTourDto> addToFavorites(
             @RequestBody AddToFavoritesRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            Long clientId = getClientIdFromAuth(authentication);
+            Long clientId = getClientIdFromAuth(user);
             FavoriteTourDto favorite = favoriteTourService.addToFavorites(clientId, request.getTourId());
             return ResponseEntity.status(HttpStatus.CREATED).body(favorite);
         } catch (IllegalArgumentException e) {
@@ -79,9 +64,9 @@ public class FavoritesController {
     @DeleteMapping("/{tourId}")
     public ResponseEntity<Void> removeFromFavorites(
             @PathVariable Long tourId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            Long clientId = getClientIdFromAuth(authentication);
+            Long clientId = getClientIdFromAuth(user);
             favoriteTourService.removeFromFavorites(clientId, tourId);
             return ResponseEntity.noContent().build();
         } catch (IllegalArgumentException e) {
@@ -95,9 +80,9 @@ public class FavoritesController {
     @GetMapping("/check/{tourId}")
     public ResponseEntity<Map<String, Boolean>> checkIsFavorite(
             @PathVariable Long tourId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            Long clientId = getClientIdFromAuth(authentication);
+            Long clientId = getClientIdFromAuth(user);
             boolean isFavorite = favoriteTourService.isFavorite(clientId, tourId);
             
             Map<String, Boolean> response = new HashMap<>();
@@ -110,9 +95,9 @@ public class FavoritesController {
     }
     
     @GetMapping("/count")
-    public ResponseEntity<Map<String, Long>> getFavoritesCount(Authentication authentication) {
+    public ResponseEntity<Map<String, Long>> getFavoritesCount(@AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            Long clientId = getClientIdFromAuth(authentication);
+            Long clientId = getClientIdFromAuth(user);
             long count = favoriteTourService.countFavorites(clientId);
             
             Map<String, Long> response = new HashMap<>();
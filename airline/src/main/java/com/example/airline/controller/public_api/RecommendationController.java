@@ -1,7 +1,11 @@
 package com.example.airline.controller.public_api;
 
+import com.example.airline.service.analytics.PopularityRankingService;
 import com.example.airline.service.ml.MlServiceClient;
+import com.example.airline.service.recommendation.UserRecommendationService;
+import com.example.airline.service.tour.SimilarToursIndex;
 import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
@@ -17,9 +21,26 @@ import java.util.Map;
 public class RecommendationController {
 
     private final MlServiceClient mlServiceClient;
+    private final PopularityRankingService rankingService;
+    private final SimilarToursIndex similarToursIndex;
+    private final UserRecommendationService userRecommendationService;
 
-    public RecommendationController(MlServiceClient mlServiceClient) {
+    // ml - ML-сервис с локальным рейтингом как fallback, local - только локальный рейтинг
+    @Value("${app.ranking.popular-source:ml}")
+    private String popularSource = "ml";
+
+    // local - локальный индекс с ML-сервисом как fallback, ml - только ML-сервис
+    @Value("${app.similarity.source:local}")
+    private String similarSource = "local";
+
+    public RecommendationController(MlServiceClient mlServiceClient,
+                                    PopularityRankingService rankingService,
+                                    SimilarToursIndex similarToursIndex,
+                                    UserRecommendationService userRecommendationService) {
         this.mlServiceClient = mlServiceClient;
+        this.rankingService = rankingService;
+        this.similarToursIndex = similarToursIndex;
+        this.userRecommendationService = userRecommendationService;
     }
 
     /**
@@ -34,9 +55,7 @@ public class RecommendationController {
             @RequestParam(required = false) Integer duration,
             @RequestParam(defaultValue = "5") int limit
     ) {
-        return mlServiceClient.getRecommendations(
-                userId, destinations, minPrice, maxPrice, duration, limit
-        )
+        return recommendations(userId, destinations, minPrice, maxPrice, duration, limit)
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.noContent().build());
     }
@@ -65,34 +84,52 @@ public class RecommendationController {
         int limit = request.get("limit") != null ?
             ((Number) request.get("limit")).intValue() : 5;
         
-        return mlServiceClient.getRecommendations(
-                userId, destinations, minPrice, maxPrice, duration, limit
-        )
+        return recommendations(userId, destinations, minPrice, maxPrice, duration, limit)
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.noContent().build());
     }
 
+    // Рекомендации без фильтров заранее рассчитаны после входа пользователя
+    private Mono<JsonNode> recommendations(Long userId, List<String> destinations, Double minPrice,
+                                           Double maxPrice, Integer duration, int limit) {
+        if (userId != null && destinations == null && minPrice == null && maxPrice == null && duration == null) {
+            return userRecommendationService.getRecommendations(userId, limit);
+        }
+        return mlServiceClient.getRecommendations(userId, destinations, minPrice, maxPrice, duration, limit);
+    }
+
     /**
-     * Получить похожие туры
+     * Получить похожие туры.
+     * По умолчанию ответ строится из локального индекса, ML-сервис вызывается для непроиндексированных туров.
      */
     @GetMapping("/similar/{tourId}")
     public Mono<ResponseEntity<JsonNode>> getSimilarTours(
             @PathVariable int tourId,
             @RequestParam(defaultValue = "5") int limit
     ) {
-        return mlServiceClient.getSimilarTours(tourId, limit)
+        Mono<JsonNode> ml = mlServiceClient.getSimilarTours(tourId, limit);
+        Mono<JsonNode> similar = "ml".equals(similarSource)
+                ? ml
+                : Mono.justOrEmpty(similarToursIndex.findSimilar(tourId, limit)).switchIfEmpty(ml);
+        return similar
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.noContent().build());
     }
 
     /**
-     * Получить популярные туры
+     * Получить популярные туры.
+     * Если ML-сервис недоступен, ответ строится из локального рейтинга популярности.
      */
     @GetMapping("/popular")
     public Mono<ResponseEntity<JsonNode>> getPopularTours(
             @RequestParam(defaultValue = "10") int limit
     ) {
-        return mlServiceClient.getPopularTours(limit)
+        Mono<JsonNode> local = Mono.fromSupplier(() -> rankingService.getPopularTours(limit))
+                .filter(result -> !result.isEmpty());
+        Mono<JsonNode> popular = "local".equals(popularSource)
+                ? local
+                : mlServiceClient.getPopularTours(limit).switchIfEmpty(local);
+        return popular
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.noContent().build());
     }
@@ -2,10 +2,15 @@ package com.example.airline.controller.public_api;
 
 import com.example.airline.dto.request.ClientRequestDto;
 import com.example.airline.dto.flight.FlightDto;
+import com.example.airline.dto.tour.TourDetailsDto;
 import com.example.airline.dto.tour.TourDto;
+import com.example.airline.dto.tour.TourEngagementDto;
 import com.example.airline.entity.flight.Flight;
 import com.example.airline.mapper.tour.TourMapper;
+import com.example.airline.security.AuthenticatedUser;
+import com.example.airline.service.analytics.TourEngagementService;
 import com.example.airline.service.request.ClientRequestService;
+import com.example.airline.service.tour.TourDetailsService;
 import com.example.airline.service.tour.TourService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
@@ -14,8 +19,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -26,10 +30,17 @@ import java.util.List;
 public class TourController {
     private final TourService tourService;
     private final ClientRequestService requestService;
+    private final TourDetailsService tourDetailsService;
+    private final TourEngagementService engagementService;
 
-    public TourController(TourService tourService, ClientRequestService requestService) {
+    public TourController(TourService tourService,
+                          ClientRequestService requestService,
+                          TourDetailsService tourDetailsService,
+                          TourEngagementService engagementService) {
         this.tourService = tourService;
         this.requestService = requestService;
+        this.tourDetailsService = tourDetailsService;
+        this.engagementService = engagementService;
     }
 
     @GetMapping
@@ -64,10 +75,28 @@ public class TourController {
         return ResponseEntity.ok(tours);
     }
 
+    /**
+     * Счетчики популярности туров, отсортированные по views, requests или favorites
+     */
+    @GetMapping("/popular")
+    public ResponseEntity<Page<TourEngagementDto>> getPopularTours(
+            @RequestParam(defaultValue = "views") String sortBy,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        if (!List.of("views", "requests", "favorites").contains(sortBy)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy).descending());
+        return ResponseEntity.ok(engagementService.getEngagement(pageable));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<TourDto> getTourById(@PathVariable Long id) {
         return tourService.findById(id)
-                .map(TourMapper::toDto)
+                .map(tour -> {
+                    engagementService.recordView(tour.getId());
+                    return TourMapper.toDto(tour);
+                })
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -85,6 +114,20 @@ public class TourController {
         }
     }
 
+    /**
+     * Карточка тура одним запросом: тур, рейсы, похожие туры и признак избранного.
+     * Секции собираются параллельно; медленная секция возвращается пустой.
+     */
+    @GetMapping("/{id}/details")
+    public ResponseEntity<TourDetailsDto> getTourDetails(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        Long clientId = user != null ? user.getClientId() : null;
+        return tourDetailsService.getTourDetails(id, clientId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Создание заявки на тур (только для авторизованных клиентов).
      */
@@ -92,14 +135,16 @@ public class TourController {
     public ResponseEntity<ClientRequestDto> submitRequest(
             @PathVariable Long id,
             @Valid @RequestBody ClientRequestDto requestDto,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
             requestDto.setTourId(id);
             
-            // Получаем username текущего пользователя для связи с клиентом
-            String username = ((UserDetails) authentication.getPrincipal()).getUsername();
+            // Заявка связывается с клиентом из токена
+            if (user == null || user.getClientId() == null) {
+                return ResponseEntity.badRequest().build();
+            }
             
-            ClientRequestDto created = requestService.createRequestForUser(requestDto, username);
+            ClientRequestDto created = requestService.createRequestForUser(requestDto, user.getClientId());
             return ResponseEntity.status(HttpStatus.CREATED).body(created);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
@@ -1,101 +1,119 @@
 package com.example.airline.controller.shared;
 
 import com.example.airline.dto.file.FileUploadResponse;
+import com.example.airline.service.file.FileServingService;
 import com.example.airline.service.file.FileStorageService;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import com.example.airline.service.file.FileTooLargeException;
+import com.example.airline.service.file.UploadBusyException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 
 @RestController
 @RequestMapping("/files")
 public class FileController {
     
     private final FileStorageService fileStorageService;
+    private final FileServingService fileServingService;
     
-    @org.springframework.beans.factory.annotation.Value("${app.upload.dir:uploads}")
-    private String uploadDir;
-    
-    public FileController(FileStorageService fileStorageService) {
+    public FileController(FileStorageService fileStorageService, FileServingService fileServingService) {
         this.fileStorageService = fileStorageService;
+        this.fileServingService = fileServingService;
     }
     
     @PostMapping("/tours/{tourId}/images")
     public ResponseEntity<FileUploadResponse> uploadTourImage(
             @PathVariable Long tourId,
             @RequestParam("file") MultipartFile file) {
-        try {
-            FileUploadResponse response = fileStorageService.storeTourImage(file);
-            return ResponseEntity.ok(response);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().build();
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
-        }
+        return upload(() -> fileStorageService.storeTourImage(tourId, file));
     }
     
     @PostMapping("/requests/{requestId}/documents")
     public ResponseEntity<FileUploadResponse> uploadRequestDocument(
             @PathVariable Long requestId,
             @RequestParam("file") MultipartFile file) {
+        return upload(() -> fileStorageService.storeRequestDocument(requestId, file));
+    }
+    
+    /**
+     * Загрузка изображения телом запроса (без multipart): файл пишется на диск по мере чтения
+     */
+    @PostMapping("/tours/{tourId}/images/stream")
+    public ResponseEntity<FileUploadResponse> streamTourImage(
+            @PathVariable Long tourId,
+            @RequestParam(value = "filename", required = false) String filename,
+            HttpServletRequest request) {
+        return upload(() -> fileStorageService.storeTourImage(
+                tourId, request.getInputStream(), request.getContentLengthLong(), filename));
+    }
+    
+    /**
+     * Загрузка документа телом запроса (без multipart): файл пишется на диск по мере чтения
+     */
+    @PostMapping("/requests/{requestId}/documents/stream")
+    public ResponseEntity<FileUploadResponse> streamRequestDocument(
+            @PathVariable Long requestId,
+            @RequestParam(value = "filename", required = false) String filename,
+            HttpServletRequest request) {
+        return upload(() -> fileStorageService.storeRequestDocument(
+                requestId, request.getInputStream(), request.getContentLengthLong(), filename));
+    }
+    
+    private ResponseEntity<FileUploadResponse> upload(Upload upload) {
         try {
-            FileUploadResponse response = fileStorageService.storeRequestDocument(file);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(upload.store());
+        } catch (FileTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
+        } catch (UploadBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
         } catch (IOException e) {
             return ResponseEntity.internalServerError().build();
         }
     }
     
-    @GetMapping("/{subdirectory}/{filename:.+}")
-    public ResponseEntity<Resource> getFile(
+    /**
+     * Файл с долгим кэшированием, условными запросами (304) и диапазонами байт.
+     * Для изображений туров w - желаемая ширина: отдается ближайший уменьшенный вариант.
+     */
+    @RequestMapping(value = "/{subdirectory}/{filename:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getFile(
             @PathVariable String subdirectory,
-            @PathVariable String filename) {
-        try {
-            Path filePath = Paths.get(uploadDir, subdirectory, filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = "application/octet-stream";
-                if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) {
-                    contentType = "image/jpeg";
-                } else if (filename.endsWith(".png")) {
-                    contentType = "image/png";
-                } else if (filename.endsWith(".pdf")) {
-                    contentType = "application/pdf";
-                }
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
-        }
+            @PathVariable String filename,
+            @RequestParam(value = "w", required = false) Integer w,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        fileServingService.serve(subdirectory, filename, w, request, response);
     }
     
+    /**
+     * Удаление файла тура или заявки ownerId. Другие владельцы того же содержимого его не теряют.
+     */
     @DeleteMapping("/{subdirectory}/{filename:.+}")
     public ResponseEntity<Void> deleteFile(
             @PathVariable String subdirectory,
-            @PathVariable String filename) {
+            @PathVariable String filename,
+            @RequestParam("ownerId") Long ownerId) {
         try {
             String fileUrl = "/files/" + subdirectory + "/" + filename;
-            fileStorageService.deleteFile(fileUrl);
+            fileStorageService.deleteFile(fileUrl, ownerId);
             return ResponseEntity.noContent().build();
         } catch (IOException e) {
             return ResponseEntity.internalServerError().build();
         }
     }
+    
+    @FunctionalInterface
+    private interface Upload {
+        FileUploadResponse store() throws IOException;
+    }
 }
-
@@ -6,6 +6,9 @@ public class AuthResponse {
     private String token;
     private String username;
     private List<String> roles;
+    private String refreshToken;
+    /** Срок действия access-токена в секундах */
+    private long expiresIn;
 
     public AuthResponse() {
     }
@@ -39,5 +42,20 @@ public class AuthResponse {
     public void setRoles(List<String> roles) {
         this.roles = roles;
     }
-}
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
+    public void setExpiresIn(long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.airline.dto.auth;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class RefreshRequest {
+    @NotBlank(message = "Refresh token is required")
+    private String refreshToken;
+
+    public RefreshRequest() {
+    }
+
+    public RefreshRequest(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
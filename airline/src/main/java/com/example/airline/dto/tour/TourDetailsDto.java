@@ -0,0 +1,69 @@
+package com.example.airline.dto.tour;
+
+import com.example.airline.dto.flight.FlightDto;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Составная карточка тура для мобильного приложения:
+ * тур, его рейсы, похожие туры и признак избранного в одном ответе.
+ */
+public class TourDetailsDto {
+    private TourDto tour;
+    private List<FlightDto> flights;
+    private JsonNode similarTours;
+    private Boolean favorite;
+    private List<String> degradedSections = new ArrayList<>();
+
+    public TourDetailsDto() {
+    }
+
+    // Getters and setters
+    public TourDto getTour() {
+        return tour;
+    }
+
+    public void setTour(TourDto tour) {
+        this.tour = tour;
+    }
+
+    public List<FlightDto> getFlights() {
+        return flights;
+    }
+
+    public void setFlights(List<FlightDto> flights) {
+        this.flights = flights;
+    }
+
+    public JsonNode getSimilarTours() {
+        return similarTours;
+    }
+
+    public void setSimilarTours(JsonNode similarTours) {
+        this.similarTours = similarTours;
+    }
+
+    /**
+     * null - пользователь не авторизован как клиент
+     */
+    public Boolean getFavorite() {
+        return favorite;
+    }
+
+    public void setFavorite(Boolean favorite) {
+        this.favorite = favorite;
+    }
+
+    /**
+     * Секции, не успевшие к дедлайну или завершившиеся ошибкой (вернулись пустыми)
+     */
+    public List<String> getDegradedSections() {
+        return degradedSections;
+    }
+
+    public void setDegradedSections(List<String> degradedSections) {
+        this.degradedSections = degradedSections;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.airline.dto.tour;
+
+/**
+ * Счетчики вовлеченности по туру (сохраненные + еще не сброшенные в БД)
+ */
+public class TourEngagementDto {
+    private Long tourId;
+    private long views;
+    private long requests;
+    private long favorites;
+
+    public TourEngagementDto() {
+    }
+
+    public TourEngagementDto(Long tourId, long views, long requests, long favorites) {
+        this.tourId = tourId;
+        this.views = views;
+        this.requests = requests;
+        this.favorites = favorites;
+    }
+
+    // Getters and setters
+    public Long getTourId() {
+        return tourId;
+    }
+
+    public void setTourId(Long tourId) {
+        this.tourId = tourId;
+    }
+
+    public long getViews() {
+        return views;
+    }
+
+    public void setViews(long views) {
+        this.views = views;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public long getFavorites() {
+        return favorites;
+    }
+
+    public void setFavorites(long favorites) {
+        this.favorites = favorites;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.airline.entity.tour;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Накопленные счетчики вовлеченности по туру.
+ * Строки пишутся только пакетным upsert из TourEngagementService.
+ */
+@Entity
+@Table(name = "tour_engagement")
+public class TourEngagement {
+    @Id
+    @Column(name = "tour_id")
+    private Long tourId;
+
+    @Column(nullable = false)
+    private long views;
+
+    @Column(nullable = false)
+    private long requests;
+
+    @Column(nullable = false)
+    private long favorites;
+
+    private LocalDateTime updatedAt;
+
+    public TourEngagement() {
+    }
+
+    // Getters and setters
+    public Long getTourId() {
+        return tourId;
+    }
+
+    public void setTourId(Long tourId) {
+        this.tourId = tourId;
+    }
+
+    public long getViews() {
+        return views;
+    }
+
+    public void setViews(long views) {
+        this.views = views;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public long getFavorites() {
+        return favorites;
+    }
+
+    public void setFavorites(long favorites) {
+        this.favorites = favorites;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
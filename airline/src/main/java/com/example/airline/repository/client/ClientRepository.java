@@ -51,5 +51,8 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     
     // Поиск клиента по связанному User
     Optional<Client> findByUserId(Long userId);
+
+    @Query("SELECT c.user.id FROM Client c WHERE c.id = :clientId")
+    Optional<Long> findUserIdById(@Param("clientId") Long clientId);
 }
 
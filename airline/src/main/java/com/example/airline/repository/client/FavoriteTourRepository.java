@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -37,4 +39,10 @@ public interface FavoriteTourRepository extends JpaRepository<FavoriteTour, Long
      * Подсчитать количество избранных туров у клиента
      */
     long countByClientId(Long clientId);
+    
+    /**
+     * Пары (tourId, createdAt) для заполнения рейтинга популярности
+     */
+    @Query("SELECT f.tour.id, f.createdAt FROM FavoriteTour f WHERE f.createdAt >= :since")
+    List<Object[]> findTourActivitySince(@Param("since") LocalDateTime since);
 }
@@ -88,5 +88,17 @@ public interface ClientRequestRepository extends JpaRepository<ClientRequest, Lo
     
     // Получить заявки без назначенного сотрудника по статусу
     Page<ClientRequest> findByEmployeeIsNullAndStatus(RequestStatus status, Pageable pageable);
+    
+    // Пары (tourId, createdAt) для заполнения рейтинга популярности
+    @Query("SELECT cr.tour.id, cr.createdAt FROM ClientRequest cr WHERE cr.createdAt >= :since")
+    java.util.List<Object[]> findTourActivitySince(@Param("since") java.time.LocalDateTime since);
+    
+    // Помесячная статистика заявок по направлениям:
+    // (destinationCity, год, месяц, число заявок, средняя цена тура, число завершенных заявок)
+    @Query("SELECT cr.tour.destinationCity, YEAR(cr.createdAt), MONTH(cr.createdAt), COUNT(cr), " +
+           "AVG(cr.tour.price), SUM(CASE WHEN cr.status = :completed THEN 1 ELSE 0 END) " +
+           "FROM ClientRequest cr WHERE cr.createdAt >= :since AND cr.tour.destinationCity IS NOT NULL " +
+           "GROUP BY cr.tour.destinationCity, YEAR(cr.createdAt), MONTH(cr.createdAt)")
+    java.util.List<Object[]> findMonthlyDemandSince(@Param("since") java.time.LocalDateTime since,
+                                                    @Param("completed") RequestStatus completed);
 }
-
@@ -0,0 +1,16 @@
+package com.example.airline.repository.tour;
+
+import com.example.airline.entity.tour.TourEngagement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TourEngagementRepository extends JpaRepository<TourEngagement, Long> {
+
+    // Счетчики только по активным турам; сортировка задается через Pageable
+    @Query("SELECT e FROM TourEngagement e, Tour t WHERE t.id = e.tourId AND t.active = true")
+    Page<TourEngagement> findForActiveTours(Pageable pageable);
+}
@@ -17,6 +17,15 @@ public interface TourRepository extends JpaRepository<Tour, Long> {
     
     Page<Tour> findByActiveTrue(Pageable pageable);
     
+    List<Tour> findByActiveTrue();
+    
+    // Для индекса похожих туров: категории загружаются одним запросом
+    @Query("SELECT DISTINCT t FROM Tour t LEFT JOIN FETCH t.categories WHERE t.active = true")
+    List<Tour> findActiveWithCategories();
+    
+    @Query("SELECT t FROM Tour t LEFT JOIN FETCH t.categories WHERE t.id = :id")
+    Optional<Tour> findByIdWithCategories(@Param("id") Long id);
+    
     List<Tour> findByDestinationCity(String destinationCity);
     
     long countByActiveTrue();
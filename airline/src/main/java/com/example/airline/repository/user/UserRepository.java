@@ -2,10 +2,12 @@ package com.example.airline.repository.user;
 
 import com.example.airline.entity.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -19,5 +21,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
     
     boolean existsByEmail(String email);
-}
+    
+    /**
+     * Увеличить версию токенов пользователя (все ранее выданные токены становятся недействительными)
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.id = :userId")
+    int incrementTokenVersion(@Param("userId") Long userId);
 
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :userId")
+    Optional<Integer> findTokenVersionById(@Param("userId") Long userId);
+
+    /**
+     * Пары [userId, tokenVersion] для пользователей, у которых токены когда-либо отзывались
+     */
+    @Query("SELECT u.id, u.tokenVersion FROM User u WHERE u.tokenVersion > 0")
+    List<Object[]> findRevokedTokenVersions();
+}
@@ -0,0 +1,43 @@
+package com.example.airline.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Пользователь текущего запроса с идентификаторами, взятыми из claims JWT.
+ *
+ * employeeId и clientId равны null, если у пользователя нет профиля сотрудника или клиента
+ * на момент входа. Контроллеры получают его параметром метода с
+ * {@code @AuthenticationPrincipal} вместо поиска пользователя по username.
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long userId;
+    private final Long employeeId;
+    private final Long clientId;
+
+    public AuthenticatedUser(String username,
+                             Collection<? extends GrantedAuthority> authorities,
+                             Long userId,
+                             Long employeeId,
+                             Long clientId) {
+        super(username, "", authorities);
+        this.userId = userId;
+        this.employeeId = employeeId;
+        this.clientId = clientId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.airline.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума для строк: быстрый отрицательный ответ без обращения к хэш-таблице.
+ * Ложноотрицательных ответов нет, ложноположительные - с заданной вероятностью.
+ * Потокобезопасен; удаление не поддерживается (фильтр пересоздается целиком).
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 64L, Math.max(64L, optimalBits));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * ln2));
+        this.bits = new AtomicLongArray((bitCount + 63) >>> 6);
+    }
+
+    void add(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1 + i * h2);
+            long mask = 1L << index;
+            bits.accumulateAndGet(index >>> 6, mask, (word, bit) -> word | bit);
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1 + i * h2);
+            if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * FNV-1a с финальным перемешиванием MurmurHash3: две независимые половины для двойного хэширования
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.airline.security;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Сброс нагрузки: запрос сверх адаптивного лимита группы сразу получает 503 с Retry-After,
+ * вместо того чтобы ждать в очереди Tomcat до таймаута.
+ *
+ * Для асинхронных ответов (Mono) слот освобождается по завершении асинхронной обработки.
+ * Ответ с любым статусом учитывается как замер задержки; исключение и таймаут асинхронного
+ * запроса уменьшают лимит. Быстрые 503 при недоступном ML-сервисе не должны урезать лимит
+ * для остальных маршрутов.
+ *
+ * Отдача файлов (/files/**) в лимит не входит: длительность скачивания зависит от размера файла
+ * и скорости клиента, а не от загрузки сервера, и искажала бы замеры задержки.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    static final String GROUP_EMPLOYEE = "employee";
+    static final String GROUP_AUTH = "auth";
+    static final String GROUP_ADMIN = "admin";
+    static final String GROUP_ANALYTICS = "analytics";
+    static final String GROUP_PUBLIC = "public";
+
+    private final ConcurrencyLimiter limiter;
+    private final int retryAfterSeconds;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimiter limiter, int retryAfterSeconds) {
+        this.limiter = limiter;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return "OPTIONS".equals(request.getMethod()) ||
+               path.equals("/") ||
+               path.equals("/health") ||
+               path.startsWith("/actuator/") ||
+               path.startsWith("/files/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire(group(request));
+        if (permit == null) {
+            reject(response);
+            return;
+        }
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (completed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new PermitReleasingListener(permit));
+            } else if (completed) {
+                permit.release();
+            } else {
+                permit.releaseDropped();
+            }
+        }
+    }
+
+    /**
+     * Группа маршрутов: определяет долю общего лимита, доступную запросу
+     */
+    static String group(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.startsWith("/employee/") || path.startsWith("/admin/requests")) {
+            return GROUP_EMPLOYEE;
+        }
+        if (path.startsWith("/admin/analytics") || path.startsWith("/admin/statistics")) {
+            return GROUP_ANALYTICS;
+        }
+        if (path.startsWith("/auth/")) {
+            return GROUP_AUTH;
+        }
+        if (path.startsWith("/admin/")) {
+            return GROUP_ADMIN;
+        }
+        return GROUP_PUBLIC;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"Сервер перегружен, повторите позже\"}");
+    }
+
+    private record PermitReleasingListener(ConcurrencyLimiter.Permit permit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.releaseDropped();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.releaseDropped();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
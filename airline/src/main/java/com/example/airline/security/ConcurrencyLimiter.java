@@ -0,0 +1,215 @@
+package com.example.airline.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Адаптивный лимит одновременных запросов к серверу (градиентный алгоритм по задержке).
+ *
+ * Для каждой группы маршрутов отслеживается базовая задержка (медленное скользящее среднее).
+ * Каждый завершенный запрос дает градиент: базовая задержка группы с допуском tolerance,
+ * деленная на задержку запроса. Пока запросы укладываются в базовую задержку, лимит растет
+ * на sqrt(limit), при росте задержки - уменьшается пропорционально. Необработанные исключения
+ * и таймауты уменьшают лимит мультипликативно.
+ *
+ * Лимит общий, а приоритет задается долей (app.concurrency.{group}.share): группа
+ * допускается, только пока общее число запросов в обработке меньше limit * share.
+ * Поэтому при перегрузке первой отсекается аналитика, а обработка заявок сотрудниками
+ * может занять весь лимит.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    private final Environment environment;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${app.concurrency.min-limit:4}")
+    private int minLimit = 4;
+
+    @Value("${app.concurrency.max-limit:200}")
+    private int maxLimit = 200;
+
+    @Value("${app.concurrency.tolerance:1.5}")
+    private double tolerance = 1.5;
+
+    @Value("${app.concurrency.smoothing:0.2}")
+    private double smoothing = 0.2;
+
+    @Value("${app.concurrency.baseline-window:500}")
+    private int baselineWindow = 500;
+
+    @Value("${app.concurrency.backoff-ratio:0.9}")
+    private double backoffRatio = 0.9;
+
+    private volatile double limit;
+
+    LongSupplier clock = System::nanoTime;
+
+    public ConcurrencyLimiter(Environment environment, @Value("${app.concurrency.initial-limit:20}") int initialLimit) {
+        this.environment = environment;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Занять слот для запроса группы
+     *
+     * @return разрешение, которое нужно освободить по завершении запроса, или null, если запрос нужно отклонить
+     */
+    public Permit tryAcquire(String groupName) {
+        Group group = group(groupName);
+        int allowed = group.allowed(limit);
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= allowed) {
+                group.rejected.increment();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        group.inFlight.incrementAndGet();
+        return new Permit(group, clock.getAsLong(), current + 1);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Общий лимит и по группам: доступная доля, запросы в обработке, отклоненные, базовая задержка
+     */
+    public Map<String, Object> getStats() {
+        double current = limit;
+        Map<String, Object> byGroup = new TreeMap<>();
+        groups.forEach((name, group) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("share", group.share);
+            stats.put("limit", group.allowed(current));
+            stats.put("in_flight", group.inFlight.get());
+            stats.put("rejected", group.rejected.sum());
+            stats.put("baseline_latency_ms", group.baselineNanos / 1_000_000.0);
+            byGroup.put(name, stats);
+        });
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", (int) current);
+        stats.put("in_flight", inFlight.get());
+        stats.put("groups", byGroup);
+        return stats;
+    }
+
+    private void release(Permit permit, boolean dropped) {
+        inFlight.decrementAndGet();
+        permit.group.inFlight.decrementAndGet();
+        if (dropped) {
+            onDropped();
+        } else {
+            onSample(permit.group, Math.max(1, clock.getAsLong() - permit.startedAt), permit.inFlightAtStart);
+        }
+    }
+
+    private synchronized void onSample(Group group, long latencyNanos, int inFlightAtStart) {
+        double baseline = group.updateBaseline(latencyNanos, baselineWindow);
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baseline / latencyNanos));
+        // Лимит, который и так не выбирается, не наращиваем: иначе он бесконечно растет в простое
+        if (gradient >= 1.0 && inFlightAtStart < limit / 2) {
+            return;
+        }
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - smoothing) + target * smoothing);
+    }
+
+    private synchronized void onDropped() {
+        limit = clamp(limit * backoffRatio);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    private Group group(String name) {
+        Group group = groups.get(name);
+        return group != null ? group : groups.computeIfAbsent(name, n -> new Group(
+                environment.getProperty("app.concurrency." + n + ".share", Double.class, 1.0)));
+    }
+
+    private static final class Group {
+        final double share;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LongAdder rejected = new LongAdder();
+        volatile double baselineNanos;
+
+        Group(double share) {
+            this.share = share;
+        }
+
+        int allowed(double limit) {
+            return Math.max(1, (int) (limit * share));
+        }
+
+        /**
+         * Вызывается под блокировкой лимитера
+         */
+        double updateBaseline(long latencyNanos, int window) {
+            double baseline = baselineNanos;
+            if (baseline == 0) {
+                baseline = latencyNanos;
+            } else {
+                baseline += (latencyNanos - baseline) / window;
+                // Задержка заметно упала (например, после деградации): базу догоняем быстрее
+                if (baseline > 2 * latencyNanos) {
+                    baseline *= 0.95;
+                }
+            }
+            baselineNanos = baseline;
+            return baseline;
+        }
+    }
+
+    /**
+     * Слот одного запроса. Повторное освобождение игнорируется.
+     */
+    public final class Permit {
+        private final Group group;
+        private final long startedAt;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Group group, long startedAt, int inFlightAtStart) {
+            this.group = group;
+            this.startedAt = startedAt;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Запрос обработан: его задержка учитывается в лимите
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                ConcurrencyLimiter.this.release(this, false);
+            }
+        }
+
+        /**
+         * Запрос завершился ошибкой или таймаутом: лимит уменьшается
+         */
+        public void releaseDropped() {
+            if (released.compareAndSet(false, true)) {
+                ConcurrencyLimiter.this.release(this, true);
+            }
+        }
+    }
+}
@@ -26,7 +26,7 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CustomUserDetailsService.class);
-        logger.info("=== CustomUserDetailsService: Загрузка пользователя: {}", username);
+        logger.debug("=== CustomUserDetailsService: Загрузка пользователя: {}", username);
         
         User user = userRepository.findByUsernameWithRoles(username)
                 .orElseThrow(() -> {
@@ -34,17 +34,17 @@ public class CustomUserDetailsService implements UserDetailsService {
                     return new UsernameNotFoundException("User not found: " + username);
                 });
 
-        logger.info("=== CustomUserDetailsService: Пользователь найден: {}, enabled: {}, ролей: {}", 
+        logger.debug("=== CustomUserDetailsService: Пользователь найден: {}, enabled: {}, ролей: {}", 
             user.getUsername(), user.isEnabled(), user.getRoles().size());
         
         Set<GrantedAuthority> authorities = user.getRoles().stream()
                 .map(role -> {
-                    logger.info("=== CustomUserDetailsService: Роль пользователя {}: {}", username, role.getName());
+                    logger.debug("=== CustomUserDetailsService: Роль пользователя {}: {}", username, role.getName());
                     return new SimpleGrantedAuthority(role.getName().name());
                 })
                 .collect(Collectors.toSet());
 
-        logger.info("=== CustomUserDetailsService: Создан UserDetails для {} с {} ролями", username, authorities.size());
+        logger.debug("=== CustomUserDetailsService: Создан UserDetails для {} с {} ролями", username, authorities.size());
 
         return org.springframework.security.core.userdetails.User.builder()
                 .username(user.getUsername())
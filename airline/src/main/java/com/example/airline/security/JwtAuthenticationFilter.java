@@ -1,32 +1,42 @@
 package com.example.airline.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
+/**
+ * Аутентификация запроса по JWT.
+ *
+ * Пользователь и его роли восстанавливаются из подписанных claims токена без обращения к БД;
+ * отозванные токены отсекаются через {@link TokenRevocationService}.
+ */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, TokenRevocationService tokenRevocationService) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
         String path = request.getRequestURI();
-        return path.startsWith("/auth/") || 
-               path.startsWith("/swagger-ui") || 
+        return path.startsWith("/auth/") ||
+               path.startsWith("/swagger-ui") ||
                path.equals("/swagger-ui.html") ||
                path.startsWith("/v3/api-docs") ||
                path.equals("/v3/api-docs") ||
@@ -35,28 +45,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     @Override
-    protected void doFilterInternal(HttpServletRequest request, 
-                                   HttpServletResponse response, 
+    protected void doFilterInternal(HttpServletRequest request,
+                                   HttpServletResponse response,
                                    FilterChain filterChain) throws ServletException, IOException {
-        String requestURI = request.getRequestURI();
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        Claims claims = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
-            } catch (Exception e) {
+                claims = jwtUtil.parseClaims(authorizationHeader.substring(7));
+            } catch (JwtException | IllegalArgumentException e) {
                 // Invalid token, will be handled by Spring Security
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenRevocationService.isRevoked(claims)) {
+            UserDetails userDetails = toUserDetails(claims);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -66,5 +73,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
 
+    /**
+     * Токены, выпущенные до появления ролей в claims, не принимаются: нужен повторный вход
+     */
+    private UserDetails toUserDetails(Claims claims) {
+        List<?> roles = claims.get(JwtUtil.CLAIM_ROLES, List.class);
+        if (claims.getSubject() == null || roles == null) {
+            return null;
+        }
+        return new AuthenticatedUser(
+                claims.getSubject(),
+                roles.stream()
+                        .map(role -> new SimpleGrantedAuthority(role.toString()))
+                        .toList(),
+                claims.get(JwtUtil.CLAIM_USER_ID, Long.class),
+                claims.get(JwtUtil.CLAIM_EMPLOYEE_ID, Long.class),
+                claims.get(JwtUtil.CLAIM_CLIENT_ID, Long.class));
+    }
+}
@@ -1,31 +1,84 @@
 package com.example.airline.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
+/**
+ * Выпуск и разбор JWT.
+ *
+ * Токен самодостаточен: кроме имени пользователя в подписанных claims лежат роли,
+ * идентификаторы пользователя, сотрудника и клиента и версия токенов пользователя,
+ * поэтому для аутентификации запроса не нужно обращаться к БД.
+ *
+ * Ключ подписи и парсер создаются один раз; токен разбирается и проверяется
+ * один раз за время жизни, дальше claims берутся из небольшого LRU-кэша.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_EMPLOYEE_ID = "eid";
+    public static final String CLAIM_CLIENT_ID = "cid";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
 
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long expiration;
+    private final int claimsCacheSize;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Проверенные claims по SHA-256 токена: повторные запросы с тем же токеном
+     * не разбирают JSON и не пересчитывают HMAC. Отзыв токенов проверяется отдельно
+     * ({@link TokenRevocationService}), поэтому кэш на него не влияет.
+     */
+    private final Map<ByteBuffer, Claims> verifiedClaims;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") long expiration,
+                   @Value("${jwt.claims-cache.max-size:10000}") int claimsCacheSize) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .clock(() -> new Date(clock.getAsLong()))
+                .build();
+        this.expiration = expiration;
+        this.claimsCacheSize = claimsCacheSize;
+        this.verifiedClaims = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Claims> eldest) {
+                return size() > claimsCacheSize;
+            }
+        };
+    }
+
+    /**
+     * Срок действия выпускаемых access-токенов
+     */
+    public long getExpirationMs() {
+        return expiration;
     }
 
     public String extractUsername(String token) {
@@ -41,36 +94,93 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Проверить подпись и срок действия и вернуть claims токена
+     *
+     * @throws io.jsonwebtoken.JwtException если токен поврежден, подделан или истек
+     */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
+    }
+
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        if (claimsCacheSize <= 0) {
+            return parser.parseSignedClaims(token).getPayload();
+        }
+        ByteBuffer key = ByteBuffer.wrap(sha256(token));
+        Claims claims;
+        synchronized (verifiedClaims) {
+            claims = verifiedClaims.get(key);
+        }
+        if (claims != null && claims.getExpiration().getTime() > clock.getAsLong()) {
+            return claims;
+        }
+        // Промах или истекший токен: полная проверка (для истекшего бросит ExpiredJwtException)
+        claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() != null) {
+            synchronized (verifiedClaims) {
+                verifiedClaims.put(key, claims);
+            }
+        }
+        return claims;
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    int cachedClaimsCount() {
+        synchronized (verifiedClaims) {
+            return verifiedClaims.size();
+        }
     }
 
     public String generateToken(UserDetails userDetails) {
+        return generateToken(userDetails, null, null, null, 0);
+    }
+
+    /**
+     * Выпустить токен с ролями и идентификаторами пользователя.
+     * employeeId и clientId равны null, если пользователь не сотрудник или не клиент.
+     */
+    public String generateToken(UserDetails userDetails, Long userId, Long employeeId, Long clientId, int tokenVersion) {
         Map<String, Object> claims = new HashMap<>();
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+        claims.put(CLAIM_ROLES, roles);
+        if (userId != null) {
+            claims.put(CLAIM_USER_ID, userId);
+        }
+        if (employeeId != null) {
+            claims.put(CLAIM_EMPLOYEE_ID, employeeId);
+        }
+        if (clientId != null) {
+            claims.put(CLAIM_CLIENT_ID, clientId);
+        }
+        claims.put(CLAIM_TOKEN_VERSION, tokenVersion);
         return createToken(claims, userDetails.getUsername());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = extractAllClaims(token);
+        return claims.getSubject().equals(userDetails.getUsername())
+                && claims.getExpiration().getTime() > clock.getAsLong();
     }
 }
 
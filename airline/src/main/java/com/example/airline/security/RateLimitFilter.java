@@ -0,0 +1,117 @@
+package com.example.airline.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты запросов к публичным маршрутам: вход, регистрация, заявка на тур
+ * и рекомендации. Проверяется бакет IP-адреса и, для аутентифицированных запросов, бакет
+ * пользователя; при исчерпании любого из них отдается 429 с Retry-After.
+ *
+ * Стоит после JwtAuthenticationFilter, чтобы пользователь уже был известен.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String ROUTE_LOGIN = "login";
+    static final String ROUTE_REGISTER = "register";
+    static final String ROUTE_TOUR_REQUEST = "tour-request";
+    static final String ROUTE_RECOMMENDATIONS = "recommendations";
+
+    private final RateLimiter rateLimiter;
+    private final boolean trustForwardedFor;
+
+    /**
+     * @param trustForwardedFor брать адрес клиента из X-Forwarded-For (приложение за обратным прокси)
+     */
+    public RateLimitFilter(RateLimiter rateLimiter, boolean trustForwardedFor) {
+        this.rateLimiter = rateLimiter;
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return route(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String route = route(request);
+        long waitNanos = rateLimiter.tryAcquire(route, RateLimiter.SCOPE_IP, clientAddress(request));
+        if (waitNanos == 0) {
+            Long userId = currentUserId();
+            if (userId != null) {
+                waitNanos = rateLimiter.tryAcquire(route, RateLimiter.SCOPE_USER, userId);
+            }
+        }
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Имя ограничиваемого маршрута или null. Сравнение строк вместо шаблонов путей: фильтр
+     * вызывается на каждом запросе.
+     */
+    static String route(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        boolean post = "POST".equals(request.getMethod());
+        if (post && path.equals("/auth/login")) {
+            return ROUTE_LOGIN;
+        }
+        if (post && path.equals("/auth/register")) {
+            return ROUTE_REGISTER;
+        }
+        if (post && path.startsWith("/tours/") && path.endsWith("/request")
+                && path.indexOf('/', "/tours/".length()) == path.length() - "/request".length()) {
+            return ROUTE_TOUR_REQUEST;
+        }
+        if (path.equals("/recommendations") || path.startsWith("/recommendations/")) {
+            return ROUTE_RECOMMENDATIONS;
+        }
+        return null;
+    }
+
+    /**
+     * Прокси дописывает адрес клиента в конец X-Forwarded-For; значения левее задает сам клиент
+     */
+    private String clientAddress(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                return forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getUserId();
+        }
+        return null;
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"Слишком много запросов, повторите позже\"}");
+    }
+}
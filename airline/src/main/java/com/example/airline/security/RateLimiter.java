@@ -0,0 +1,174 @@
+package com.example.airline.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket на каждый IP-адрес и каждого пользователя в пределах маршрута.
+ *
+ * Лимиты задаются на маршрут и область (ip/user): app.rate-limit.{route}.{scope}.capacity -
+ * размер всплеска, app.rate-limit.{route}.{scope}.refill-per-minute - устойчивая скорость;
+ * capacity=0 отключает ограничение. Бакеты пополняются лениво при обращении, поэтому
+ * фоновых задач на каждый бакет нет. Хранилище разбито на шарды, которые очищаются
+ * от бакетов, не использовавшихся дольше idle-eviction-ms, по одному за раз.
+ */
+@Component
+public class RateLimiter {
+
+    public static final String SCOPE_IP = "ip";
+    public static final String SCOPE_USER = "user";
+
+    private final Environment environment;
+    private final Map<String, Limit> ipLimits = new ConcurrentHashMap<>();
+    private final Map<String, Limit> userLimits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<BucketKey, Bucket>[] shards;
+
+    @Value("${app.rate-limit.idle-eviction-ms:600000}")
+    private long idleEvictionMs = 600_000;
+
+    LongSupplier clock = System::nanoTime;
+
+    @SuppressWarnings("unchecked")
+    public RateLimiter(Environment environment, @Value("${app.rate-limit.shards:16}") int shardCount) {
+        this.environment = environment;
+        int size = 1;
+        while (size < shardCount) {
+            size <<= 1;
+        }
+        this.shards = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Взять один токен из бакета
+     *
+     * @param route имя маршрута
+     * @param scope {@link #SCOPE_IP} или {@link #SCOPE_USER}
+     * @param id    IP-адрес или идентификатор пользователя
+     * @return 0, если запрос разрешен, иначе время до появления токена в наносекундах
+     */
+    public long tryAcquire(String route, String scope, Object id) {
+        Limit limit = limit(route, scope);
+        if (limit.capacity <= 0) {
+            return 0;
+        }
+        BucketKey key = new BucketKey(limit, id);
+        ConcurrentHashMap<BucketKey, Bucket> shard = shard(key);
+        long now = clock.getAsLong();
+        Bucket bucket = shard.get(key);
+        if (bucket == null) {
+            bucket = shard.computeIfAbsent(key, k -> new Bucket(limit.capacity, now));
+        }
+        long waitNanos = bucket.tryAcquire(now, limit);
+        if (waitNanos > 0) {
+            limit.rejected.increment();
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Удалить бакеты, к которым давно не обращались: за это время они все равно пополнились бы целиком
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long idleBefore = clock.getAsLong() - TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+        for (ConcurrentHashMap<BucketKey, Bucket> shard : shards) {
+            shard.values().removeIf(bucket -> bucket.lastAccess - idleBefore < 0);
+        }
+    }
+
+    /**
+     * Лимиты и число отклоненных запросов по маршрутам
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        ipLimits.forEach((route, limit) -> stats.put(route + "." + SCOPE_IP, limit.toStats()));
+        userLimits.forEach((route, limit) -> stats.put(route + "." + SCOPE_USER, limit.toStats()));
+        return Map.of("limits", stats, "buckets", bucketCount());
+    }
+
+    public int bucketCount() {
+        int buckets = 0;
+        for (ConcurrentHashMap<BucketKey, Bucket> shard : shards) {
+            buckets += shard.size();
+        }
+        return buckets;
+    }
+
+    private ConcurrentHashMap<BucketKey, Bucket> shard(BucketKey key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    private Limit limit(String route, String scope) {
+        Map<String, Limit> limits = SCOPE_USER.equals(scope) ? userLimits : ipLimits;
+        Limit limit = limits.get(route);
+        return limit != null ? limit : limits.computeIfAbsent(route, r -> new Limit(
+                environment.getProperty("app.rate-limit." + r + "." + scope + ".capacity", Integer.class, 0),
+                environment.getProperty("app.rate-limit." + r + "." + scope + ".refill-per-minute", Integer.class, 0)));
+    }
+
+    private static final class Limit {
+        final int capacity;
+        final int refillPerMinute;
+        final double tokensPerNano;
+        final LongAdder rejected = new LongAdder();
+
+        Limit(int capacity, int refillPerMinute) {
+            this.capacity = capacity;
+            this.refillPerMinute = refillPerMinute;
+            this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        }
+
+        Map<String, Object> toStats() {
+            return Map.of(
+                    "capacity", capacity,
+                    "refill_per_minute", refillPerMinute,
+                    "rejected", rejected.sum()
+            );
+        }
+    }
+
+    /**
+     * Limit сравнивается по ссылке: ключ не требует склейки строк на каждом запросе
+     */
+    private record BucketKey(Limit limit, Object id) {
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+        volatile long lastAccess;
+
+        Bucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.refilledAt = now;
+            this.lastAccess = now;
+        }
+
+        synchronized long tryAcquire(long now, Limit limit) {
+            tokens = Math.min(limit.capacity, tokens + (now - refilledAt) * limit.tokensPerNano);
+            refilledAt = now;
+            lastAccess = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            if (limit.tokensPerNano <= 0) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / limit.tokensPerNano));
+        }
+    }
+}
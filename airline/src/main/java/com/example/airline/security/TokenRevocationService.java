@@ -0,0 +1,190 @@
+package com.example.airline.security;
+
+import com.example.airline.entity.user.RevokedToken;
+import com.example.airline.repository.user.RefreshTokenRepository;
+import com.example.airline.repository.user.RevokedTokenRepository;
+import com.example.airline.repository.user.UserRepository;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Отзыв JWT без обращения к БД на каждом запросе.
+ *
+ * Отозванные access-токены (выход из аккаунта) записываются в revoked_tokens и хранятся
+ * в памяти до истечения срока действия: сначала проверяется фильтр Блума (для подавляющего
+ * большинства неотозванных токенов ответ отрицательный без обращения к хэш-таблице), затем
+ * точное множество. Все токены пользователя отзываются увеличением users.token_version:
+ * токены с версией ниже текущей отклоняются.
+ *
+ * Отзывы, сделанные на других экземплярах, подгружаются из БД каждые sync-interval-ms.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final UserRepository userRepository;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> tokenVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Запись в фильтр и его пересоздание выполняются под этой блокировкой, чтобы отзыв,
+     * сделанный во время пересоздания, не потерялся. Проверка токена блокировку не берет.
+     */
+    private final Object filterLock = new Object();
+
+    @Value("${app.security.revocation.bloom-expected-insertions:100000}")
+    private int bloomExpectedInsertions = 100_000;
+
+    @Value("${app.security.revocation.bloom-false-positive-rate:0.001}")
+    private double bloomFalsePositiveRate = 0.001;
+
+    @Value("${app.security.revocation.sync-overlap-ms:2000}")
+    private long syncOverlapMs = 2000;
+
+    private volatile BloomFilter revokedFilter = new BloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+    private volatile long lastSyncAt;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public TokenRevocationService(UserRepository userRepository,
+                                  RevokedTokenRepository revokedTokenRepository,
+                                  RefreshTokenRepository refreshTokenRepository) {
+        this.userRepository = userRepository;
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuildFilter();
+        sync();
+        logger.info("Loaded {} revoked tokens and token versions for {} users", revokedTokens.size(), tokenVersions.size());
+    }
+
+    /**
+     * Подгрузить отзывы, сделанные с момента прошлой синхронизации (с небольшим перекрытием)
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.sync-interval-ms:5000}",
+            initialDelayString = "${app.security.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        long now = clock.getAsLong();
+        LocalDateTime since = toDateTime(Math.max(0, lastSyncAt - syncOverlapMs));
+        for (RevokedToken token : revokedTokenRepository.findRevokedSince(since, toDateTime(now))) {
+            remember(token.getTokenId(), toMillis(token.getExpiresAt()));
+        }
+        for (Object[] row : userRepository.findRevokedTokenVersions()) {
+            tokenVersions.merge((Long) row[0], (Integer) row[1], Math::max);
+        }
+        lastSyncAt = now;
+    }
+
+    /**
+     * Отозван ли токен: по jti или по устаревшей версии токенов пользователя
+     */
+    public boolean isRevoked(Claims claims) {
+        String tokenId = claims.getId();
+        if (tokenId != null && revokedFilter.mightContain(tokenId) && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        Long userId = claims.get(JwtUtil.CLAIM_USER_ID, Long.class);
+        if (userId == null) {
+            return false;
+        }
+        Integer version = claims.get(JwtUtil.CLAIM_TOKEN_VERSION, Integer.class);
+        Integer current = tokenVersions.get(userId);
+        return current != null && (version == null || version < current);
+    }
+
+    /**
+     * Отозвать один токен до окончания его срока действия
+     */
+    public void revoke(Claims claims) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return;
+        }
+        long expiresAt = claims.getExpiration().getTime();
+        remember(claims.getId(), expiresAt);
+        revokedTokenRepository.save(new RevokedToken(claims.getId(), claims.get(JwtUtil.CLAIM_USER_ID, Long.class),
+                toDateTime(expiresAt), toDateTime(clock.getAsLong())));
+    }
+
+    /**
+     * Отозвать все выданные пользователю access- и refresh-токены
+     *
+     * @return новая версия токенов пользователя
+     */
+    @Transactional
+    public int revokeAllForUser(Long userId) {
+        if (userRepository.incrementTokenVersion(userId) == 0) {
+            throw new IllegalArgumentException("Пользователь не найден");
+        }
+        int version = userRepository.findTokenVersionById(userId).orElseThrow();
+        refreshTokenRepository.revokeAllByUserId(userId, toDateTime(clock.getAsLong()));
+        tokenVersions.merge(userId, version, Math::max);
+        logger.info("Revoked all tokens of user {}, token version is now {}", userId, version);
+        return version;
+    }
+
+    /**
+     * Удалить истекшие отзывы из памяти и БД; фильтр Блума пересоздается без них
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = clock.getAsLong();
+        int before = revokedTokens.size();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        if (revokedTokens.size() < before) {
+            rebuildFilter();
+        }
+        revokedTokenRepository.deleteExpired(toDateTime(now));
+    }
+
+    public int revokedCount() {
+        return revokedTokens.size();
+    }
+
+    private void remember(String tokenId, long expiresAt) {
+        if (expiresAt <= clock.getAsLong()) {
+            return;
+        }
+        synchronized (filterLock) {
+            revokedTokens.put(tokenId, expiresAt);
+            revokedFilter.add(tokenId);
+        }
+    }
+
+    private void rebuildFilter() {
+        synchronized (filterLock) {
+            BloomFilter filter = new BloomFilter(Math.max(bloomExpectedInsertions, 2 * revokedTokens.size()),
+                    bloomFalsePositiveRate);
+            revokedTokens.keySet().forEach(filter::add);
+            revokedFilter = filter;
+        }
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
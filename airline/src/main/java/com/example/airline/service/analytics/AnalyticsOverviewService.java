@@ -0,0 +1,102 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.service.ml.MlServiceClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Сводная аналитика для админ-панели.
+ *
+ * Дашборд, статистика, тренды, аномалии и прогноз запрашиваются у ML-сервиса одновременно,
+ * каждый со своим бюджетом времени. Не уложившаяся в бюджет или упавшая часть возвращается
+ * как null и перечисляется в degraded_sections. Потоки на время ожидания не блокируются.
+ */
+@Service
+public class AnalyticsOverviewService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsOverviewService.class);
+
+    static final String SECTION_DASHBOARD = "dashboard";
+    static final String SECTION_STATISTICS = "statistics";
+    static final String SECTION_TRENDS = "trends";
+    static final String SECTION_ANOMALIES = "anomalies";
+    static final String SECTION_FORECAST = "forecast";
+
+    private final MlServiceClient mlServiceClient;
+
+    @Value("${app.analytics.overview.dashboard-budget-ms:3000}")
+    private long dashboardBudgetMs = 3000;
+
+    @Value("${app.analytics.overview.statistics-budget-ms:3000}")
+    private long statisticsBudgetMs = 3000;
+
+    @Value("${app.analytics.overview.trends-budget-ms:4000}")
+    private long trendsBudgetMs = 4000;
+
+    @Value("${app.analytics.overview.anomalies-budget-ms:4000}")
+    private long anomaliesBudgetMs = 4000;
+
+    @Value("${app.analytics.overview.forecast-budget-ms:5000}")
+    private long forecastBudgetMs = 5000;
+
+    public AnalyticsOverviewService(MlServiceClient mlServiceClient) {
+        this.mlServiceClient = mlServiceClient;
+    }
+
+    /**
+     * Собрать сводку
+     *
+     * @param days        период статистики в днях
+     * @param months      период трендов в месяцах
+     * @param destination направление для прогноза или null для всех направлений
+     */
+    public Mono<JsonNode> getOverview(int days, int months, String destination) {
+        return Mono.zip(
+                part(SECTION_DASHBOARD, mlServiceClient.getDashboardData(), dashboardBudgetMs),
+                part(SECTION_STATISTICS, mlServiceClient.getStatistics(days), statisticsBudgetMs),
+                part(SECTION_TRENDS, mlServiceClient.getSeasonalTrends(months), trendsBudgetMs),
+                part(SECTION_ANOMALIES, mlServiceClient.getAnomalousTours(), anomaliesBudgetMs),
+                part(SECTION_FORECAST, mlServiceClient.getDemandForecast(destination), forecastBudgetMs)
+        ).map(parts -> {
+            ObjectNode overview = JsonNodeFactory.instance.objectNode();
+            ArrayNode degraded = JsonNodeFactory.instance.arrayNode();
+            put(overview, degraded, SECTION_DASHBOARD, parts.getT1());
+            put(overview, degraded, SECTION_STATISTICS, parts.getT2());
+            put(overview, degraded, SECTION_TRENDS, parts.getT3());
+            put(overview, degraded, SECTION_ANOMALIES, parts.getT4());
+            put(overview, degraded, SECTION_FORECAST, parts.getT5());
+            overview.set("degraded_sections", degraded);
+            return overview;
+        });
+    }
+
+    private Mono<Optional<JsonNode>> part(String section, Mono<JsonNode> call, long budgetMs) {
+        return call
+                .timeout(Duration.ofMillis(budgetMs))
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    logger.warn("Analytics overview section '{}' degraded: {}", section, e.toString());
+                    return Mono.just(Optional.empty());
+                })
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private static void put(ObjectNode overview, ArrayNode degraded, String section, Optional<JsonNode> value) {
+        if (value.isPresent()) {
+            overview.set(section, value.get());
+        } else {
+            overview.putNull(section);
+            degraded.add(section);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.entity.tour.RequestStatus;
+import com.example.airline.repository.tour.ClientRequestRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Локальный прогноз спроса по истории заявок - замена ML-сервиса, когда он недоступен.
+ *
+ * Помесячные ряды заявок строятся по направлениям одним запросом к client_requests,
+ * модели Хольта-Винтерса подбираются параллельно (fork/join) и кэшируются на refit-interval-ms.
+ * Ответы повторяют формат /analytics/forecast и /analytics/forecast/seasonal ML-сервиса.
+ */
+@Service
+public class DemandForecastService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DemandForecastService.class);
+
+    private static final JsonNodeFactory JSON = JsonNodeFactory.instance;
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final String[] MONTH_NAMES = {
+            "Январь", "Февраль", "Март", "Апрель", "Май", "Июнь",
+            "Июль", "Август", "Сентябрь", "Октябрь", "Ноябрь", "Декабрь"
+    };
+    // Как в ML-сервисе: меньше 4 заявок или 3 месяцев с заявками - недостаточно данных
+    private static final int MIN_REQUESTS = 4;
+    private static final int MIN_ACTIVE_MONTHS = 3;
+    private static final int FIT_THRESHOLD = 4;
+
+    private final ClientRequestRepository requestRepository;
+    private final ForkJoinPool fitPool;
+
+    private volatile Snapshot snapshot;
+
+    @Value("${app.analytics.forecast.history-months:24}")
+    private int historyMonths = 24;
+
+    @Value("${app.analytics.forecast.refit-interval-ms:3600000}")
+    private long refitIntervalMs = 3_600_000;
+
+    LongSupplier clock = System::currentTimeMillis;
+    Supplier<YearMonth> currentMonth = YearMonth::now;
+
+    public DemandForecastService(ClientRequestRepository requestRepository,
+                                 @Value("${app.analytics.forecast.parallelism:0}") int parallelism) {
+        this.requestRepository = requestRepository;
+        this.fitPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Прогноз спроса и выручки по месяцам для направления (или самого доходного направления)
+     */
+    public JsonNode getForecast(String destination, int horizonMonths) {
+        Snapshot current = snapshot();
+        List<DestinationForecast> forecasts = new ArrayList<>(current.destinations.values());
+        forecasts.sort(Comparator.comparingDouble((DestinationForecast f) -> f.revenue(1)).reversed());
+
+        DestinationForecast selected = destination != null
+                ? current.destinations.get(destination)
+                : (forecasts.isEmpty() ? null : forecasts.get(0));
+
+        ObjectNode response = JSON.objectNode();
+        if (selected == null) {
+            response.put("destination", destination);
+            response.putArray("forecast");
+            response.putArray("recommendations")
+                    .add("Недостаточно данных для прогноза. Нужно минимум 4 заявки за последние 6 месяцев.");
+            return response;
+        }
+
+        response.put("destination", selected.destination);
+        ArrayNode forecast = response.putArray("forecast");
+        double totalRevenue = 0;
+        for (int h = 1; h <= Math.min(horizonMonths, 12); h++) {
+            double revenue = selected.revenue(h);
+            forecast.addObject()
+                    .put("date", current.lastMonth.plusMonths(h).format(MONTH_FORMAT))
+                    .put("predictedDemand", selected.demand(h))
+                    .put("predictedRevenue", round(revenue))
+                    .put("confidence", round(Math.max(0.3, selected.model.confidence() - (h - 1) * 0.05)));
+            totalRevenue += revenue;
+        }
+        response.put("totalPredictedRevenue", round(totalRevenue));
+
+        ArrayNode breakdown = response.putArray("destinationBreakdown");
+        for (DestinationForecast f : forecasts.subList(0, Math.min(5, forecasts.size()))) {
+            breakdown.addObject()
+                    .put("destination", f.destination)
+                    .put("predictedRevenue", round(f.revenue(1)))
+                    .put("predictedDemand", f.demand(1))
+                    .put("trend", f.trend());
+        }
+        response.putArray("recommendations").add(selected.recommendation());
+        response.put("hasMore", forecasts.size() > 5);
+        return response;
+    }
+
+    /**
+     * Прогноз общего числа заявок и средней цены на forecastMonths месяцев вперед
+     */
+    public JsonNode getSeasonalForecast(int forecastMonths) {
+        Snapshot current = snapshot();
+        ArrayNode response = JSON.arrayNode();
+        if (current.total == null) {
+            return response;
+        }
+        for (int h = 1; h <= forecastMonths; h++) {
+            int month = current.lastMonth.plusMonths(h).getMonthValue();
+            int horizon = h;
+            ArrayNode topDestinations = JSON.arrayNode();
+            current.destinations.values().stream()
+                    .sorted(Comparator.comparingInt((DestinationForecast f) -> f.demand(horizon)).reversed())
+                    .limit(3)
+                    .forEach(f -> topDestinations.add(f.destination));
+
+            ObjectNode trend = response.addObject();
+            trend.put("month", month);
+            trend.put("month_name", MONTH_NAMES[month - 1] + " (прогноз)");
+            trend.put("request_count", Math.max(1, (int) Math.round(current.total.forecast(h))));
+            trend.put("avg_price", round(current.monthPrices[month - 1]));
+            trend.set("top_destinations", topDestinations);
+            trend.put("is_forecast", true);
+        }
+        return response;
+    }
+
+    /**
+     * Сбросить подобранные модели (следующий запрос построит их заново)
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fitPool.shutdownNow();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null && clock.getAsLong() - current.fittedAt < refitIntervalMs) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || clock.getAsLong() - current.fittedAt >= refitIntervalMs) {
+                current = fit();
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private Snapshot fit() {
+        long started = System.nanoTime();
+        YearMonth lastMonth = currentMonth.get().minusMonths(1);
+        YearMonth firstMonth = lastMonth.minusMonths(historyMonths - 1L);
+        List<Object[]> rows = requestRepository.findMonthlyDemandSince(
+                firstMonth.atDay(1).atStartOfDay(), RequestStatus.COMPLETED);
+
+        // Ряды по направлениям за полные месяцы, месяцы без заявок - нули
+        Map<String, Series> seriesByDestination = new HashMap<>();
+        double[] total = new double[historyMonths];
+        double[] monthPriceSum = new double[12];
+        long[] monthPriceCount = new long[12];
+        for (Object[] row : rows) {
+            YearMonth month = YearMonth.of(((Number) row[1]).intValue(), ((Number) row[2]).intValue());
+            int index = (int) (month.getYear() * 12L + month.getMonthValue() - firstMonth.getYear() * 12L - firstMonth.getMonthValue());
+            if (index < 0 || index >= historyMonths) {
+                continue;
+            }
+            long count = ((Number) row[3]).longValue();
+            double avgPrice = row[4] != null ? ((Number) row[4]).doubleValue() : 0;
+            long completed = row[5] != null ? ((Number) row[5]).longValue() : 0;
+
+            Series series = seriesByDestination.computeIfAbsent((String) row[0], d -> new Series(d, historyMonths));
+            series.counts[index] += count;
+            series.requests += count;
+            series.completed += completed;
+            series.priceSum += avgPrice * count;
+            total[index] += count;
+            monthPriceSum[month.getMonthValue() - 1] += avgPrice * count;
+            monthPriceCount[month.getMonthValue() - 1] += count;
+        }
+
+        Series[] eligible = seriesByDestination.values().stream()
+                .filter(Series::hasEnoughData)
+                .toArray(Series[]::new);
+        HoltWintersModel[] models = new HoltWintersModel[eligible.length];
+        fitPool.invoke(new FitTask(eligible, models, 0, eligible.length));
+
+        Map<String, DestinationForecast> destinations = new HashMap<>();
+        for (int i = 0; i < eligible.length; i++) {
+            destinations.put(eligible[i].destination, new DestinationForecast(eligible[i], models[i]));
+        }
+
+        long totalRequests = 0;
+        double totalPrice = 0;
+        for (int m = 0; m < 12; m++) {
+            totalRequests += monthPriceCount[m];
+            totalPrice += monthPriceSum[m];
+        }
+        double overallPrice = totalRequests > 0 ? totalPrice / totalRequests : 0;
+        double[] monthPrices = new double[12];
+        for (int m = 0; m < 12; m++) {
+            monthPrices[m] = monthPriceCount[m] > 0 ? monthPriceSum[m] / monthPriceCount[m] : overallPrice;
+        }
+        double[] totalObserved = observed(total);
+        HoltWintersModel totalModel = totalObserved.length >= 2 ? HoltWintersModel.fit(totalObserved) : null;
+
+        logger.info("Fitted demand forecast models for {} destinations in {} ms",
+                destinations.size(), (System.nanoTime() - started) / 1_000_000);
+        return new Snapshot(destinations, totalModel, monthPrices, lastMonth, clock.getAsLong());
+    }
+
+    // Месяцы до первой заявки (направление еще не продавалось) не считаются нулевым спросом
+    private static double[] observed(double[] counts) {
+        int first = 0;
+        while (first < counts.length && counts[first] == 0) {
+            first++;
+        }
+        return Arrays.copyOfRange(counts, first, counts.length);
+    }
+
+    private static double round(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * Подбор моделей для диапазона рядов: большие диапазоны делятся пополам
+     */
+    private static final class FitTask extends RecursiveAction {
+        private final Series[] series;
+        private final HoltWintersModel[] models;
+        private final int from;
+        private final int to;
+
+        FitTask(Series[] series, HoltWintersModel[] models, int from, int to) {
+            this.series = series;
+            this.models = models;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    models[i] = HoltWintersModel.fit(observed(series[i].counts));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FitTask(series, models, from, middle), new FitTask(series, models, middle, to));
+        }
+    }
+
+    private static final class Series {
+        final String destination;
+        final double[] counts;
+        long requests;
+        long completed;
+        double priceSum;
+
+        Series(String destination, int months) {
+            this.destination = destination;
+            this.counts = new double[months];
+        }
+
+        boolean hasEnoughData() {
+            int activeMonths = 0;
+            for (double count : counts) {
+                if (count > 0) {
+                    activeMonths++;
+                }
+            }
+            return requests >= MIN_REQUESTS && activeMonths >= MIN_ACTIVE_MONTHS;
+        }
+    }
+
+    private static final class DestinationForecast {
+        final String destination;
+        final HoltWintersModel model;
+        final double avgPrice;
+        final double conversion;
+
+        DestinationForecast(Series series, HoltWintersModel model) {
+            this.destination = series.destination;
+            this.model = model;
+            this.avgPrice = series.priceSum / series.requests;
+            this.conversion = (double) series.completed / series.requests;
+        }
+
+        int demand(int horizon) {
+            return Math.max(0, (int) Math.round(model.forecast(horizon)));
+        }
+
+        double revenue(int horizon) {
+            return demand(horizon) * conversion * avgPrice;
+        }
+
+        String trend() {
+            double trend = model.trend();
+            return trend > 0.5 ? "rising" : trend < -0.5 ? "falling" : "stable";
+        }
+
+        String recommendation() {
+            return switch (trend()) {
+                case "rising" -> "Спрос на направление " + destination + " растет. Рекомендуется увеличить количество доступных мест.";
+                case "falling" -> "Спрос на направление " + destination + " снижается. Рассмотрите специальные предложения или корректировку цены.";
+                default -> "Спрос на направление " + destination + " стабилен. Поддерживайте текущее предложение.";
+            };
+        }
+    }
+
+    private record Snapshot(Map<String, DestinationForecast> destinations,
+                            HoltWintersModel total,
+                            double[] monthPrices,
+                            YearMonth lastMonth,
+                            long fittedAt) {
+    }
+}
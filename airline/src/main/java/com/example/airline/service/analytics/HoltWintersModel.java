@@ -0,0 +1,132 @@
+package com.example.airline.service.analytics;
+
+/**
+ * Аддитивная модель Хольта-Винтерса для помесячного ряда.
+ *
+ * При истории от двух сезонов (24 месяца) учитываются уровень, тренд и сезонность,
+ * при более короткой - только уровень и тренд (модель Хольта). Коэффициенты сглаживания
+ * подбираются перебором по сетке с минимизацией ошибки прогноза на один шаг.
+ */
+final class HoltWintersModel {
+
+    static final int SEASON = 12;
+
+    private static final double[] ALPHAS = {0.1, 0.2, 0.3, 0.5, 0.7, 0.9};
+    private static final double[] BETAS = {0.01, 0.05, 0.1, 0.2, 0.3};
+    private static final double[] GAMMAS = {0.05, 0.1, 0.3, 0.5};
+    private static final double[] NO_SEASONALITY = {0.0};
+
+    private final double level;
+    private final double trend;
+    private final double[] seasonal;
+    private final int length;
+    private final double rmse;
+    private final double mean;
+
+    private HoltWintersModel(double level, double trend, double[] seasonal, int length, double rmse, double mean) {
+        this.level = level;
+        this.trend = trend;
+        this.seasonal = seasonal;
+        this.length = length;
+        this.rmse = rmse;
+        this.mean = mean;
+    }
+
+    /**
+     * Подобрать модель для ряда (не короче двух значений)
+     */
+    static HoltWintersModel fit(double[] series) {
+        if (series.length < 2) {
+            throw new IllegalArgumentException("At least two observations are required");
+        }
+        boolean seasonalModel = series.length >= 2 * SEASON;
+        double[] gammas = seasonalModel ? GAMMAS : NO_SEASONALITY;
+
+        HoltWintersModel best = null;
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double gamma : gammas) {
+                    HoltWintersModel candidate = run(series, alpha, beta, gamma, seasonalModel);
+                    if (best == null || candidate.rmse < best.rmse) {
+                        best = candidate;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static HoltWintersModel run(double[] y, double alpha, double beta, double gamma, boolean seasonalModel) {
+        int n = y.length;
+        double[] seasonal = new double[SEASON];
+        double level;
+        double trend;
+        int start;
+        if (seasonalModel) {
+            double first = 0;
+            double second = 0;
+            for (int i = 0; i < SEASON; i++) {
+                first += y[i];
+                second += y[SEASON + i];
+            }
+            first /= SEASON;
+            second /= SEASON;
+            trend = (second - first) / SEASON;
+            // Среднее первого сезона относится к его середине: сезонность считается от линии тренда,
+            // уровень переносится на последний месяц сезона
+            for (int i = 0; i < SEASON; i++) {
+                seasonal[i] = y[i] - (first + (i - (SEASON - 1) / 2.0) * trend);
+            }
+            level = first + (SEASON - 1) / 2.0 * trend;
+            start = SEASON;
+        } else {
+            level = y[0];
+            trend = y[1] - y[0];
+            start = 1;
+        }
+
+        double squaredError = 0;
+        for (int t = start; t < n; t++) {
+            int s = t % SEASON;
+            double error = y[t] - (level + trend + seasonal[s]);
+            squaredError += error * error;
+
+            double previousLevel = level;
+            level = alpha * (y[t] - seasonal[s]) + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+            if (seasonalModel) {
+                seasonal[s] = gamma * (y[t] - level) + (1 - gamma) * seasonal[s];
+            }
+        }
+
+        double sum = 0;
+        for (double value : y) {
+            sum += value;
+        }
+        return new HoltWintersModel(level, trend, seasonal, n, Math.sqrt(squaredError / (n - start)), sum / n);
+    }
+
+    /**
+     * Прогноз на horizon месяцев после последнего наблюдения (horizon >= 1)
+     */
+    double forecast(int horizon) {
+        return level + horizon * trend + seasonal[(length + horizon - 1) % SEASON];
+    }
+
+    /**
+     * Изменение уровня за месяц
+     */
+    double trend() {
+        return trend;
+    }
+
+    /**
+     * Уверенность 0.3-0.95: чем меньше ошибка на истории относительно среднего, тем выше
+     */
+    double confidence() {
+        if (mean <= 0) {
+            return 0.3;
+        }
+        return Math.max(0.3, Math.min(0.95, 1 - rmse / mean));
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.dto.tour.TourDto;
+import com.example.airline.entity.tour.Tour;
+import com.example.airline.entity.tour.TourEngagement;
+import com.example.airline.repository.client.FavoriteTourRepository;
+import com.example.airline.repository.tour.ClientRequestRepository;
+import com.example.airline.repository.tour.TourEngagementRepository;
+import com.example.airline.repository.tour.TourRepository;
+import com.example.airline.service.tour.TourChangedEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рейтинг популярности туров внутри JVM.
+ *
+ * Оценка тура - сумма весов событий (просмотр, заявка, избранное) с экспоненциальным затуханием
+ * по времени. Используется forward decay: вклад события считается как w * exp(λ (t - landmark)),
+ * поэтому старые оценки не нужно пересчитывать - они только растут, а порядок совпадает
+ * с порядком затухших оценок. Благодаря монотонности топ-K поддерживается индексированной
+ * min-кучей за O(log K) на событие.
+ */
+@Service
+public class PopularityRankingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularityRankingService.class);
+
+    // При таком показателе экспоненты оценки пересчитываются к новой опорной точке (далеко до переполнения double)
+    private static final double RENORMALIZE_EXPONENT = 50.0;
+
+    private final TourRepository tourRepository;
+    private final ClientRequestRepository requestRepository;
+    private final FavoriteTourRepository favoriteTourRepository;
+    private final TourEngagementRepository engagementRepository;
+
+    private final double lambdaPerMs;
+    private final int capacity;
+
+    @Value("${app.ranking.weight.view:1.0}")
+    private double viewWeight = 1.0;
+
+    @Value("${app.ranking.weight.request:5.0}")
+    private double requestWeight = 5.0;
+
+    @Value("${app.ranking.weight.favorite:3.0}")
+    private double favoriteWeight = 3.0;
+
+    @Value("${app.ranking.seed-days:60}")
+    private int seedDays = 60;
+
+    // Состояние рейтинга; все изменения под монитором this
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Entry[] heap;
+    private int heapSize;
+    private long landmarkMs;
+
+    // Краткие данные активных туров для отображения рейтинга
+    private final Map<Long, TourDto> tours = new ConcurrentHashMap<>();
+
+    // Отсортированный снимок топа, пересобирается лениво после изменений
+    private volatile List<Entry> topSnapshot = List.of();
+    private volatile boolean dirty;
+
+    public PopularityRankingService(TourRepository tourRepository,
+                                    ClientRequestRepository requestRepository,
+                                    FavoriteTourRepository favoriteTourRepository,
+                                    TourEngagementRepository engagementRepository,
+                                    @Value("${app.ranking.half-life-hours:72}") double halfLifeHours,
+                                    @Value("${app.ranking.top-k:100}") int capacity) {
+        this.tourRepository = tourRepository;
+        this.requestRepository = requestRepository;
+        this.favoriteTourRepository = favoriteTourRepository;
+        this.engagementRepository = engagementRepository;
+        this.lambdaPerMs = Math.log(2) / (halfLifeHours * 3_600_000d);
+        this.capacity = capacity;
+        this.heap = new Entry[capacity];
+        this.landmarkMs = System.currentTimeMillis();
+    }
+
+    public void onView(Long tourId) {
+        record(tourId, viewWeight, System.currentTimeMillis());
+    }
+
+    public void onRequest(Long tourId) {
+        record(tourId, requestWeight, System.currentTimeMillis());
+    }
+
+    public void onFavorite(Long tourId) {
+        record(tourId, favoriteWeight, System.currentTimeMillis());
+    }
+
+    /**
+     * Популярные туры в формате ML-сервиса: tour_id, tour_name, destination, price, score (0-1), reason
+     */
+    public JsonNode getPopularTours(int limit) {
+        List<Entry> top = currentTop();
+        ArrayNode result = JsonNodeFactory.instance.arrayNode();
+        double maxScore = 0;
+        for (Entry entry : top) {
+            TourDto tour = tours.get(entry.tourId);
+            if (tour == null) {
+                continue;
+            }
+            if (maxScore == 0) {
+                maxScore = entry.score;
+            }
+            ObjectNode node = result.addObject();
+            node.put("tour_id", entry.tourId);
+            node.put("tour_name", tour.getName());
+            node.put("destination", tour.getDestinationCity());
+            node.put("price", tour.getPrice() != null ? tour.getPrice().doubleValue() : 0);
+            node.put("score", maxScore > 0 ? Math.round(entry.score / maxScore * 1000) / 1000.0 : 0);
+            node.put("reason", "Популярен среди клиентов за последнее время");
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Начальное заполнение рейтинга из истории заявок, избранного и накопленных просмотров
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        try {
+            for (Tour tour : tourRepository.findByActiveTrue()) {
+                tours.put(tour.getId(), snapshot(tour));
+            }
+            LocalDateTime since = LocalDateTime.now().minusDays(seedDays);
+            int events = 0;
+            for (Object[] row : requestRepository.findTourActivitySince(since)) {
+                record((Long) row[0], requestWeight, toMillis((LocalDateTime) row[1]));
+                events++;
+            }
+            for (Object[] row : favoriteTourRepository.findTourActivitySince(since)) {
+                record((Long) row[0], favoriteWeight, toMillis((LocalDateTime) row[1]));
+                events++;
+            }
+            // Для просмотров есть только агрегат - относим его ко времени последнего сброса
+            for (TourEngagement engagement : engagementRepository.findAll()) {
+                if (engagement.getViews() > 0 && engagement.getUpdatedAt() != null) {
+                    record(engagement.getTourId(), viewWeight * engagement.getViews(),
+                            toMillis(engagement.getUpdatedAt()));
+                }
+            }
+            logger.info("Popularity ranking seeded: {} tours, {} events", tours.size(), events);
+        } catch (Exception e) {
+            logger.warn("Failed to seed popularity ranking: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTourChanged(TourChangedEvent event) {
+        TourDto tour = event.getTour();
+        if (tour.isActive()) {
+            tours.put(tour.getId(), tour);
+            return;
+        }
+        tours.remove(tour.getId());
+        synchronized (this) {
+            Entry entry = entries.remove(tour.getId());
+            if (entry != null && entry.heapIndex >= 0) {
+                rebuildHeap();
+            }
+        }
+    }
+
+    synchronized void record(Long tourId, double weight, long timeMs) {
+        if (tourId == null) {
+            return;
+        }
+        double exponent = lambdaPerMs * (timeMs - landmarkMs);
+        if (exponent > RENORMALIZE_EXPONENT) {
+            renormalize(timeMs);
+            exponent = 0;
+        }
+        Entry entry = entries.computeIfAbsent(tourId, Entry::new);
+        entry.score += weight * Math.exp(exponent);
+
+        if (entry.heapIndex >= 0) {
+            siftDown(entry.heapIndex);
+        } else if (heapSize < capacity) {
+            entry.heapIndex = heapSize;
+            heap[heapSize++] = entry;
+            siftUp(entry.heapIndex);
+        } else if (entry.score > heap[0].score) {
+            heap[0].heapIndex = -1;
+            heap[0] = entry;
+            entry.heapIndex = 0;
+            siftDown(0);
+        } else {
+            return;
+        }
+        dirty = true;
+    }
+
+    private List<Entry> currentTop() {
+        if (!dirty) {
+            return topSnapshot;
+        }
+        synchronized (this) {
+            if (dirty) {
+                Entry[] copy = new Entry[heapSize];
+                for (int i = 0; i < heapSize; i++) {
+                    copy[i] = heap[i].copy();
+                }
+                Arrays.sort(copy, Comparator.comparingDouble((Entry e) -> e.score).reversed());
+                topSnapshot = List.of(copy);
+                dirty = false;
+            }
+            return topSnapshot;
+        }
+    }
+
+    // Переносит опорную точку на now: все оценки умножаются на один множитель, порядок не меняется
+    private void renormalize(long nowMs) {
+        double factor = Math.exp(-lambdaPerMs * (nowMs - landmarkMs));
+        for (Entry entry : entries.values()) {
+            entry.score *= factor;
+        }
+        landmarkMs = nowMs;
+        dirty = true;
+    }
+
+    private void rebuildHeap() {
+        for (int i = 0; i < heapSize; i++) {
+            heap[i].heapIndex = -1;
+            heap[i] = null;
+        }
+        heapSize = 0;
+        List<Entry> all = new ArrayList<>(entries.values());
+        all.sort(Comparator.comparingDouble((Entry e) -> e.score).reversed());
+        for (int i = 0; i < Math.min(capacity, all.size()); i++) {
+            Entry entry = all.get(i);
+            entry.heapIndex = heapSize;
+            heap[heapSize++] = entry;
+            siftUp(entry.heapIndex);
+        }
+        dirty = true;
+    }
+
+    private void siftUp(int index) {
+        Entry entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].score <= entry.score) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(entry, index);
+    }
+
+    private void siftDown(int index) {
+        Entry entry = heap[index];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < heapSize && heap[right].score < heap[child].score) {
+                child = right;
+            }
+            if (entry.score <= heap[child].score) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(entry, index);
+    }
+
+    private void place(Entry entry, int index) {
+        heap[index] = entry;
+        entry.heapIndex = index;
+    }
+
+    // Без TourMapper: ленивые рейсы вне транзакции не нужны и не загружены
+    private static TourDto snapshot(Tour tour) {
+        TourDto dto = new TourDto();
+        dto.setId(tour.getId());
+        dto.setName(tour.getName());
+        dto.setDestinationCity(tour.getDestinationCity());
+        dto.setPrice(tour.getPrice());
+        dto.setActive(tour.isActive());
+        return dto;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class Entry {
+        final long tourId;
+        double score;
+        int heapIndex = -1;
+
+        Entry(long tourId) {
+            this.tourId = tourId;
+        }
+
+        Entry copy() {
+            Entry copy = new Entry(tourId);
+            copy.score = score;
+            return copy;
+        }
+    }
+}
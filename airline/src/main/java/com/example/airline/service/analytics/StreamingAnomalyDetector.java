@@ -0,0 +1,433 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.dto.tour.TourDto;
+import com.example.airline.entity.tour.Tour;
+import com.example.airline.repository.tour.ClientRequestRepository;
+import com.example.airline.repository.tour.TourRepository;
+import com.example.airline.service.tour.TourChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Потоковое обнаружение аномалий в ценах туров и частоте заявок.
+ *
+ * Цены: по каждому направлению поддерживаются среднее и дисперсия цен активных туров
+ * (алгоритм Уэлфорда с удалением значений). Изменение цены сразу проверяется на резкий скачок
+ * относительно прежней цены и на выброс относительно остальных туров направления.
+ *
+ * Заявки: считаются по интервалам bucket-ms отдельно для тура и для направления,
+ * по завершенным интервалам ведутся EWMA среднего и дисперсии. Всплеск отмечается сразу,
+ * как только счетчик текущего интервала превысил порог, провал - при закрытии интервала.
+ *
+ * Состояние хранится в примитивных массивах по слотам тура и направления. Текущий набор
+ * аномалий доступен без пересчета; аномалия снимается, когда показатель вернулся в норму,
+ * или через ttl-ms.
+ */
+@Service
+public class StreamingAnomalyDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingAnomalyDetector.class);
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final int INITIAL_CAPACITY = 64;
+
+    static final String PRICE_JUMP = "price_jump";
+    static final String PRICE_OUTLIER = "price_outlier";
+    static final String REQUEST_SPIKE = "request_spike";
+    static final String REQUEST_DROP = "request_drop";
+
+    private final TourRepository tourRepository;
+    private final ClientRequestRepository requestRepository;
+
+    // Слоты туров
+    private final Map<Long, Integer> tourSlots = new HashMap<>();
+    private long[] tourIds = new long[INITIAL_CAPACITY];
+    private String[] tourNames = new String[INITIAL_CAPACITY];
+    private int[] tourDestination = new int[INITIAL_CAPACITY];
+    private double[] tourPrice = new double[INITIAL_CAPACITY];
+    private boolean[] tourActive = new boolean[INITIAL_CAPACITY];
+    private final Rate tourRate = new Rate(INITIAL_CAPACITY);
+
+    // Слоты направлений
+    private final Map<String, Integer> destinationSlots = new HashMap<>();
+    private String[] destinations = new String[INITIAL_CAPACITY];
+    private long[] priceCount = new long[INITIAL_CAPACITY];
+    private double[] priceMean = new double[INITIAL_CAPACITY];
+    private double[] priceM2 = new double[INITIAL_CAPACITY];
+    private final Rate destinationRate = new Rate(INITIAL_CAPACITY);
+
+    private final Map<String, Anomaly> anomalies = new LinkedHashMap<>();
+
+    @Value("${app.anomalies.bucket-ms:86400000}")
+    private long bucketMs = 86_400_000;
+
+    @Value("${app.anomalies.ewma-alpha:0.1}")
+    private double alpha = 0.1;
+
+    @Value("${app.anomalies.z-threshold:3.0}")
+    private double zThreshold = 3.0;
+
+    @Value("${app.anomalies.min-buckets:7}")
+    private int minBuckets = 7;
+
+    @Value("${app.anomalies.min-spike-count:5}")
+    private int minSpikeCount = 5;
+
+    @Value("${app.anomalies.min-drop-mean:3.0}")
+    private double minDropMean = 3.0;
+
+    @Value("${app.anomalies.price-jump-ratio:0.3}")
+    private double priceJumpRatio = 0.3;
+
+    @Value("${app.anomalies.min-destination-tours:4}")
+    private int minDestinationTours = 4;
+
+    @Value("${app.anomalies.ttl-ms:604800000}")
+    private long ttlMs = 604_800_000;
+
+    @Value("${app.anomalies.seed-days:60}")
+    private int seedDays = 60;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public StreamingAnomalyDetector(TourRepository tourRepository, ClientRequestRepository requestRepository) {
+        this.tourRepository = tourRepository;
+        this.requestRepository = requestRepository;
+    }
+
+    /**
+     * Начальное состояние: цены активных туров и история заявок за seed-days
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        try {
+            for (Tour tour : tourRepository.findByActiveTrue()) {
+                onTour(tour.getId(), tour.getName(), tour.getDestinationCity(),
+                        tour.getPrice() != null ? tour.getPrice().doubleValue() : 0, true, false);
+            }
+            List<Object[]> rows = new ArrayList<>(requestRepository.findTourActivitySince(
+                    LocalDateTime.now().minusDays(seedDays)));
+            rows.sort(Comparator.comparing(row -> (LocalDateTime) row[1]));
+            for (Object[] row : rows) {
+                onRequest((Long) row[0], ((LocalDateTime) row[1]).atZone(ZONE).toInstant().toEpochMilli());
+            }
+            synchronized (this) {
+                // Аномалии, найденные на истории, к текущему моменту уже неактуальны
+                anomalies.clear();
+            }
+            logger.info("Anomaly detector seeded: {} tours, {} requests", tourSlots.size(), rows.size());
+        } catch (Exception e) {
+            logger.warn("Failed to seed anomaly detector: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTourChanged(TourChangedEvent event) {
+        TourDto tour = event.getTour();
+        onTour(tour.getId(), tour.getName(), tour.getDestinationCity(),
+                tour.getPrice() != null ? tour.getPrice().doubleValue() : 0, tour.isActive(), true);
+    }
+
+    public void onRequest(Long tourId) {
+        if (tourId != null) {
+            onRequest(tourId, clock.getAsLong());
+        }
+    }
+
+    /**
+     * Текущие аномалии, сначала самые свежие
+     */
+    public synchronized List<Map<String, Object>> getAnomalies() {
+        long now = clock.getAsLong();
+        anomalies.values().removeIf(anomaly -> now - anomaly.detectedAt > ttlMs);
+        List<Anomaly> current = new ArrayList<>(anomalies.values());
+        current.sort(Comparator.comparingLong((Anomaly a) -> a.detectedAt).reversed());
+        List<Map<String, Object>> result = new ArrayList<>(current.size());
+        for (Anomaly anomaly : current) {
+            result.add(anomaly.toMap());
+        }
+        return result;
+    }
+
+    /**
+     * Закрыть истекшие интервалы у всех туров и направлений (обнаружение провалов без новых заявок)
+     */
+    @Scheduled(fixedDelayString = "${app.anomalies.check-interval-ms:60000}")
+    public synchronized void rollBuckets() {
+        long bucket = clock.getAsLong() / bucketMs;
+        for (int slot = 0; slot < tourSlots.size(); slot++) {
+            if (tourActive[slot]) {
+                rollTour(slot, bucket);
+            }
+        }
+        for (int slot = 0; slot < destinationSlots.size(); slot++) {
+            rollDestination(slot, bucket);
+        }
+    }
+
+    synchronized void onTour(Long tourId, String name, String destination, double price,
+                             boolean active, boolean detect) {
+        if (tourId == null) {
+            return;
+        }
+        Integer existing = tourSlots.get(tourId);
+        if (existing != null && tourActive[existing]) {
+            removePrice(tourDestination[existing], tourPrice[existing]);
+        }
+        int slot = existing != null ? existing : tourSlot(tourId);
+        double previousPrice = existing != null ? tourPrice[slot] : 0;
+        int destinationSlot = destinationSlot(destination != null ? destination : "");
+        tourNames[slot] = name;
+        tourDestination[slot] = destinationSlot;
+        tourPrice[slot] = price;
+        tourActive[slot] = active;
+
+        if (!active) {
+            anomalies.keySet().removeIf(key -> key.startsWith("tour:" + tourId + ":"));
+            return;
+        }
+        if (detect && existing != null && previousPrice > 0 && price != previousPrice) {
+            double change = (price - previousPrice) / previousPrice;
+            if (Math.abs(change) >= priceJumpRatio) {
+                flag("tour:" + tourId + ":" + PRICE_JUMP, PRICE_JUMP, slot, destinationSlot,
+                        price, previousPrice, change);
+            } else {
+                anomalies.remove("tour:" + tourId + ":" + PRICE_JUMP);
+            }
+        }
+        if (detect) {
+            // Сравнение с остальными турами направления (без самого тура)
+            String key = "tour:" + tourId + ":" + PRICE_OUTLIER;
+            long n = priceCount[destinationSlot];
+            double sd = n > 1 ? Math.sqrt(priceM2[destinationSlot] / (n - 1)) : 0;
+            double z = sd > 0 ? (price - priceMean[destinationSlot]) / sd : 0;
+            if (n >= minDestinationTours && Math.abs(z) > zThreshold) {
+                flag(key, PRICE_OUTLIER, slot, destinationSlot, price, priceMean[destinationSlot], z);
+            } else {
+                anomalies.remove(key);
+            }
+        }
+        addPrice(destinationSlot, price);
+    }
+
+    synchronized void onRequest(long tourId, long timeMs) {
+        Integer slot = tourSlots.get(tourId);
+        if (slot == null || !tourActive[slot]) {
+            return;
+        }
+        long bucket = timeMs / bucketMs;
+        int destinationSlot = tourDestination[slot];
+        rollTour(slot, bucket);
+        rollDestination(destinationSlot, bucket);
+
+        int tourCount = ++tourRate.count[slot];
+        checkSpike(tourRate, slot, tourCount, "tour:" + tourId + ":" + REQUEST_SPIKE, slot, destinationSlot);
+        int destinationCount = ++destinationRate.count[destinationSlot];
+        checkSpike(destinationRate, destinationSlot, destinationCount,
+                "destination:" + destinations[destinationSlot] + ":" + REQUEST_SPIKE, -1, destinationSlot);
+    }
+
+    private void checkSpike(Rate rate, int slot, int count, String key, int tourSlot, int destinationSlot) {
+        if (rate.buckets[slot] < minBuckets || count < minSpikeCount) {
+            return;
+        }
+        double z = (count - rate.mean[slot]) / rate.sd(slot);
+        if (z > zThreshold && !anomalies.containsKey(key)) {
+            flag(key, REQUEST_SPIKE, tourSlot, destinationSlot, count, rate.mean[slot], z);
+        }
+    }
+
+    private void rollTour(int slot, long bucket) {
+        long tourId = tourIds[slot];
+        roll(tourRate, slot, bucket, "tour:" + tourId + ":", slot, tourDestination[slot]);
+    }
+
+    private void rollDestination(int slot, long bucket) {
+        roll(destinationRate, slot, bucket, "destination:" + destinations[slot] + ":", -1, slot);
+    }
+
+    // Закрыть интервалы слота до текущего: каждый завершенный интервал (в том числе пустые) обновляет EWMA
+    private void roll(Rate rate, int slot, long bucket, String keyPrefix, int tourSlot, int destinationSlot) {
+        long current = rate.bucket[slot];
+        if (current == Rate.NONE) {
+            rate.bucket[slot] = bucket;
+            return;
+        }
+        if (bucket <= current) {
+            return;
+        }
+        close(rate, slot, rate.count[slot], keyPrefix, tourSlot, destinationSlot);
+        // Пропущенные интервалы без заявок (не больше, чем нужно для затухания EWMA)
+        long empty = Math.min(bucket - current - 1, (long) Math.ceil(5 / alpha));
+        for (long i = 0; i < empty; i++) {
+            close(rate, slot, 0, keyPrefix, tourSlot, destinationSlot);
+        }
+        rate.count[slot] = 0;
+        rate.bucket[slot] = bucket;
+    }
+
+    private void close(Rate rate, int slot, double closed, String keyPrefix, int tourSlot, int destinationSlot) {
+        if (rate.buckets[slot] >= minBuckets && rate.mean[slot] >= minDropMean) {
+            double z = (closed - rate.mean[slot]) / rate.sd(slot);
+            if (z < -zThreshold) {
+                flag(keyPrefix + REQUEST_DROP, REQUEST_DROP, tourSlot, destinationSlot, closed, rate.mean[slot], z);
+            } else {
+                anomalies.remove(keyPrefix + REQUEST_DROP);
+            }
+        }
+        if (closed <= rate.mean[slot] + zThreshold * rate.sd(slot)) {
+            anomalies.remove(keyPrefix + REQUEST_SPIKE);
+        }
+        rate.observe(slot, closed, alpha);
+    }
+
+    private void flag(String key, String type, int tourSlot, int destinationSlot,
+                      double value, double expected, double score) {
+        Anomaly anomaly = new Anomaly(type,
+                tourSlot >= 0 ? tourIds[tourSlot] : null,
+                tourSlot >= 0 ? tourNames[tourSlot] : null,
+                destinations[destinationSlot], value, expected, score, clock.getAsLong());
+        anomalies.put(key, anomaly);
+        logger.info("Anomaly detected: {} {} value={} expected={}", type, key, value, Math.round(expected * 100) / 100.0);
+    }
+
+    // Welford: добавление и удаление значения из выборки направления
+    private void addPrice(int slot, double price) {
+        long n = ++priceCount[slot];
+        double delta = price - priceMean[slot];
+        priceMean[slot] += delta / n;
+        priceM2[slot] += delta * (price - priceMean[slot]);
+    }
+
+    private void removePrice(int slot, double price) {
+        long n = priceCount[slot];
+        if (n <= 1) {
+            priceCount[slot] = 0;
+            priceMean[slot] = 0;
+            priceM2[slot] = 0;
+            return;
+        }
+        double mean = (n * priceMean[slot] - price) / (n - 1);
+        priceM2[slot] = Math.max(0, priceM2[slot] - (price - priceMean[slot]) * (price - mean));
+        priceMean[slot] = mean;
+        priceCount[slot] = n - 1;
+    }
+
+    private int tourSlot(Long tourId) {
+        int slot = tourSlots.size();
+        if (slot == tourIds.length) {
+            int capacity = slot * 2;
+            tourIds = Arrays.copyOf(tourIds, capacity);
+            tourNames = Arrays.copyOf(tourNames, capacity);
+            tourDestination = Arrays.copyOf(tourDestination, capacity);
+            tourPrice = Arrays.copyOf(tourPrice, capacity);
+            tourActive = Arrays.copyOf(tourActive, capacity);
+            tourRate.grow(capacity);
+        }
+        tourSlots.put(tourId, slot);
+        tourIds[slot] = tourId;
+        return slot;
+    }
+
+    private int destinationSlot(String destination) {
+        Integer existing = destinationSlots.get(destination);
+        if (existing != null) {
+            return existing;
+        }
+        int slot = destinationSlots.size();
+        if (slot == destinations.length) {
+            int capacity = slot * 2;
+            destinations = Arrays.copyOf(destinations, capacity);
+            priceCount = Arrays.copyOf(priceCount, capacity);
+            priceMean = Arrays.copyOf(priceMean, capacity);
+            priceM2 = Arrays.copyOf(priceM2, capacity);
+            destinationRate.grow(capacity);
+        }
+        destinationSlots.put(destination, slot);
+        destinations[slot] = destination;
+        return slot;
+    }
+
+    /**
+     * Частота заявок по слотам: счетчик текущего интервала и EWMA по завершенным интервалам
+     */
+    private static final class Rate {
+        static final long NONE = -1;
+
+        long[] bucket;
+        int[] count;
+        int[] buckets;
+        double[] mean;
+        double[] variance;
+
+        Rate(int capacity) {
+            bucket = new long[capacity];
+            Arrays.fill(bucket, NONE);
+            count = new int[capacity];
+            buckets = new int[capacity];
+            mean = new double[capacity];
+            variance = new double[capacity];
+        }
+
+        void grow(int capacity) {
+            int previous = bucket.length;
+            bucket = Arrays.copyOf(bucket, capacity);
+            Arrays.fill(bucket, previous, capacity, NONE);
+            count = Arrays.copyOf(count, capacity);
+            buckets = Arrays.copyOf(buckets, capacity);
+            mean = Arrays.copyOf(mean, capacity);
+            variance = Arrays.copyOf(variance, capacity);
+        }
+
+        void observe(int slot, double value, double alpha) {
+            if (buckets[slot]++ == 0) {
+                mean[slot] = value;
+                return;
+            }
+            double diff = value - mean[slot];
+            double increment = alpha * diff;
+            mean[slot] += increment;
+            variance[slot] = (1 - alpha) * (variance[slot] + diff * increment);
+        }
+
+        // Нижняя граница - пуассоновский разброс, чтобы ровный поток заявок не давал нулевую дисперсию
+        double sd(int slot) {
+            return Math.max(Math.sqrt(variance[slot]), Math.sqrt(Math.max(mean[slot], 1)));
+        }
+    }
+
+    private record Anomaly(String type, Long tourId, String tourName, String destination,
+                           double value, double expected, double score, long detectedAt) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("anomaly_type", type);
+            map.put("tour_id", tourId);
+            map.put("tour_name", tourName);
+            map.put("destination", destination);
+            map.put("value", Math.round(value * 100) / 100.0);
+            map.put("expected", Math.round(expected * 100) / 100.0);
+            map.put("score", Math.round(score * 1000) / 1000.0);
+            map.put("detected_at", LocalDateTime.ofInstant(Instant.ofEpochMilli(detectedAt), ZONE).toString());
+            return map;
+        }
+    }
+}
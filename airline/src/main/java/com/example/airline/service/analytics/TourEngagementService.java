@@ -0,0 +1,153 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.dto.tour.TourEngagementDto;
+import com.example.airline.entity.tour.TourEngagement;
+import com.example.airline.repository.tour.TourEngagementRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики вовлеченности по турам: просмотры, заявки, добавления в избранное.
+ *
+ * События накапливаются в памяти (LongAdder на тур, без блокировок на горячем пути)
+ * и периодически сбрасываются в БД одним пакетным upsert, вместо записи строки на каждое событие.
+ */
+@Service
+public class TourEngagementService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TourEngagementService.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO bookings.tour_engagement (tour_id, views, requests, favorites, updated_at) " +
+            "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (tour_id) DO UPDATE SET " +
+            "views = bookings.tour_engagement.views + EXCLUDED.views, " +
+            "requests = bookings.tour_engagement.requests + EXCLUDED.requests, " +
+            "favorites = bookings.tour_engagement.favorites + EXCLUDED.favorites, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private final ConcurrentHashMap<Long, Counters> pending = new ConcurrentHashMap<>();
+
+    private final TourEngagementRepository engagementRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PopularityRankingService rankingService;
+    private final StreamingAnomalyDetector anomalyDetector;
+
+    public TourEngagementService(TourEngagementRepository engagementRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 PopularityRankingService rankingService,
+                                 StreamingAnomalyDetector anomalyDetector) {
+        this.engagementRepository = engagementRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rankingService = rankingService;
+        this.anomalyDetector = anomalyDetector;
+    }
+
+    public void recordView(Long tourId) {
+        if (tourId != null) {
+            counters(tourId).views.increment();
+            rankingService.onView(tourId);
+        }
+    }
+
+    public void recordRequest(Long tourId) {
+        if (tourId != null) {
+            counters(tourId).requests.increment();
+            rankingService.onRequest(tourId);
+            anomalyDetector.onRequest(tourId);
+        }
+    }
+
+    public void recordFavorite(Long tourId) {
+        if (tourId != null) {
+            counters(tourId).favorites.increment();
+            rankingService.onFavorite(tourId);
+        }
+    }
+
+    /**
+     * Счетчики активных туров, отсортированные через pageable (views, requests или favorites).
+     * К сохраненным значениям добавляются еще не сброшенные дельты.
+     */
+    @Transactional(readOnly = true)
+    public Page<TourEngagementDto> getEngagement(Pageable pageable) {
+        return engagementRepository.findForActiveTours(pageable)
+                .map(this::withPending);
+    }
+
+    /**
+     * Сбросить накопленные дельты в БД одним пакетом
+     */
+    @Scheduled(fixedDelayString = "${app.engagement.flush-interval-ms:10000}")
+    public void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, Counters> entry : pending.entrySet()) {
+            Counters counters = entry.getValue();
+            // sumThenReset обнуляет ячейки атомарно, конкурентные инкременты попадут в следующий сброс
+            long views = counters.views.sumThenReset();
+            long requests = counters.requests.sumThenReset();
+            long favorites = counters.favorites.sumThenReset();
+            if (views != 0 || requests != 0 || favorites != 0) {
+                batch.add(new Object[]{entry.getKey(), views, requests, favorites});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+            logger.debug("Flushed engagement counters for {} tours", batch.size());
+        } catch (Exception e) {
+            logger.warn("Failed to flush engagement counters for {} tours, will retry: {}", batch.size(), e.getMessage());
+            // Возвращаем дельты, чтобы не потерять их до следующего сброса
+            for (Object[] row : batch) {
+                Counters counters = counters((Long) row[0]);
+                counters.views.add((Long) row[1]);
+                counters.requests.add((Long) row[2]);
+                counters.favorites.add((Long) row[3]);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private TourEngagementDto withPending(TourEngagement engagement) {
+        Counters counters = pending.get(engagement.getTourId());
+        if (counters == null) {
+            return new TourEngagementDto(engagement.getTourId(), engagement.getViews(),
+                    engagement.getRequests(), engagement.getFavorites());
+        }
+        return new TourEngagementDto(engagement.getTourId(),
+                engagement.getViews() + counters.views.sum(),
+                engagement.getRequests() + counters.requests.sum(),
+                engagement.getFavorites() + counters.favorites.sum());
+    }
+
+    private Counters counters(Long tourId) {
+        Counters counters = pending.get(tourId);
+        return counters != null ? counters : pending.computeIfAbsent(tourId, id -> new Counters());
+    }
+
+    private static final class Counters {
+        final LongAdder views = new LongAdder();
+        final LongAdder requests = new LongAdder();
+        final LongAdder favorites = new LongAdder();
+    }
+}
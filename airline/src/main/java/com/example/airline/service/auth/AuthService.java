@@ -4,80 +4,112 @@ import com.example.airline.dto.auth.AuthRequest;
 import com.example.airline.dto.auth.AuthResponse;
 import com.example.airline.dto.auth.RegisterRequest;
 import com.example.airline.entity.client.Client;
+import com.example.airline.entity.user.Employee;
 import com.example.airline.entity.user.Role;
 import com.example.airline.entity.user.RoleName;
 import com.example.airline.entity.user.User;
 import com.example.airline.repository.client.ClientRepository;
+import com.example.airline.repository.user.EmployeeRepository;
 import com.example.airline.repository.user.RoleRepository;
 import com.example.airline.repository.user.UserRepository;
+import com.example.airline.security.AuthenticatedUser;
 import com.example.airline.security.JwtUtil;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.example.airline.security.TokenRevocationService;
+import com.example.airline.service.recommendation.ClientActivityEvent;
+import com.example.airline.service.recommendation.UserRecommendationService;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 public class AuthService {
-    private final AuthenticationManager authenticationManager;
+    private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final ClientRepository clientRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final EmployeeRepository employeeRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final UserRecommendationService userRecommendationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
 
     public AuthService(
-            AuthenticationManager authenticationManager,
             JwtUtil jwtUtil,
             UserRepository userRepository,
             RoleRepository roleRepository,
             ClientRepository clientRepository,
-            PasswordEncoder passwordEncoder) {
-        this.authenticationManager = authenticationManager;
+            EmployeeRepository employeeRepository,
+            PasswordHashingService passwordHashingService,
+            UserRecommendationService userRecommendationService,
+            ApplicationEventPublisher eventPublisher,
+            TokenRevocationService tokenRevocationService,
+            RefreshTokenService refreshTokenService) {
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.clientRepository = clientRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.employeeRepository = employeeRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.userRecommendationService = userRecommendationService;
+        this.eventPublisher = eventPublisher;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
     }
 
+    /**
+     * Вход по имени и паролю. Пароль проверяется один раз на пуле хэширования;
+     * если хэш создан с устаревшими параметрами BCrypt, он пересчитывается.
+     */
     public AuthResponse authenticate(AuthRequest request) {
-        org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AuthService.class);
-        logger.info("=== AuthService: Попытка аутентификации для пользователя: {}", request.getUsername());
-        logger.info("=== AuthService: Длина пароля в запросе: {}", request.getPassword() != null ? request.getPassword().length() : 0);
-        
-        // Проверяем пароль вручную для диагностики
-        User user = userRepository.findByUsername(request.getUsername()).orElse(null);
-        if (user != null) {
-            logger.info("=== AuthService: Пароль из БД (первые 20 символов): {}", 
-                user.getPassword() != null && user.getPassword().length() > 20 
-                    ? user.getPassword().substring(0, 20) + "..." 
-                    : user.getPassword());
-            boolean matches = passwordEncoder.matches(request.getPassword(), user.getPassword());
-            logger.info("=== AuthService: Проверка пароля вручную: {}", matches);
+        User user = userRepository.findByUsernameWithRoles(request.getUsername()).orElse(null);
+        if (user == null) {
+            passwordHashingService.matchesNothing(request.getPassword());
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (!passwordHashingService.matches(request.getPassword(), user.getPassword())) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (!user.isEnabled()) {
+            throw new DisabledException("User is disabled");
+        }
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            user.setPassword(passwordHashingService.encode(request.getPassword()));
+            user = userRepository.save(user);
+            logger.info("Password hash of user {} upgraded to current BCrypt settings", user.getId());
         }
-        
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-        );
 
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String token = jwtUtil.generateToken(userDetails);
-        
-        List<String> roles = userDetails.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toList());
+        Long employeeId = employeeRepository.findByUserId(user.getId()).map(Employee::getId).orElse(null);
+        Long clientId = clientRepository.findByUserId(user.getId()).map(Client::getId).orElse(null);
+        // Рекомендации для главного экрана считаются, пока приложение обрабатывает вход
+        userRecommendationService.precompute(user.getId());
+        return issueToken(user, employeeId, clientId, refreshTokenService.issue(user.getId()));
+    }
 
-        logger.info("=== AuthService: Аутентификация успешна для пользователя: {}", request.getUsername());
-        return new AuthResponse(token, userDetails.getUsername(), roles);
+    /**
+     * Обмен refresh-токена на новую пару токенов. Роли и идентификаторы перечитываются,
+     * поэтому изменения профиля попадают в токен не позже следующего обмена.
+     */
+    public AuthResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = userRepository.findById(rotation.userId())
+                .filter(User::isEnabled)
+                .orElseThrow(() -> new BadCredentialsException("User is not available"));
+        Long employeeId = employeeRepository.findByUserId(user.getId()).map(Employee::getId).orElse(null);
+        Long clientId = clientRepository.findByUserId(user.getId()).map(Client::getId).orElse(null);
+        return issueToken(user, employeeId, clientId, rotation.refreshToken());
     }
     
     /**
@@ -104,7 +136,7 @@ public class AuthService {
         // Создаем пользователя
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.encode(request.getPassword()));
         user.setEmail(request.getEmail());
         user.setEnabled(true);
         
@@ -124,21 +156,45 @@ public class AuthService {
         client.setActive(true);
         client.setVipStatus(false);
         
-        clientRepository.save(client);
+        client = clientRepository.save(client);
+        // Рекомендации нового клиента рассчитываются после фиксации транзакции
+        eventPublisher.publishEvent(new ClientActivityEvent(client.getId()));
         
-        // Возвращаем токен для автоматического входа после регистрации
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-        );
-        
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String token = jwtUtil.generateToken(userDetails);
-        
-        List<String> roleNames = userDetails.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toList());
-        
-        return new AuthResponse(token, userDetails.getUsername(), roleNames);
+        // Возвращаем токен для автоматического входа после регистрации (пароль только что задан, повторно не проверяется)
+        return issueToken(user, null, client.getId(), refreshTokenService.issue(user.getId()));
+    }
+
+    private AuthResponse issueToken(User user, Long employeeId, Long clientId, String refreshToken) {
+        List<String> roles = user.getRoles().stream()
+                .map(role -> role.getName().name())
+                .toList();
+        AuthenticatedUser principal = new AuthenticatedUser(
+                user.getUsername(),
+                roles.stream().map(SimpleGrantedAuthority::new).toList(),
+                user.getId(),
+                employeeId,
+                clientId);
+        String token = jwtUtil.generateToken(principal, user.getId(), employeeId, clientId, user.getTokenVersion());
+        AuthResponse response = new AuthResponse(token, user.getUsername(), roles);
+        response.setRefreshToken(refreshToken);
+        response.setExpiresIn(jwtUtil.getExpirationMs() / 1000);
+        return response;
     }
-}
 
+    /**
+     * Выход: access-токен отзывается до окончания срока действия, цепочка refresh-токена - целиком.
+     * Поврежденный или уже истекший access-токен не требует отзыва.
+     */
+    public void logout(String token, String refreshToken) {
+        if (token != null) {
+            try {
+                tokenRevocationService.revoke(jwtUtil.parseClaims(token));
+            } catch (JwtException | IllegalArgumentException e) {
+                // Токен и так недействителен
+            }
+        }
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenService.revoke(refreshToken);
+        }
+    }
+}
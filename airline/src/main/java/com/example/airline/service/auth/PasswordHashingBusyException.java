@@ -0,0 +1,18 @@
+package com.example.airline.service.auth;
+
+/**
+ * Пул хэширования паролей перегружен: запрос стоит повторить через retryAfterSeconds
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(long retryAfterSeconds) {
+        super("Сервис входа перегружен, повторите попытку позже");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
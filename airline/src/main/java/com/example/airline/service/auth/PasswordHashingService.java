@@ -0,0 +1,95 @@
+package com.example.airline.service.auth;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Хэширование и проверка паролей на выделенном ограниченном пуле.
+ *
+ * BCrypt намеренно медленный, поэтому поток запроса только ждет результат: число одновременных
+ * вычислений ограничено размером пула, а при заполненной очереди или долгом ожидании
+ * бросается {@link PasswordHashingBusyException} (ответ 503), и волна входов
+ * не занимает все потоки сервера.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final Executor executor;
+
+    /**
+     * Хэш для проверки пароля несуществующего пользователя: время ответа не выдает,
+     * существует ли имя пользователя
+     */
+    private final String dummyHash;
+
+    @Value("${app.security.hashing.timeout-ms:5000}")
+    private long timeoutMs = 5000;
+
+    @Value("${app.security.hashing.retry-after-seconds:1}")
+    private long retryAfterSeconds = 1;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Qualifier("passwordHashingExecutor") Executor executor) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.dummyHash = passwordEncoder.encode("dummy-password");
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Проверка пароля для неизвестного пользователя: та же стоимость, результат всегда false
+     */
+    public boolean matchesNothing(String rawPassword) {
+        run(() -> passwordEncoder.matches(rawPassword, dummyHash));
+        return false;
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Хэш создан с другими параметрами (например, меньшей стоимостью BCrypt) и его стоит пересчитать
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingBusyException(retryAfterSeconds);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new PasswordHashingBusyException(retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new PasswordHashingBusyException(retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
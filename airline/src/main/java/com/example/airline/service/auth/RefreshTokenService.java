@@ -0,0 +1,129 @@
+package com.example.airline.service.auth;
+
+import com.example.airline.entity.user.RefreshToken;
+import com.example.airline.repository.user.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Ротируемые refresh-токены.
+ *
+ * Токен - случайная строка, в БД хранится только ее SHA-256. Каждый обмен отзывает
+ * использованный токен и выдает новый в той же цепочке (family). Предъявление уже
+ * отозванного токена означает, что он утек: отзывается вся цепочка, и обоим владельцам
+ * придется войти заново.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${app.security.refresh.ttl-ms:2592000000}")
+    private long ttlMs = 2_592_000_000L;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    /**
+     * Выдать refresh-токен новой цепочки (вход или регистрация)
+     */
+    @Transactional
+    public String issue(Long userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Обменять refresh-токен на новый
+     *
+     * @throws BadCredentialsException если токен неизвестен, истек или уже использован
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotation rotate(String rawToken) {
+        LocalDateTime now = now();
+        RefreshToken token = refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        if (token.getRevokedAt() != null) {
+            int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+            logger.warn("Reuse of revoked refresh token for user {}, revoked {} tokens of its family",
+                    token.getUserId(), revoked);
+            throw new BadCredentialsException("Refresh token reused");
+        }
+        if (!token.getExpiresAt().isAfter(now)) {
+            throw new BadCredentialsException("Refresh token expired");
+        }
+        token.setRevokedAt(now);
+        return new Rotation(token.getUserId(), issue(token.getUserId(), token.getFamilyId()));
+    }
+
+    /**
+     * Отозвать цепочку, к которой относится токен (выход из аккаунта)
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), now()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.refresh.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(now());
+        if (deleted > 0) {
+            logger.debug("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    private String issue(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(clock.getAsLong() + ttlMs), ZoneId.systemDefault());
+        refreshTokenRepository.save(new RefreshToken(userId, hash(rawToken), familyId, expiresAt));
+        return rawToken;
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(clock.getAsLong()), ZoneId.systemDefault());
+    }
+
+    static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Результат обмена: владелец токена и новый refresh-токен
+     */
+    public record Rotation(Long userId, String refreshToken) {
+    }
+}
@@ -8,8 +8,11 @@ import com.example.airline.mapper.favorite.FavoriteTourMapper;
 import com.example.airline.repository.client.ClientRepository;
 import com.example.airline.repository.client.FavoriteTourRepository;
 import com.example.airline.repository.tour.TourRepository;
+import com.example.airline.service.analytics.TourEngagementService;
+import com.example.airline.service.recommendation.ClientActivityEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -24,14 +27,20 @@ public class FavoriteTourService {
     private final FavoriteTourRepository favoriteTourRepository;
     private final ClientRepository clientRepository;
     private final TourRepository tourRepository;
+    private final TourEngagementService engagementService;
+    private final ApplicationEventPublisher eventPublisher;
     
     public FavoriteTourService(
             FavoriteTourRepository favoriteTourRepository,
             ClientRepository clientRepository,
-            TourRepository tourRepository) {
+            TourRepository tourRepository,
+            TourEngagementService engagementService,
+            ApplicationEventPublisher eventPublisher) {
         this.favoriteTourRepository = favoriteTourRepository;
         this.clientRepository = clientRepository;
         this.tourRepository = tourRepository;
+        this.engagementService = engagementService;
+        this.eventPublisher = eventPublisher;
     }
     
     /**
@@ -64,6 +73,8 @@ public class FavoriteTourService {
                 .build();
         
         FavoriteTour saved = favoriteTourRepository.save(favoriteTour);
+        engagementService.recordFavorite(tourId);
+        eventPublisher.publishEvent(new ClientActivityEvent(clientId));
         logger.info("Тур {} добавлен в избранное клиента {}", tourId, clientId);
         
         return FavoriteTourMapper.toDto(saved);
@@ -80,6 +91,7 @@ public class FavoriteTourService {
         }
         
         favoriteTourRepository.deleteByClientIdAndTourId(clientId, tourId);
+        eventPublisher.publishEvent(new ClientActivityEvent(clientId));
         logger.info("Тур {} удален из избранного клиента {}", tourId, clientId);
     }
     
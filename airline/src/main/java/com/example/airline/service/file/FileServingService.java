@@ -0,0 +1,355 @@
+package com.example.airline.service.file;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Отдача загруженных файлов.
+ *
+ * Имена файлов уникальны и содержимое по ним не меняется, поэтому ответы кэшируются клиентом
+ * надолго (Cache-Control immutable), а повторная проверка по ETag/Last-Modified заканчивается 304.
+ * ETag строгий - SHA-256 содержимого: для файлов из хранилища по хэшу берется из имени, для
+ * старых файлов считается один раз и хранится в LRU по пути, размеру и времени изменения.
+ * Поддерживается один диапазон байт (Range, If-Range). Тело отправляется через sendfile Tomcat,
+ * а если он недоступен - через FileChannel.transferTo.
+ *
+ * Для изображений из хранилища по хэшу параметр ширины выбирает уменьшенный вариант
+ * (см. {@link ImageDerivativeService}); его ETag - хэш оригинала с шириной. Если варианта еще
+ * нет и отдается оригинал, ответ не кэшируется надолго: иначе клиент так и не получил бы вариант.
+ *
+ * Content-Type файла из хранилища по хэшу - тип, определенный при загрузке; имя и раздел URL
+ * должны ему соответствовать, иначе 404. Для старых файлов тип берется только из белого списка
+ * по расширению, прочие отдаются как application/octet-stream. Открываются в браузере только
+ * изображения, остальное отдается вложением и с nosniff, чтобы ничего не исполнилось на нашем домене.
+ */
+@Service
+public class FileServingService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Маленькие файлы дешевле скопировать, чем передавать сокет в sendfile (порог как у DefaultServlet Tomcat)
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    private static final Map<String, String> SERVED_TYPES = Map.of(
+            ".jpg", "image/jpeg",
+            ".jpeg", "image/jpeg",
+            ".png", "image/png",
+            ".pdf", "application/pdf");
+
+    private final Path root;
+    private final FileStorageService fileStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final Map<Path, CachedETag> etags;
+
+    @Value("${app.files.cache-max-age-seconds:31536000}")
+    private long cacheMaxAgeSeconds = 31_536_000;
+
+    public FileServingService(@Value("${app.upload.dir:uploads}") String uploadDir,
+                              FileStorageService fileStorageService,
+                              ImageDerivativeService imageDerivativeService,
+                              @Value("${app.files.etag-cache.max-size:10000}") int etagCacheSize) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.fileStorageService = fileStorageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.etags = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, CachedETag> eldest) {
+                return size() > etagCacheSize;
+            }
+        };
+    }
+
+    /**
+     * Отдать файл uploads/{subdirectory}/{filename} с учетом условных запросов и Range
+     *
+     * @param width желаемая ширина изображения или null - оригинал
+     */
+    public void serve(String subdirectory, String filename, Integer width,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String contentHash = FileStorageService.contentHash(filename);
+        FileType storedType = null;
+        if (contentHash != null) {
+            storedType = fileStorageService.storedType(contentHash, subdirectory);
+            // Документ заявки нельзя открыть ни по URL раздела tours, ни с расширением изображения
+            if (storedType == null || !filename.equals(contentHash + storedType.getExtension())) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+        }
+        Path file = contentHash != null ? fileStorageService.objectPath(contentHash) : resolve(subdirectory, filename);
+        boolean variantRequested = storedType != null && isImage(storedType.getContentType()) && width != null && width > 0;
+        Path variant = variantRequested ? imageDerivativeService.variant(contentHash, width) : null;
+        if (variant != null) {
+            file = variant;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = file == null ? null : Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            attributes = null;
+        }
+        if (attributes == null || !attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = attributes.size();
+        // HTTP-даты с точностью до секунды
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag;
+        if (variant != null) {
+            etag = "\"" + contentHash + "-w" + variantWidth(variant) + "\"";
+        } else {
+            etag = contentHash != null ? "\"" + contentHash + "\"" : etag(file, size, lastModified);
+        }
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        if (variantRequested && variant == null) {
+            // Оригинал вместо варианта: проверяется по ETag при каждом запросе, пока вариант не построен
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        } else {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + cacheMaxAgeSeconds + ", immutable");
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String contentType;
+        if (variant != null) {
+            contentType = servedType(variant.getFileName().toString());
+        } else {
+            contentType = storedType != null ? storedType.getContentType() : servedType(filename);
+        }
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                (isImage(contentType) ? "inline" : "attachment") + "; filename=\"" + filename + "\"");
+
+        long start = 0;
+        long end = size;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeApplies(request, etag, lastModified)) {
+            long[] parsed = parseRange(range, size);
+            if (parsed == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (parsed.length == 2) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+            }
+        }
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod()) || end == start) {
+            return;
+        }
+
+        if (end - start >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        transfer(file, start, end, response.getOutputStream());
+    }
+
+    /**
+     * Content-Type по расширению из белого списка, иначе application/octet-stream
+     */
+    static String servedType(String filename) {
+        int dot = filename.lastIndexOf('.');
+        String type = dot < 0 ? null : SERVED_TYPES.get(filename.substring(dot).toLowerCase(Locale.ROOT));
+        return type != null ? type : OCTET_STREAM;
+    }
+
+    private static boolean isImage(String contentType) {
+        return contentType.startsWith("image/");
+    }
+
+    private Path resolve(String subdirectory, String filename) {
+        Path file = root.resolve(subdirectory).resolve(filename).normalize();
+        // Выход за пределы каталога загрузок через ".." не допускается
+        return file.startsWith(root) && !file.equals(root) ? file : null;
+    }
+
+    /**
+     * Ширина из имени варианта &lt;hash&gt;.w&lt;ширина&gt;.&lt;ext&gt;
+     */
+    private static String variantWidth(Path variant) {
+        String name = variant.getFileName().toString();
+        int start = name.indexOf(".w") + 2;
+        return name.substring(start, name.indexOf('.', start));
+    }
+
+    private static void transfer(Path file, long start, long end, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag, true);
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * If-Range: диапазон отдается, только если у клиента та же версия файла, иначе - файл целиком
+     */
+    private static boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return matches(ifRange, etag, false);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && date == lastModified;
+    }
+
+    private static boolean matches(String header, String etag, boolean weak) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                if (!weak) {
+                    continue;
+                }
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Разбор одного диапазона "bytes=a-b", "bytes=a-" или "bytes=-n"
+     *
+     * @return [start, end) для диапазона, пустой массив - отдать файл целиком
+     * (несколько диапазонов, нераспознанный заголовок или конец раньше начала, RFC 9110),
+     * null - диапазон вне файла
+     */
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, size - suffix), size};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size : Long.parseLong(last) + 1;
+            if (!last.isEmpty() && end <= start) {
+                return new long[0];
+            }
+            if (start >= size) {
+                return null;
+            }
+            return new long[]{start, Math.min(size, end)};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private String etag(Path file, long size, long lastModified) throws IOException {
+        synchronized (etags) {
+            CachedETag cached = etags.get(file);
+            if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+                return cached.etag;
+            }
+        }
+        String etag = "\"" + sha256(file) + "\"";
+        synchronized (etags) {
+            etags.put(file, new CachedETag(size, lastModified, etag));
+        }
+        return etag;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private record CachedETag(long size, long lastModified, String etag) {
+    }
+}
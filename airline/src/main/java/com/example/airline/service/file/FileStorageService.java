@@ -1,111 +1,465 @@
 package com.example.airline.service.file;
 
 import com.example.airline.dto.file.FileUploadResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
 
+/**
+ * Хранилище загруженных файлов, адресуемое содержимым.
+ *
+ * Файл хэшируется (SHA-256) во время записи во временный файл и хранится как
+ * uploads/objects/ab/cd/&lt;hash&gt;; URL - /files/{subdirectory}/&lt;hash&gt;.&lt;ext&gt;. Повторная загрузка
+ * того же содержимого не пишет файл второй раз. Кто использует файл, записывается в
+ * file_references; файлы без ссылок (и без упоминания в tours.image_url) удаляет сборщик мусора.
+ *
+ * Тип файла определяется по сигнатуре содержимого ({@link FileType}), а размер проверяется
+ * по мере чтения, поэтому слишком большой файл отклоняется, не будучи дочитанным.
+ *
+ * Загрузка и сборщик мусора работают с одной строкой stored_files под блокировкой, поэтому
+ * файл не может быть удален между проверкой его наличия при загрузке и записью ссылки.
+ *
+ * Тип файла для раздела ({@link #storedType}) запоминается в LRU на type-cache.ttl-ms: содержимое
+ * по хэшу не меняется, а ссылки этого экземпляра при загрузке и удалении сбрасывают запись сразу.
+ */
 @Service
 public class FileStorageService {
-    
-    @Value("${app.upload.dir:uploads}")
-    private String uploadDir;
-    
-    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10 MB
-    private static final String[] ALLOWED_IMAGE_TYPES = {"image/jpeg", "image/png", "image/gif", "image/webp"};
-    private static final String[] ALLOWED_DOCUMENT_TYPES = {"application/pdf", "image/jpeg", "image/png"};
-    
-    public FileUploadResponse storeFile(MultipartFile file, String subdirectory) throws IOException {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
+
+    public static final String OWNER_TOUR = "tour";
+    public static final String OWNER_REQUEST = "request";
+
+    static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,10})?");
+
+    private static final String TOUCH_FILE_SQL =
+            "INSERT INTO bookings.stored_files (hash, size, content_type, created_at, touched_at) " +
+            "VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (hash) DO UPDATE SET touched_at = EXCLUDED.touched_at";
+
+    private static final String ADD_REFERENCE_SQL =
+            "INSERT INTO bookings.file_references (file_hash, owner_type, owner_id) VALUES (?, ?, ?) " +
+            "ON CONFLICT (file_hash, owner_type, owner_id) DO NOTHING";
+
+    private static final String GARBAGE_SQL =
+            "SELECT f.hash FROM bookings.stored_files f " +
+            "WHERE f.touched_at < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM bookings.file_references r WHERE r.file_hash = f.hash) " +
+            "AND NOT EXISTS (SELECT 1 FROM bookings.tours t WHERE t.image_url LIKE '%' || f.hash || '%') " +
+            "LIMIT ?";
+
+    private static final String DELETE_GARBAGE_SQL =
+            "DELETE FROM bookings.stored_files f WHERE f.hash = ? AND f.touched_at < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM bookings.file_references r WHERE r.file_hash = f.hash)";
+
+    private static final String STORED_TYPE_SQL =
+            "SELECT f.content_type FROM bookings.stored_files f WHERE f.hash = ? " +
+            "AND EXISTS (SELECT 1 FROM bookings.file_references r WHERE r.file_hash = f.hash AND r.owner_type = ?)";
+
+    static final Set<FileType> IMAGE_TYPES = Collections.unmodifiableSet(
+            EnumSet.of(FileType.JPEG, FileType.PNG, FileType.GIF, FileType.WEBP));
+    static final Set<FileType> DOCUMENT_TYPES = Collections.unmodifiableSet(
+            EnumSet.of(FileType.PDF, FileType.JPEG, FileType.PNG));
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Path uploadPath;
+    private final Path objectsPath;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Semaphore uploadSlots;
+    private final Map<String, CachedType> storedTypes;
+
+    @Value("${app.upload.max-file-size:10485760}")
+    private long maxFileSize = 10 * 1024 * 1024;
+
+    @Value("${app.upload.acquire-timeout-ms:1000}")
+    private long uploadAcquireTimeoutMs = 1000;
+
+    @Value("${app.files.gc-grace-ms:86400000}")
+    private long gcGraceMs = 86_400_000;
+
+    @Value("${app.files.gc-batch-size:500}")
+    private int gcBatchSize = 500;
+
+    @Value("${app.files.type-cache.max-size:10000}")
+    private int typeCacheMaxSize = 10_000;
+
+    @Value("${app.files.type-cache.ttl-ms:60000}")
+    private long typeCacheTtlMs = 60_000;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public FileStorageService(@Value("${app.upload.dir:uploads}") String uploadDir,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${app.upload.max-concurrent:16}") int maxConcurrentUploads) {
+        this.uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.objectsPath = uploadPath.resolve("objects");
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.uploadSlots = new Semaphore(maxConcurrentUploads);
+        this.storedTypes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedType> eldest) {
+                return size() > typeCacheMaxSize;
+            }
+        };
+    }
+
+    /**
+     * Сохранить загруженный multipart-файл и записать ссылку на него от владельца
+     *
+     * @param subdirectory раздел URL (tours, requests)
+     * @param ownerType    тип владельца для учета ссылок
+     * @param ownerId      идентификатор владельца
+     * @param allowedTypes допустимые типы содержимого
+     */
+    public FileUploadResponse storeFile(MultipartFile file, String subdirectory, String ownerType, Long ownerId,
+                                        Set<FileType> allowedTypes) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
-        
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException("File size exceeds maximum allowed size (10MB)");
-        }
-        
-        // Создаем директорию, если не существует
-        Path uploadPath = Paths.get(uploadDir, subdirectory);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Генерируем уникальное имя файла
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
-        String filename = UUID.randomUUID().toString() + extension;
-        
-        // Сохраняем файл
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        // Формируем URL для доступа к файлу
-        String fileUrl = "/files/" + subdirectory + "/" + filename;
-        
-        return new FileUploadResponse(
-                originalFilename,
-                fileUrl,
-                file.getContentType(),
-                file.getSize()
-        );
-    }
-    
-    public FileUploadResponse storeTourImage(MultipartFile file) throws IOException {
-        validateImageFile(file);
-        return storeFile(file, "tours");
-    }
-    
-    public FileUploadResponse storeRequestDocument(MultipartFile file) throws IOException {
-        validateDocumentFile(file);
-        return storeFile(file, "requests");
-    }
-    
-    public void deleteFile(String fileUrl) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getSize(), file.getOriginalFilename(), subdirectory, ownerType, ownerId, allowedTypes);
+        }
+    }
+
+    public FileUploadResponse storeTourImage(Long tourId, MultipartFile file) throws IOException {
+        return publishTourImage(storeFile(file, "tours", OWNER_TOUR, tourId, IMAGE_TYPES));
+    }
+
+    public FileUploadResponse storeRequestDocument(Long requestId, MultipartFile file) throws IOException {
+        return storeFile(file, "requests", OWNER_REQUEST, requestId, DOCUMENT_TYPES);
+    }
+
+    /**
+     * Сохранить изображение тура из тела запроса без буферизации multipart
+     *
+     * @param contentLength заявленный размер тела или -1, если неизвестен
+     */
+    public FileUploadResponse storeTourImage(Long tourId, InputStream body, long contentLength, String filename) throws IOException {
+        return publishTourImage(store(body, contentLength, filename, "tours", OWNER_TOUR, tourId, IMAGE_TYPES));
+    }
+
+    /**
+     * Сохранить документ заявки из тела запроса без буферизации multipart
+     *
+     * @param contentLength заявленный размер тела или -1, если неизвестен
+     */
+    public FileUploadResponse storeRequestDocument(Long requestId, InputStream body, long contentLength, String filename) throws IOException {
+        return store(body, contentLength, filename, "requests", OWNER_REQUEST, requestId, DOCUMENT_TYPES);
+    }
+
+    private FileUploadResponse publishTourImage(FileUploadResponse response) {
+        // Уменьшенные варианты для списка и карточки строятся в фоне
+        String hash = contentHash(response.getFileUrl().substring(response.getFileUrl().lastIndexOf('/') + 1));
+        eventPublisher.publishEvent(new TourImageStoredEvent(hash));
+        return response;
+    }
+
+    /**
+     * Потоковая запись: тип проверяется по первым байтам до записи на диск, размер - по мере чтения.
+     * В памяти держится один буфер на загрузку, на диске - не больше maxFileSize, а число
+     * одновременных загрузок ограничено app.upload.max-concurrent.
+     */
+    private FileUploadResponse store(InputStream in, long contentLength, String originalFilename,
+                                     String subdirectory, String ownerType, Long ownerId,
+                                     Set<FileType> allowedTypes) throws IOException {
+        if (contentLength > maxFileSize) {
+            throw new FileTooLargeException(maxFileSize);
+        }
+        acquireUploadSlot();
+        try {
+            byte[] header = new byte[FileType.HEADER_LENGTH];
+            int headerLength = in.readNBytes(header, 0, header.length);
+            if (headerLength == 0) {
+                throw new IllegalArgumentException("File is empty");
+            }
+            FileType type = FileType.detect(header, headerLength);
+            if (type == null || !allowedTypes.contains(type)) {
+                throw new IllegalArgumentException("File type not allowed. Allowed types: " + typeNames(allowedTypes));
+            }
+
+            Path tmpDir = objectsPath.resolve("tmp");
+            Files.createDirectories(tmpDir);
+            Path tempFile = Files.createTempFile(tmpDir, "upload-", ".part");
+            try {
+                // SHA-256 считается в том же проходе, что и запись на диск
+                MessageDigest digest = sha256();
+                long size = copy(header, headerLength, in, tempFile, digest);
+                String hash = HexFormat.of().formatHex(digest.digest());
+
+                boolean stored = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    jdbcTemplate.update(TOUCH_FILE_SQL, hash, size, type.getContentType());
+                    jdbcTemplate.update(ADD_REFERENCE_SQL, hash, ownerType, ownerId);
+                    return moveIntoPlace(tempFile, objectPath(hash));
+                }));
+                evictStoredType(hash, ownerType);
+                if (!stored) {
+                    logger.debug("Upload {} is a duplicate of stored file {}", originalFilename, hash);
+                }
+
+                String fileUrl = "/files/" + subdirectory + "/" + hash + type.getExtension();
+                FileUploadResponse response = new FileUploadResponse(
+                        originalFilename,
+                        fileUrl,
+                        type.getContentType(),
+                        size
+                );
+                if (!stored) {
+                    response.setMessage("File already stored");
+                }
+                return response;
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } finally {
+            uploadSlots.release();
+        }
+    }
+
+    /**
+     * Записать заголовок и остаток потока во временный файл, прервав чтение при превышении лимита
+     *
+     * @return размер файла
+     */
+    private long copy(byte[] header, int headerLength, InputStream in, Path target, MessageDigest digest) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            digest.update(header, 0, headerLength);
+            writeFully(channel, ByteBuffer.wrap(header, 0, headerLength));
+            long size = headerLength;
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                size += read;
+                if (size > maxFileSize) {
+                    throw new FileTooLargeException(maxFileSize);
+                }
+                digest.update(chunk, 0, read);
+                writeFully(channel, ByteBuffer.wrap(chunk, 0, read));
+            }
+            return size;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void acquireUploadSlot() {
+        try {
+            if (!uploadSlots.tryAcquire(uploadAcquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new UploadBusyException(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UploadBusyException(1);
+        }
+    }
+
+    private static String typeNames(Set<FileType> types) {
+        StringJoiner names = new StringJoiner(", ");
+        for (FileType type : types) {
+            names.add(type.name());
+        }
+        return names.toString();
+    }
+
+    /**
+     * Удалить файл по URL. Файл из хранилища по хэшу теряет только ссылку данного владельца
+     * своего раздела: то же содержимое могли загрузить другие туры или заявки. Сам файл удаляется
+     * сборщиком мусора, когда им больше никто не пользуется.
+     *
+     * @param ownerId тур или заявка, от имени которых удаляется файл
+     */
+    public void deleteFile(String fileUrl, Long ownerId) throws IOException {
         // Удаляем префикс /files/ из URL
         String relativePath = fileUrl.replaceFirst("^/files/", "");
-        Path filePath = Paths.get(uploadDir, relativePath);
-        
-        if (Files.exists(filePath)) {
+        int slash = relativePath.indexOf('/');
+        String hash = slash > 0 ? contentHash(relativePath.substring(slash + 1)) : null;
+        if (hash != null) {
+            String ownerType = ownerType(relativePath.substring(0, slash));
+            if (ownerType != null) {
+                jdbcTemplate.update("DELETE FROM bookings.file_references " +
+                        "WHERE file_hash = ? AND owner_type = ? AND owner_id = ?", hash, ownerType, ownerId);
+                evictStoredType(hash, ownerType);
+            }
+            return;
+        }
+
+        Path filePath = uploadPath.resolve(relativePath).normalize();
+        if (filePath.startsWith(uploadPath) && Files.exists(filePath)) {
             Files.delete(filePath);
         }
     }
-    
-    private void validateImageFile(MultipartFile file) {
-        String contentType = file.getContentType();
-        boolean allowed = false;
-        for (String allowedType : ALLOWED_IMAGE_TYPES) {
-            if (allowedType.equals(contentType)) {
-                allowed = true;
-                break;
+
+    /**
+     * Тип файла из хранилища по хэшу, если на него ссылается владелец раздела subdirectory
+     *
+     * @return тип, записанный при загрузке, или null - файла нет или он принадлежит другому разделу
+     */
+    public FileType storedType(String hash, String subdirectory) {
+        String ownerType = ownerType(subdirectory);
+        if (ownerType == null) {
+            return null;
+        }
+        String key = ownerType + ':' + hash;
+        long now = clock.getAsLong();
+        synchronized (storedTypes) {
+            CachedType cached = storedTypes.get(key);
+            if (cached != null && now < cached.expiresAt) {
+                return cached.type;
+            }
+        }
+        List<String> types = jdbcTemplate.queryForList(STORED_TYPE_SQL, String.class, hash, ownerType);
+        FileType type = types.isEmpty() ? null : FileType.forContentType(types.get(0));
+        synchronized (storedTypes) {
+            storedTypes.put(key, new CachedType(type, now + typeCacheTtlMs));
+        }
+        return type;
+    }
+
+    private void evictStoredType(String hash, String ownerType) {
+        synchronized (storedTypes) {
+            storedTypes.remove(ownerType + ':' + hash);
+        }
+    }
+
+    /**
+     * Тип владельца по разделу URL или null для неизвестного раздела
+     */
+    static String ownerType(String subdirectory) {
+        return switch (subdirectory) {
+            case "tours" -> OWNER_TOUR;
+            case "requests" -> OWNER_REQUEST;
+            default -> null;
+        };
+    }
+
+    /**
+     * Удалить файлы без ссылок. Строка stored_files удаляется и файл стирается в одной транзакции:
+     * параллельная загрузка того же содержимого дождется ее и запишет файл заново.
+     */
+    @Scheduled(fixedDelayString = "${app.files.gc-interval-ms:3600000}",
+            initialDelayString = "${app.files.gc-interval-ms:3600000}")
+    public int collectGarbage() {
+        Timestamp touchedBefore = new Timestamp(clock.getAsLong() - gcGraceMs);
+        List<String> candidates = jdbcTemplate.queryForList(GARBAGE_SQL, String.class, touchedBefore, gcBatchSize);
+        int deleted = 0;
+        for (String hash : candidates) {
+            Boolean removed = transactionTemplate.execute(status -> {
+                if (jdbcTemplate.update(DELETE_GARBAGE_SQL, hash, touchedBefore) == 0) {
+                    return false;
+                }
+                try {
+                    Path object = objectPath(hash);
+                    Files.deleteIfExists(object);
+                    // Уменьшенные варианты изображения лежат рядом: <hash>.w<ширина>.<ext>
+                    try (DirectoryStream<Path> variants = Files.newDirectoryStream(object.getParent(), hash + ".w*")) {
+                        for (Path variant : variants) {
+                            Files.deleteIfExists(variant);
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    // Каталога нет - удалять нечего
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(removed)) {
+                deleted++;
             }
         }
-        if (!allowed) {
-            throw new IllegalArgumentException("File type not allowed. Allowed types: JPEG, PNG, GIF, WEBP");
+        if (deleted > 0) {
+            logger.info("Deleted {} unreferenced stored files", deleted);
         }
+        return deleted;
     }
-    
-    private void validateDocumentFile(MultipartFile file) {
-        String contentType = file.getContentType();
-        boolean allowed = false;
-        for (String allowedType : ALLOWED_DOCUMENT_TYPES) {
-            if (allowedType.equals(contentType)) {
-                allowed = true;
-                break;
+
+    /**
+     * Путь к файлу с данным хэшем: два уровня каталогов по первым байтам, чтобы каталоги не разрастались
+     */
+    public Path objectPath(String hash) {
+        return objectsPath.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * Хэш содержимого из имени файла вида &lt;hash&gt;.&lt;ext&gt; или null для старых файлов
+     */
+    static String contentHash(String filename) {
+        var matcher = CONTENT_ADDRESSED_NAME.matcher(filename);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * @return true, если файл записан, false - такое содержимое уже хранится
+     */
+    private static boolean moveIntoPlace(Path tempFile, Path target) {
+        try {
+            if (Files.exists(target)) {
+                return false;
             }
+            Files.createDirectories(target.getParent());
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        if (!allowed) {
-            throw new IllegalArgumentException("File type not allowed. Allowed types: PDF, JPEG, PNG");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
-}
 
+    /**
+     * @param type тип файла или null - раздел не имеет на файл ссылок
+     */
+    private record CachedType(FileType type, long expiresAt) {
+    }
+}
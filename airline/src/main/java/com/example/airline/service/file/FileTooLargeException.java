@@ -0,0 +1,11 @@
+package com.example.airline.service.file;
+
+/**
+ * Загружаемый файл больше допустимого размера. Чтение прерывается, как только лимит превышен.
+ */
+public class FileTooLargeException extends IllegalArgumentException {
+
+    public FileTooLargeException(long maxSize) {
+        super("File size exceeds maximum allowed size (" + maxSize / (1024 * 1024) + "MB)");
+    }
+}
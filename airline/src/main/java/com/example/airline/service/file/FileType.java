@@ -0,0 +1,89 @@
+package com.example.airline.service.file;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Допустимые типы загружаемых файлов. Тип определяется по первым байтам содержимого,
+ * а не по Content-Type и имени, которые задает клиент.
+ */
+public enum FileType {
+    JPEG("image/jpeg", ".jpg"),
+    PNG("image/png", ".png"),
+    GIF("image/gif", ".gif"),
+    WEBP("image/webp", ".webp"),
+    PDF("application/pdf", ".pdf");
+
+    /**
+     * Сколько первых байт нужно для определения типа (RIFF-заголовок WebP)
+     */
+    static final int HEADER_LENGTH = 12;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final String contentType;
+    private final String extension;
+
+    FileType(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return тип с данным Content-Type или null
+     */
+    static FileType forContentType(String contentType) {
+        for (FileType type : values()) {
+            if (type.contentType.equals(contentType)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return тип по сигнатуре или null, если содержимое не относится ни к одному из типов
+     */
+    static FileType detect(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return JPEG;
+        }
+        if (startsWith(header, length, PNG_SIGNATURE)) {
+            return PNG;
+        }
+        if (startsWith(header, length, ascii("GIF87a")) || startsWith(header, length, ascii("GIF89a"))) {
+            return GIF;
+        }
+        if (startsWith(header, length, ascii("RIFF")) && length >= 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return WEBP;
+        }
+        if (startsWith(header, length, ascii("%PDF-"))) {
+            return PDF;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, byte[] signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (header[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
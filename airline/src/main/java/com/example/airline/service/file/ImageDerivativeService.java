@@ -0,0 +1,271 @@
+package com.example.airline.service.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Уменьшенные варианты изображений туров (превью, список, карточка).
+ *
+ * После загрузки изображения все ширины из app.images.widths строятся в фоне на ограниченном
+ * пуле imageDerivativeExecutor. Варианты лежат рядом с оригиналом: &lt;hash&gt;.w&lt;ширина&gt;.jpg|png.
+ * Если варианта еще нет (пул был переполнен, файл загружен до появления вариантов), он строится
+ * при первом запросе; запрос ждет не дольше lazy-timeout-ms, а затем получает оригинал.
+ * Одновременные запросы одного варианта ждут одну задачу.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private final FileStorageService fileStorageService;
+    private final Executor executor;
+    private final int[] widths;
+    private final Map<String, CompletableFuture<Path>> pending = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> unsupported;
+
+    @Value("${app.images.lazy-timeout-ms:2000}")
+    private long lazyTimeoutMs = 2000;
+
+    @Value("${app.images.jpeg-quality:0.85}")
+    private float jpegQuality = 0.85f;
+
+    /**
+     * Изображения больше этого числа пикселей не уменьшаются: декодирование заняло бы слишком много памяти
+     */
+    @Value("${app.images.max-pixels:40000000}")
+    private long maxPixels = 40_000_000;
+
+    public ImageDerivativeService(FileStorageService fileStorageService,
+                                  @Qualifier("imageDerivativeExecutor") Executor executor,
+                                  @Value("${app.images.widths:200,600,1200}") int[] widths) {
+        this.fileStorageService = fileStorageService;
+        this.executor = executor;
+        this.widths = Arrays.stream(widths).filter(width -> width > 0).sorted().distinct().toArray();
+        this.unsupported = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > 1000;
+            }
+        };
+    }
+
+    @EventListener
+    public void onTourImageStored(TourImageStoredEvent event) {
+        for (int width : widths) {
+            submit(event.getHash(), width);
+        }
+    }
+
+    /**
+     * Вариант изображения для запрошенной ширины: наименьший из настроенных, не уже запрошенной
+     *
+     * @return путь к варианту или null, если нужно отдать оригинал (ширина больше всех вариантов,
+     * формат не поддерживается ImageIO, вариант не успел построиться)
+     */
+    public Path variant(String hash, int requestedWidth) {
+        int width = variantWidth(requestedWidth);
+        if (width == 0 || isUnsupported(hash)) {
+            return null;
+        }
+        Path existing = existingVariant(hash, width);
+        if (existing != null) {
+            return existing;
+        }
+        if (!Files.isRegularFile(fileStorageService.objectPath(hash))) {
+            return null;
+        }
+        try {
+            return submit(hash, width).get(lazyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("Variant w{} of {} is not ready, serving original", width, hash);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    int variantWidth(int requestedWidth) {
+        for (int width : widths) {
+            if (width >= requestedWidth) {
+                return width;
+            }
+        }
+        return 0;
+    }
+
+    private CompletableFuture<Path> submit(String hash, int width) {
+        String key = hash + ".w" + width;
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> running = pending.putIfAbsent(key, created);
+        if (running != null) {
+            return running;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(generate(hash, width));
+                } catch (Exception e) {
+                    logger.warn("Failed to build variant w{} of {}: {}", width, hash, e.getMessage());
+                    created.complete(null);
+                } finally {
+                    pending.remove(key, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Пул занят: вариант построится при первом запросе
+            logger.debug("Image derivative pool is full, variant w{} of {} deferred", width, hash);
+            pending.remove(key, created);
+            created.complete(null);
+        }
+        return created;
+    }
+
+    private Path generate(String hash, int width) throws IOException {
+        Path existing = existingVariant(hash, width);
+        if (existing != null) {
+            return existing;
+        }
+        Path original = fileStorageService.objectPath(hash);
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                markUnsupported(hash);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                boolean jpeg = format.equals("jpeg") || format.equals("jpg");
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if ((long) sourceWidth * sourceHeight > maxPixels) {
+                    markUnsupported(hash);
+                    return null;
+                }
+                Path target = variantPath(hash, width, jpeg ? "jpg" : "png");
+                if (sourceWidth <= width && (jpeg || format.equals("png"))) {
+                    // Оригинал и так не шире варианта: перекодировать незачем
+                    return link(original, target);
+                }
+
+                // Субдискретизация при чтении: в памяти не больше двух ширин варианта
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, sourceWidth / (width * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage source = reader.read(0, param);
+
+                int targetWidth = Math.min(width, sourceWidth);
+                int targetHeight = Math.max(1, (int) Math.round((double) sourceHeight * targetWidth / sourceWidth));
+                BufferedImage scaled = new BufferedImage(targetWidth, targetHeight,
+                        jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+                Graphics2D graphics = scaled.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+                } finally {
+                    graphics.dispose();
+                }
+                return write(scaled, jpeg, target);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Path write(BufferedImage image, boolean jpeg, Path target) throws IOException {
+        Path tempFile = Files.createTempFile(target.getParent(), "variant-", ".part");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(jpeg ? "jpeg" : "png").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(tempFile.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (jpeg) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(jpegQuality);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static Path link(Path original, Path target) throws IOException {
+        try {
+            Files.createLink(target, original);
+        } catch (FileAlreadyExistsException e) {
+            // Вариант уже построен параллельно
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(original, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    private Path existingVariant(String hash, int width) {
+        for (String extension : new String[]{"jpg", "png"}) {
+            Path path = variantPath(hash, width, extension);
+            if (Files.isRegularFile(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    private Path variantPath(String hash, int width, String extension) {
+        return fileStorageService.objectPath(hash).resolveSibling(hash + ".w" + width + "." + extension);
+    }
+
+    private boolean isUnsupported(String hash) {
+        synchronized (unsupported) {
+            return unsupported.containsKey(hash);
+        }
+    }
+
+    private void markUnsupported(String hash) {
+        synchronized (unsupported) {
+            unsupported.put(hash, Boolean.TRUE);
+        }
+    }
+}
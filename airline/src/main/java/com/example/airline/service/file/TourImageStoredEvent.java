@@ -0,0 +1,17 @@
+package com.example.airline.service.file;
+
+/**
+ * Загружено изображение тура. Публикуется FileStorageService; по нему
+ * ImageDerivativeService строит уменьшенные варианты в фоне.
+ */
+public class TourImageStoredEvent {
+    private final String hash;
+
+    public TourImageStoredEvent(String hash) {
+        this.hash = hash;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+}
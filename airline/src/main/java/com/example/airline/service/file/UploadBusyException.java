@@ -0,0 +1,18 @@
+package com.example.airline.service.file;
+
+/**
+ * Достигнут лимит одновременных загрузок: запрос стоит повторить через retryAfterSeconds
+ */
+public class UploadBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public UploadBusyException(long retryAfterSeconds) {
+        super("Слишком много одновременных загрузок, повторите попытку позже");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.airline.service.ml;
+
+import com.example.airline.service.recommendation.UserRecommendationService;
+import com.example.airline.service.tour.TourChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+
+/**
+ * Сброс кэшей рекомендаций после изменения каталога туров.
+ *
+ * Изменения накапливаются и отправляются одним вызовом, когда в течение debounce-ms
+ * не было новых изменений (но не позже max-delay-ms от первого), поэтому массовое
+ * редактирование туров не засыпает ML-сервис запросами. Кэши рекомендаций backend'а
+ * сбрасываются до вызова ML-сервиса и еще раз после его успешного завершения: запрос,
+ * пришедший в промежутке, получил бы от ML-сервиса старый ответ и закэшировал его на весь TTL.
+ * При ошибке ML-сервиса туры возвращаются в очередь и отправляются при следующей проверке.
+ */
+@Component
+public class MlCacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MlCacheInvalidator.class);
+
+    private final MlServiceClient mlServiceClient;
+    private final MlResponseCache mlResponseCache;
+    private final UserRecommendationService userRecommendationService;
+
+    private Set<Long> pending = new TreeSet<>();
+    private long firstChangeAt;
+    private long lastChangeAt;
+
+    @Value("${app.ml.invalidation.debounce-ms:5000}")
+    private long debounceMs = 5000;
+
+    @Value("${app.ml.invalidation.max-delay-ms:30000}")
+    private long maxDelayMs = 30_000;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public MlCacheInvalidator(MlServiceClient mlServiceClient,
+                              MlResponseCache mlResponseCache,
+                              UserRecommendationService userRecommendationService) {
+        this.mlServiceClient = mlServiceClient;
+        this.mlResponseCache = mlResponseCache;
+        this.userRecommendationService = userRecommendationService;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTourChanged(TourChangedEvent event) {
+        if (event.getTourId() != null) {
+            schedule(List.of(event.getTourId()));
+        }
+    }
+
+    /**
+     * Отправить накопленные изменения, если окно debounce истекло
+     */
+    @Scheduled(fixedDelayString = "${app.ml.invalidation.check-interval-ms:1000}")
+    public void flushIfQuiet() {
+        Set<Long> tourIds;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            if (pending.isEmpty() || (now - lastChangeAt < debounceMs && now - firstChangeAt < maxDelayMs)) {
+                return;
+            }
+            tourIds = pending;
+            pending = new TreeSet<>();
+        }
+
+        invalidateLocalCaches();
+        mlServiceClient.invalidateCache(tourIds).subscribe(
+                ignored -> {
+                },
+                e -> {
+                    logger.warn("Failed to invalidate ML cache for {} tours, will retry: {}", tourIds.size(), e.toString());
+                    schedule(tourIds);
+                },
+                () -> {
+                    invalidateLocalCaches();
+                    logger.debug("ML cache invalidated for tours {}", tourIds);
+                });
+    }
+
+    private void invalidateLocalCaches() {
+        mlResponseCache.invalidate("recommendations", "similar", "popular");
+        userRecommendationService.invalidateAll();
+    }
+
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private synchronized void schedule(Iterable<Long> tourIds) {
+        long now = clock.getAsLong();
+        if (pending.isEmpty()) {
+            firstChangeAt = now;
+        }
+        lastChangeAt = now;
+        tourIds.forEach(pending::add);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.airline.service.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Защита вызовов ML-сервиса.
+ *
+ * Одинаковые одновременные вызовы (тот же endpoint и параметры) объединяются в один запрос
+ * (single-flight), остальные подписчики получают его результат. Каждый endpoint ограничен
+ * числом одновременных запросов (bulkhead, app.ml.bulkhead.{endpoint}.max-concurrent),
+ * сверх лимита вызов сразу отклоняется. Все запросы проходят через общий MlCircuitBreaker.
+ * Отклоненный вызов завершается ошибкой, которую MlResponseCache заменяет устаревшим ответом.
+ */
+@Component
+public class MlCallGuard {
+
+    private final MlCircuitBreaker circuitBreaker;
+    private final Environment environment;
+
+    private final Map<List<Object>, Mono<JsonNode>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    @Value("${app.ml.bulkhead.default-max-concurrent:10}")
+    private int defaultMaxConcurrent = 10;
+
+    public MlCallGuard(MlCircuitBreaker circuitBreaker, Environment environment) {
+        this.circuitBreaker = circuitBreaker;
+        this.environment = environment;
+    }
+
+    /**
+     * Выполнить запрос к ML-сервису под защитой
+     *
+     * @param endpoint имя endpoint'а
+     * @param key      параметры запроса (сравниваются через equals)
+     * @param request  запрос к ML-сервису
+     */
+    public Mono<JsonNode> call(String endpoint, Object key, Supplier<Mono<JsonNode>> request) {
+        List<Object> flightKey = List.of(endpoint, key);
+        return Mono.defer(() -> {
+            Mono<JsonNode> existing = inFlight.get(flightKey);
+            if (existing != null) {
+                bulkhead(endpoint).coalesced.increment();
+                return existing;
+            }
+            Mono<JsonNode> shared = guarded(endpoint, request)
+                    .doFinally(signal -> inFlight.remove(flightKey))
+                    .cache();
+            Mono<JsonNode> winner = inFlight.putIfAbsent(flightKey, shared);
+            if (winner != null) {
+                bulkhead(endpoint).coalesced.increment();
+                return winner;
+            }
+            return shared;
+        });
+    }
+
+    public MlCircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Состояние автомата защиты и занятость bulkhead'ов по endpoint'ам
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> endpoints = new TreeMap<>();
+        bulkheads.forEach((name, bulkhead) -> endpoints.put(name, Map.of(
+                "in_flight", bulkhead.maxConcurrent - bulkhead.permits.availablePermits(),
+                "max_concurrent", bulkhead.maxConcurrent,
+                "rejected", bulkhead.rejected.sum(),
+                "coalesced", bulkhead.coalesced.sum()
+        )));
+        return Map.of(
+                "circuit_breaker", circuitBreaker.getStats(),
+                "bulkheads", endpoints
+        );
+    }
+
+    private Mono<JsonNode> guarded(String endpoint, Supplier<Mono<JsonNode>> request) {
+        return Mono.defer(() -> {
+            Bulkhead bulkhead = bulkhead(endpoint);
+            if (!bulkhead.permits.tryAcquire()) {
+                bulkhead.rejected.increment();
+                return Mono.error(new IllegalStateException("ML bulkhead is full for endpoint: " + endpoint));
+            }
+            if (!circuitBreaker.tryAcquirePermission()) {
+                bulkhead.permits.release();
+                return Mono.error(new IllegalStateException("ML circuit breaker is open"));
+            }
+            // Слот освобождается до передачи результата подписчику (doFinally срабатывает позже),
+            // иначе следующий вызов из того же потока может не найти свободного слота
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    bulkhead.permits.release();
+                }
+            };
+            return request.get()
+                    .doOnSuccess(value -> {
+                        release.run();
+                        circuitBreaker.onSuccess();
+                    })
+                    .doOnError(e -> {
+                        release.run();
+                        circuitBreaker.onError();
+                    })
+                    .doOnCancel(() -> {
+                        release.run();
+                        circuitBreaker.onCancel();
+                    });
+        });
+    }
+
+    private Bulkhead bulkhead(String endpoint) {
+        Bulkhead bulkhead = bulkheads.get(endpoint);
+        return bulkhead != null ? bulkhead : bulkheads.computeIfAbsent(endpoint, name -> new Bulkhead(
+                environment.getProperty("app.ml.bulkhead." + name + ".max-concurrent", Integer.class, defaultMaxConcurrent)));
+    }
+
+    private static final class Bulkhead {
+        final int maxConcurrent;
+        final Semaphore permits;
+        final LongAdder rejected = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+
+        Bulkhead(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            this.permits = new Semaphore(maxConcurrent);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.airline.service.ml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Автомат защиты (circuit breaker) для вызовов ML-сервиса.
+ *
+ * CLOSED - вызовы проходят, результаты последних window-size вызовов хранятся в кольцевом буфере.
+ * Если доля ошибок среди них не меньше failure-rate-threshold, автомат переходит в OPEN:
+ * вызовы сразу отклоняются, не дожидаясь таймаута. Через open-duration автомат переходит
+ * в HALF_OPEN и пропускает ограниченное число пробных вызовов: если все они успешны -
+ * снова CLOSED, при первой ошибке - снова OPEN.
+ */
+@Component
+public class MlCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(MlCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenProbes;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    // Состояние автомата; все изменения под монитором this
+    private State state = State.CLOSED;
+    private final boolean[] outcomes;
+    private int outcomeIndex;
+    private int recordedCalls;
+    private int failures;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+    private long rejectedCalls;
+
+    public MlCircuitBreaker(@Value("${app.ml.breaker.window-size:20}") int windowSize,
+                            @Value("${app.ml.breaker.minimum-calls:10}") int minimumCalls,
+                            @Value("${app.ml.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                            @Value("${app.ml.breaker.open-duration-ms:30000}") long openDurationMs,
+                            @Value("${app.ml.breaker.half-open-probes:3}") int halfOpenProbes) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenProbes = halfOpenProbes;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * Можно ли выполнить вызов. В HALF_OPEN разрешение выдается только пробным вызовам.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationMs) {
+            transitionTo(State.HALF_OPEN);
+        }
+        boolean permitted = switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probesStarted < halfOpenProbes) {
+                    probesStarted++;
+                    yield true;
+                }
+                yield false;
+            }
+        };
+        if (!permitted) {
+            rejectedCalls++;
+        }
+        return permitted;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onError() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recordedCalls >= minimumCalls && failureRate() >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Вызов отменен без результата: пробное разрешение возвращается
+     */
+    public synchronized void onCancel() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationMs) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    /**
+     * Состояние автомата для /admin/analytics/health
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", getState().name());
+        stats.put("failure_rate", recordedCalls > 0 ? Math.round(failureRate() * 1000) / 1000.0 : 0.0);
+        stats.put("recorded_calls", recordedCalls);
+        stats.put("rejected_calls", rejectedCalls);
+        if (state == State.OPEN) {
+            stats.put("retry_after_ms", Math.max(0, openDurationMs - (clock.getAsLong() - openedAt)));
+        }
+        return stats;
+    }
+
+    private void record(boolean failure) {
+        if (recordedCalls == windowSize) {
+            if (outcomes[outcomeIndex]) {
+                failures--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        outcomes[outcomeIndex] = failure;
+        if (failure) {
+            failures++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % windowSize;
+    }
+
+    private double failureRate() {
+        return (double) failures / recordedCalls;
+    }
+
+    private void transitionTo(State next) {
+        logger.warn("ML circuit breaker: {} -> {}", state, next);
+        state = next;
+        switch (next) {
+            case OPEN -> openedAt = clock.getAsLong();
+            case HALF_OPEN -> {
+                probesStarted = 0;
+                probesSucceeded = 0;
+            }
+            case CLOSED -> {
+                recordedCalls = 0;
+                failures = 0;
+                outcomeIndex = 0;
+            }
+        }
+    }
+}
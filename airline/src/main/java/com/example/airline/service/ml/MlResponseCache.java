@@ -0,0 +1,241 @@
+package com.example.airline.service.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов ML-сервиса с отдельной областью на каждый endpoint.
+ *
+ * Область ограничена по размеру (LRU) и по времени жизни записи. После доли TTL
+ * (refresh-ahead) запись обновляется в фоне, а клиент сразу получает текущее значение.
+ * Если ML-сервис вернул ошибку или не ответил вовремя, отдается устаревшая запись,
+ * пока ее возраст не превышает TTL + max-stale (stale-if-error).
+ *
+ * Параметры области: app.ml.cache.{endpoint}.ttl-seconds и app.ml.cache.{endpoint}.max-size,
+ * по умолчанию - app.ml.cache.default-*.
+ */
+@Component
+public class MlResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MlResponseCache.class);
+
+    private final Environment environment;
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    @Value("${app.ml.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.ml.cache.default-ttl-seconds:300}")
+    private long defaultTtlSeconds = 300;
+
+    @Value("${app.ml.cache.default-max-size:500}")
+    private int defaultMaxSize = 500;
+
+    @Value("${app.ml.cache.max-stale-seconds:3600}")
+    private long maxStaleSeconds = 3600;
+
+    @Value("${app.ml.cache.refresh-ahead:0.8}")
+    private double refreshAhead = 0.8;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public MlResponseCache(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Получить ответ endpoint'а из кэша или загрузить его.
+     *
+     * @param endpoint имя области кэша
+     * @param key      параметры запроса (сравниваются через equals)
+     * @param loader   запрос к ML-сервису; ошибка или пустой ответ считаются неудачей
+     * @return значение, устаревшее значение при неудаче или пустой Mono, если отдать нечего
+     */
+    public Mono<JsonNode> get(String endpoint, Object key, Supplier<Mono<JsonNode>> loader) {
+        if (!enabled) {
+            return loader.get().onErrorResume(e -> Mono.empty());
+        }
+        return Mono.defer(() -> {
+            Region region = region(endpoint);
+            long now = clock.getAsLong();
+            Entry entry = region.get(key);
+            if (entry != null && now < entry.expiresAt) {
+                region.hits.increment();
+                if (now >= entry.refreshAt && entry.refreshing.compareAndSet(false, true)) {
+                    refreshInBackground(region, key, entry, loader);
+                }
+                return Mono.just(entry.value);
+            }
+            region.misses.increment();
+            return loader.get()
+                    .doOnNext(value -> region.put(key, value, clock.getAsLong()))
+                    .onErrorResume(e -> {
+                        region.loadErrors.increment();
+                        logger.warn("ML service call '{}' failed: {}", endpoint, e.toString());
+                        return Mono.empty();
+                    })
+                    .switchIfEmpty(Mono.defer(() -> stale(region, key)));
+        });
+    }
+
+    /**
+     * Удалить одну запись области
+     */
+    public void evict(String endpoint, Object key) {
+        Region region = regions.get(endpoint);
+        if (region != null) {
+            region.remove(key);
+        }
+    }
+
+    /**
+     * Сбросить области кэша
+     */
+    public void invalidate(String... endpoints) {
+        for (String endpoint : endpoints) {
+            Region region = regions.get(endpoint);
+            if (region != null) {
+                region.clear();
+            }
+        }
+    }
+
+    /**
+     * Статистика по областям: размер, попадания, промахи, доля попаданий,
+     * отданные устаревшие ответы и их наибольший возраст
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        regions.forEach((name, region) -> {
+            long hits = region.hits.sum();
+            long misses = region.misses.sum();
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("size", region.size());
+            regionStats.put("hits", hits);
+            regionStats.put("misses", misses);
+            regionStats.put("hit_rate", hits + misses > 0 ? Math.round(hits * 1000.0 / (hits + misses)) / 1000.0 : 0.0);
+            regionStats.put("stale_served", region.staleServed.sum());
+            regionStats.put("max_staleness_seconds", region.maxStalenessMs.get() / 1000);
+            regionStats.put("background_refreshes", region.refreshes.sum());
+            regionStats.put("load_errors", region.loadErrors.sum());
+            stats.put(name, regionStats);
+        });
+        return stats;
+    }
+
+    private Mono<JsonNode> stale(Region region, Object key) {
+        Entry entry = region.get(key);
+        if (entry == null) {
+            return Mono.empty();
+        }
+        long now = clock.getAsLong();
+        long staleness = now - entry.expiresAt;
+        if (staleness > maxStaleSeconds * 1000) {
+            region.remove(key, entry);
+            return Mono.empty();
+        }
+        region.staleServed.increment();
+        region.maxStalenessMs.accumulateAndGet(Math.max(staleness, 0), Math::max);
+        return Mono.just(entry.value);
+    }
+
+    private void refreshInBackground(Region region, Object key, Entry entry, Supplier<Mono<JsonNode>> loader) {
+        region.refreshes.increment();
+        loader.get().subscribe(
+                value -> region.put(key, value, clock.getAsLong()),
+                e -> {
+                    region.loadErrors.increment();
+                    entry.refreshing.set(false);
+                    logger.debug("Background refresh of ML '{}' failed: {}", region.name, e.toString());
+                },
+                () -> entry.refreshing.set(false));
+    }
+
+    private Region region(String endpoint) {
+        Region region = regions.get(endpoint);
+        return region != null ? region : regions.computeIfAbsent(endpoint, name -> {
+            long ttlSeconds = environment.getProperty("app.ml.cache." + name + ".ttl-seconds", Long.class, defaultTtlSeconds);
+            int maxSize = environment.getProperty("app.ml.cache." + name + ".max-size", Integer.class, defaultMaxSize);
+            return new Region(name, ttlSeconds * 1000, (long) (ttlSeconds * 1000 * refreshAhead), maxSize);
+        });
+    }
+
+    private static final class Entry {
+        final JsonNode value;
+        final long refreshAt;
+        final long expiresAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(JsonNode value, long refreshAt, long expiresAt) {
+            this.value = value;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Region {
+        final String name;
+        final long ttlMs;
+        final long refreshAfterMs;
+        final Map<Object, Entry> entries;
+
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder staleServed = new LongAdder();
+        final LongAdder refreshes = new LongAdder();
+        final LongAdder loadErrors = new LongAdder();
+        final AtomicLong maxStalenessMs = new AtomicLong();
+
+        Region(String name, long ttlMs, long refreshAfterMs, int maxSize) {
+            this.name = name;
+            this.ttlMs = ttlMs;
+            this.refreshAfterMs = refreshAfterMs;
+            // LinkedHashMap в режиме access-order вытесняет давно не запрошенные записи
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized Entry get(Object key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(Object key, JsonNode value, long now) {
+            entries.put(key, new Entry(value, now + refreshAfterMs, now + ttlMs));
+        }
+
+        synchronized void remove(Object key) {
+            entries.remove(key);
+        }
+
+        synchronized void remove(Object key, Entry entry) {
+            entries.remove(key, entry);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
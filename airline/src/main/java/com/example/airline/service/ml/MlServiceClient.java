@@ -7,20 +7,35 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
- * Клиент для взаимодействия с ML-сервисом
+ * Клиент для взаимодействия с ML-сервисом.
+ * Ответы аналитики и рекомендаций кэшируются в MlResponseCache: при ошибке или таймауте
+ * ML-сервиса отдается последний успешный ответ, а если его нет - пустой Mono.
+ * Запросы, не найденные в кэше, проходят через MlCallGuard (circuit breaker, bulkhead, single-flight).
  */
 @Service
 public class MlServiceClient {
 
+    // Ключ кэша для endpoint'ов без параметров
+    private static final String NO_PARAMS = "";
+
     private final WebClient webClient;
+    private final MlResponseCache cache;
+    private final MlCallGuard callGuard;
 
     public MlServiceClient(
-            @Value("${ml.service.url:http://localhost:8000}") String mlServiceUrl
+            @Value("${ml.service.url:http://localhost:8000}") String mlServiceUrl,
+            MlResponseCache cache,
+            MlCallGuard callGuard
     ) {
+        this.cache = cache;
+        this.callGuard = callGuard;
         // Обработка URL: если не указан протокол, добавляем https://
         String processedUrl = mlServiceUrl;
         if (!processedUrl.startsWith("http://") && !processedUrl.startsWith("https://")) {
@@ -50,21 +65,37 @@ public class MlServiceClient {
             Integer preferredDuration,
             int limit
     ) {
-        Map<String, Object> request = Map.of(
-                "user_id", userId != null ? userId : 0,
-                "preferred_destinations", preferredDestinations != null ? preferredDestinations : List.of(),
-                "min_price", minPrice != null ? minPrice : 0,
-                "max_price", maxPrice != null ? maxPrice : 999999,
-                "preferred_duration", preferredDuration != null ? preferredDuration : 7,
-                "limit", limit
-        );
+        Map<String, Object> request = recommendationRequest(
+                userId, preferredDestinations, minPrice, maxPrice, preferredDuration, limit);
 
-        return webClient.post()
+        return fetch("recommendations", request, () -> webClient.post()
                 .uri("/recommendations/")
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(10))
+                .timeout(Duration.ofSeconds(10)));
+    }
+
+    /**
+     * Получить рекомендации пользователя в обход кэша ответов (после изменения его избранного или заявок)
+     */
+    public Mono<JsonNode> refreshRecommendations(Long userId, int limit) {
+        cache.evict("recommendations", recommendationRequest(userId, null, null, null, null, limit));
+        return getRecommendations(userId, null, null, null, null, limit);
+    }
+
+    /**
+     * Получить рекомендации для нескольких пользователей одним запросом.
+     * Ответ: {results: [{user_id, recommendations}], total_tours_analyzed, model_version}
+     */
+    public Mono<JsonNode> getRecommendationsBatch(List<Long> userIds, int limit) {
+        Map<String, Object> request = Map.of("user_ids", userIds, "limit", limit);
+        return callGuard.call("recommendations-batch", request, () -> webClient.post()
+                        .uri("/recommendations/batch")
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .timeout(Duration.ofSeconds(60)))
                 .onErrorResume(e -> Mono.empty());
     }
 
@@ -72,67 +103,63 @@ public class MlServiceClient {
      * Получить похожие туры
      */
     public Mono<JsonNode> getSimilarTours(int tourId, int limit) {
-        return webClient.get()
+        return fetch("similar", List.of(tourId, limit), () -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/recommendations/similar/{tourId}")
                         .queryParam("limit", limit)
                         .build(tourId))
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(10))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(10)));
     }
 
     /**
      * Получить популярные туры
      */
     public Mono<JsonNode> getPopularTours(int limit) {
-        return webClient.get()
+        return fetch("popular", limit, () -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/recommendations/popular")
                         .queryParam("limit", limit)
                         .build())
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(10))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(10)));
     }
 
     /**
      * Получить полную аналитику
      */
     public Mono<JsonNode> getAnalytics(String period) {
-        return webClient.get()
+        return fetch("analytics", Arrays.asList(period), () -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/analytics/")
                         .queryParam("period", period)
                         .build())
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(30))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(30)));
     }
 
     /**
      * Получить статистику по заявкам
      */
     public Mono<JsonNode> getStatistics(int days) {
-        return webClient.get()
+        return fetch("statistics", days, () -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/analytics/statistics")
                         .queryParam("days", days)
                         .build())
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(10))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(10)));
     }
 
     /**
      * Получить прогноз спроса
      */
     public Mono<JsonNode> getDemandForecast(String destination) {
-        return webClient.get()
+        return fetch("forecast", Arrays.asList(destination), () -> webClient.get()
                 .uri(uriBuilder -> {
                     var builder = uriBuilder.path("/analytics/forecast")
                             .queryParam("horizon_months", 6);  // Прогноз на 6 месяцев
@@ -143,50 +170,42 @@ public class MlServiceClient {
                 })
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(30))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(30)));
     }
 
     /**
      * Получить прогноз спроса в табличном формате
      */
     public Mono<JsonNode> getDemandForecastTable() {
-        return webClient.get()
+        return fetch("forecast-table", NO_PARAMS, () -> webClient.get()
                 .uri("/analytics/forecast/table")
                 .retrieve()
                 .bodyToMono(JsonNode.class)
                 .timeout(Duration.ofSeconds(30))
                 .doOnError(e -> org.slf4j.LoggerFactory.getLogger(MlServiceClient.class)
-                        .error("Error getting demand forecast table: {}", e.getMessage()))
-                .onErrorResume(e -> {
-                    org.slf4j.LoggerFactory.getLogger(MlServiceClient.class)
-                            .warn("ML service returned error for forecast table, returning empty");
-                    return Mono.empty();
-                });
+                        .error("Error getting demand forecast table: {}", e.getMessage())));
     }
 
     /**
      * Получить все направления из базы данных
      */
     public Mono<JsonNode> getAllDestinations() {
-        return webClient.get()
+        return fetch("destinations", NO_PARAMS, () -> webClient.get()
                 .uri("/analytics/all-destinations")
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(30))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(30)));
     }
 
     /**
      * Получить данные для дашборда
      */
     public Mono<JsonNode> getDashboardData() {
-        return webClient.get()
+        return fetch("dashboard", NO_PARAMS, () -> webClient.get()
                 .uri("/analytics/dashboard")
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(10))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(10)));
     }
 
     /**
@@ -206,73 +225,79 @@ public class MlServiceClient {
      * Сбросить кэш рекомендаций
      */
     public Mono<Void> invalidateCache() {
+        cache.invalidate("recommendations", "similar", "popular");
+        return invalidateCache(List.of())
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    /**
+     * Сбросить кэш рекомендаций ML-сервиса по измененным турам.
+     * Пустой список - полный сброс. Ошибка вызова передается вызывающему для повтора.
+     */
+    public Mono<Void> invalidateCache(Collection<Long> tourIds) {
         return webClient.post()
                 .uri("/recommendations/invalidate-cache")
+                .bodyValue(Map.of("tour_ids", tourIds))
                 .retrieve()
                 .bodyToMono(Void.class)
-                .timeout(Duration.ofSeconds(5))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(5));
     }
 
     /**
      * Получить кластеры туров
      */
     public Mono<JsonNode> getTourClusters(int nClusters) {
-        return webClient.get()
+        return fetch("clusters", nClusters, () -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/analytics/clusters")
                         .queryParam("n_clusters", nClusters)
                         .build())
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(15))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(15)));
     }
 
     /**
      * Получить метрики моделей
      */
     public Mono<JsonNode> getModelMetrics() {
-        return webClient.get()
+        return fetch("model-metrics", NO_PARAMS, () -> webClient.get()
                 .uri("/analytics/model-metrics")
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(15))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(15)));
     }
 
     /**
      * Получить аномальные туры
      */
     public Mono<JsonNode> getAnomalousTours() {
-        return webClient.get()
+        return fetch("anomalies", NO_PARAMS, () -> webClient.get()
                 .uri("/analytics/anomalies")
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(15))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(15)));
     }
 
     /**
      * Получить сезонные тренды
      */
     public Mono<JsonNode> getSeasonalTrends(int months) {
-        return webClient.get()
+        return fetch("trends", months, () -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/analytics/trends")
                         .queryParam("months", months)
                         .build())
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(15))
-                .onErrorResume(e -> Mono.empty());
+                .timeout(Duration.ofSeconds(15)));
     }
 
     /**
      * Получить прогноз сезонных трендов на N месяцев вперед
      */
     public Mono<JsonNode> getSeasonalForecast(int forecastMonths) {
-        return webClient.get()
+        return fetch("seasonal-forecast", forecastMonths, () -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/analytics/forecast/seasonal")
                         .queryParam("forecast_months", forecastMonths)
@@ -281,11 +306,28 @@ public class MlServiceClient {
                 .bodyToMono(JsonNode.class)
                 .timeout(Duration.ofSeconds(30))
                 .doOnError(e -> org.slf4j.LoggerFactory.getLogger(MlServiceClient.class)
-                        .error("Error getting seasonal forecast: {}", e.getMessage()))
-                .onErrorResume(e -> {
-                    org.slf4j.LoggerFactory.getLogger(MlServiceClient.class)
-                            .warn("ML service returned error for seasonal forecast, returning empty");
-                    return Mono.empty();
-                });
+                        .error("Error getting seasonal forecast: {}", e.getMessage())));
+    }
+
+    private Mono<JsonNode> fetch(String endpoint, Object key, Supplier<Mono<JsonNode>> request) {
+        return cache.get(endpoint, key, () -> callGuard.call(endpoint, key, request));
+    }
+
+    private static Map<String, Object> recommendationRequest(
+            Long userId,
+            List<String> preferredDestinations,
+            Double minPrice,
+            Double maxPrice,
+            Integer preferredDuration,
+            int limit
+    ) {
+        return Map.of(
+                "user_id", userId != null ? userId : 0,
+                "preferred_destinations", preferredDestinations != null ? preferredDestinations : List.of(),
+                "min_price", minPrice != null ? minPrice : 0,
+                "max_price", maxPrice != null ? maxPrice : 999999,
+                "preferred_duration", preferredDuration != null ? preferredDuration : 7,
+                "limit", limit
+        );
     }
 }
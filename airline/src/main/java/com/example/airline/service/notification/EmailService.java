@@ -7,16 +7,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
+/**
+ * Уведомления по email. Письма ставятся в очередь {@link MailBatchSender} и уходят пакетами
+ * по постоянным SMTP-соединениям, поэтому вызов не ждет сервер и не требует отдельного потока.
+ * Письма о назначении заявок сотруднику объединяются в дайджест.
+ */
 @Service
 public class EmailService {
     
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
     
-    private final JavaMailSender mailSender;
+    static final String DIGEST_ASSIGNED = "assigned";
+    
+    private final MailBatchSender mailBatchSender;
     
     @Value("${app.email.enabled:false}")
     private boolean emailEnabled;
@@ -24,14 +31,13 @@ public class EmailService {
     @Value("${app.email.from:noreply@airline.com}")
     private String fromEmail;
     
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(MailBatchSender mailBatchSender) {
+        this.mailBatchSender = mailBatchSender;
     }
     
     /**
      * Отправка уведомления клиенту о создании заявки
      */
-    @Async
     public void sendRequestCreatedNotification(ClientRequest request) {
         if (!emailEnabled) {
             logger.debug("Email notifications are disabled. Skipping notification for request {}", request.getId());
@@ -45,8 +51,8 @@ public class EmailService {
             message.setSubject("Ваша заявка на тур принята");
             message.setText(buildRequestCreatedMessage(request));
             
-            mailSender.send(message);
-            logger.info("Email notification sent to {} for request {}", request.getUserEmail(), request.getId());
+            mailBatchSender.enqueue(message);
+            logger.info("Email notification queued to {} for request {}", request.getUserEmail(), request.getId());
         } catch (Exception e) {
             logger.error("Failed to send email notification for request {}", request.getId(), e);
         }
@@ -55,7 +61,6 @@ public class EmailService {
     /**
      * Отправка уведомления клиенту об изменении статуса заявки
      */
-    @Async
     public void sendStatusChangedNotification(ClientRequest request, RequestStatus oldStatus) {
         if (!emailEnabled) {
             logger.debug("Email notifications are disabled. Skipping notification for request {}", request.getId());
@@ -69,8 +74,8 @@ public class EmailService {
             message.setSubject("Изменение статуса вашей заявки");
             message.setText(buildStatusChangedMessage(request, oldStatus));
             
-            mailSender.send(message);
-            logger.info("Status change email sent to {} for request {}", request.getUserEmail(), request.getId());
+            mailBatchSender.enqueue(message);
+            logger.info("Status change email queued to {} for request {}", request.getUserEmail(), request.getId());
         } catch (Exception e) {
             logger.error("Failed to send status change email for request {}", request.getId(), e);
         }
@@ -79,7 +84,6 @@ public class EmailService {
     /**
      * Отправка уведомления сотруднику о назначении новой заявки
      */
-    @Async
     public void sendRequestAssignedNotification(ClientRequest request, Employee employee) {
         if (!emailEnabled) {
             logger.debug("Email notifications are disabled. Skipping notification for employee {}", employee.getId());
@@ -93,8 +97,11 @@ public class EmailService {
             message.setSubject("Вам назначена новая заявка");
             message.setText(buildRequestAssignedMessage(request, employee));
             
-            mailSender.send(message);
-            logger.info("Assignment email sent to {} for request {}", employee.getEmail(), request.getId());
+            String line = String.format("#%d - %s, тур \"%s\"",
+                    request.getId(), request.getUserName(), request.getTour().getName());
+            mailBatchSender.enqueueDigest(employee.getEmail(), DIGEST_ASSIGNED, message, line,
+                    lines -> buildAssignedDigest(employee, lines));
+            logger.info("Assignment email queued to {} for request {}", employee.getEmail(), request.getId());
         } catch (Exception e) {
             logger.error("Failed to send assignment email for request {}", request.getId(), e);
         }
@@ -103,7 +110,6 @@ public class EmailService {
     /**
      * Отправка напоминания сотруднику о необработанных заявках
      */
-    @Async
     public void sendReminderNotification(Employee employee, int unprocessedCount) {
         if (!emailEnabled) {
             logger.debug("Email notifications are disabled. Skipping reminder for employee {}", employee.getId());
@@ -117,8 +123,8 @@ public class EmailService {
             message.setSubject("Напоминание о необработанных заявках");
             message.setText(buildReminderMessage(employee, unprocessedCount));
             
-            mailSender.send(message);
-            logger.info("Reminder email sent to {} about {} unprocessed requests", employee.getEmail(), unprocessedCount);
+            mailBatchSender.enqueue(message);
+            logger.info("Reminder email queued to {} about {} unprocessed requests", employee.getEmail(), unprocessedCount);
         } catch (Exception e) {
             logger.error("Failed to send reminder email to employee {}", employee.getId(), e);
         }
@@ -195,6 +201,28 @@ public class EmailService {
         );
     }
     
+    /**
+     * Сводное письмо о нескольких заявках, назначенных сотруднику за окно дайджеста
+     */
+    private SimpleMailMessage buildAssignedDigest(Employee employee, List<String> lines) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(employee.getEmail());
+        message.setSubject("Вам назначено новых заявок: " + lines.size());
+        message.setText(String.format(
+            "Здравствуйте, %s!\n\n" +
+            "За последние минуты вам назначено %d новых заявок:\n\n" +
+            "%s\n\n" +
+            "Пожалуйста, обработайте заявки в ближайшее время.\n\n" +
+            "С уважением,\n" +
+            "Система управления заявками",
+            employee.getFullName(),
+            lines.size(),
+            "- " + String.join("\n- ", lines)
+        ));
+        return message;
+    }
+    
     private String buildReminderMessage(Employee employee, int unprocessedCount) {
         return String.format(
             "Здравствуйте, %s!\n\n" +
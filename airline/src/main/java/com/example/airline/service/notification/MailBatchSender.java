@@ -0,0 +1,276 @@
+package com.example.airline.service.notification;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Очередь исходящих писем, отправляемая пакетами через {@link SmtpConnectionPool}.
+ *
+ * Письма копятся в ограниченной очереди и раз в flush-interval-ms разбираются на пакеты по
+ * batch-size; каждый пакет уходит на пуле mailSenderExecutor по одному соединению. Ошибка
+ * получателя (SendFailedException) пропускает только это письмо; обрыв соединения - остаток
+ * пакета повторяется один раз на новом соединении.
+ *
+ * Дайджест: первое письмо вида kind получателю уходит сразу и открывает окно digest.window-ms.
+ * Письма того же вида, пришедшие в окне, по его закрытии отправляются одним сводным письмом
+ * (или как есть, если оно одно). Так сотрудник, получивший 30 заявок за 5 минут, получает
+ * два письма, а не 30.
+ */
+@Service
+public class MailBatchSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailBatchSender.class);
+
+    private final SmtpConnectionPool connectionPool;
+    private final Executor executor;
+    private final BlockingQueue<SimpleMailMessage> queue;
+    private final Semaphore batchesInFlight;
+    private final Map<String, Digest> digests = new ConcurrentHashMap<>();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder digested = new LongAdder();
+
+    @Value("${app.email.batch-size:50}")
+    private int batchSize = 50;
+
+    @Value("${app.email.digest.enabled:true}")
+    private boolean digestEnabled = true;
+
+    @Value("${app.email.digest.window-ms:300000}")
+    private long digestWindowMs = 300_000;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public MailBatchSender(SmtpConnectionPool connectionPool,
+                           @Qualifier("mailSenderExecutor") Executor executor,
+                           @Value("${app.email.queue-capacity:1000}") int queueCapacity,
+                           @Value("${app.email.pool.size:2}") int poolSize) {
+        this.connectionPool = connectionPool;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Пакетов в работе не больше, чем соединений, и еще столько же ждут своей очереди
+        this.batchesInFlight = new Semaphore(poolSize * 2);
+    }
+
+    /**
+     * Поставить письмо в очередь. Не блокирует: при переполненной очереди письмо отбрасывается.
+     *
+     * @return false, если письмо отброшено
+     */
+    public boolean enqueue(SimpleMailMessage message) {
+        if (queue.offer(message)) {
+            return true;
+        }
+        dropped.increment();
+        logger.warn("Mail queue is full, dropping email to {}", Arrays.toString(message.getTo()));
+        return false;
+    }
+
+    /**
+     * Поставить письмо, которое в пределах окна дайджеста объединяется с письмами того же вида
+     *
+     * @param recipient адрес получателя
+     * @param kind      вид письма: объединяются только письма одного вида
+     * @param message   письмо, отправляемое, если объединять не с чем
+     * @param line      строка этого письма в сводном письме
+     * @param summary   сводное письмо по накопленным строкам
+     */
+    public void enqueueDigest(String recipient, String kind, SimpleMailMessage message, String line,
+                              Function<List<String>, SimpleMailMessage> summary) {
+        if (!digestEnabled) {
+            enqueue(message);
+            return;
+        }
+        long now = clock.getAsLong();
+        boolean[] sendNow = new boolean[1];
+        digests.compute(kind + ':' + recipient, (key, digest) -> {
+            if (digest != null && now - digest.openedAt < digestWindowMs) {
+                digest.add(message, line, summary);
+                digested.increment();
+                return digest;
+            }
+            if (digest != null) {
+                // Окно истекло, но еще не было закрыто плановым flush
+                digest.emit(this);
+            }
+            sendNow[0] = true;
+            return new Digest(now);
+        });
+        if (sendNow[0]) {
+            enqueue(message);
+        }
+    }
+
+    /**
+     * Закрыть истекшие окна дайджеста и отправить накопленные письма пакетами
+     */
+    @Scheduled(fixedDelayString = "${app.email.flush-interval-ms:1000}")
+    public void flush() {
+        closeExpiredDigests();
+        while (!queue.isEmpty() && batchesInFlight.tryAcquire()) {
+            List<SimpleMailMessage> batch = new ArrayList<>(batchSize);
+            queue.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                batchesInFlight.release();
+                break;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        sendBatch(batch);
+                    } finally {
+                        batchesInFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                batchesInFlight.release();
+                // Пул занят: пакет вернется в очередь и уйдет при следующем flush
+                batch.forEach(this::enqueue);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Отправить пакет по одному соединению пула
+     */
+    void sendBatch(List<SimpleMailMessage> batch) {
+        int next = 0;
+        for (int attempt = 0; attempt < 2 && next < batch.size(); attempt++) {
+            Transport transport;
+            try {
+                transport = connectionPool.borrow();
+            } catch (MessagingException e) {
+                logger.error("Failed to open SMTP connection: {}", e.getMessage());
+                break;
+            }
+            try {
+                for (; next < batch.size(); next++) {
+                    MimeMessage mime;
+                    try {
+                        mime = toMimeMessage(batch.get(next));
+                    } catch (MessagingException | MailException e) {
+                        failed.increment();
+                        logger.warn("Skipping malformed email to {}: {}", Arrays.toString(batch.get(next).getTo()), e.getMessage());
+                        continue;
+                    }
+                    try {
+                        transport.sendMessage(mime, mime.getAllRecipients());
+                        sent.increment();
+                    } catch (SendFailedException e) {
+                        // Отклонен получатель: соединение исправно, продолжаем пакет
+                        failed.increment();
+                        logger.warn("Email to {} rejected: {}", Arrays.toString(batch.get(next).getTo()), e.getMessage());
+                    }
+                }
+                connectionPool.release(transport);
+            } catch (MessagingException | RuntimeException e) {
+                // При любой ошибке соединение закрывается и его слот в пуле освобождается
+                connectionPool.invalidate(transport);
+                logger.warn("SMTP connection failed after {} of {} emails: {}", next, batch.size(), e.getMessage());
+            }
+        }
+        if (next < batch.size()) {
+            failed.add(batch.size() - next);
+            logger.error("Failed to send {} emails", batch.size() - next);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("sent", sent.sum());
+        stats.put("failed", failed.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("digested", digested.sum());
+        stats.put("open_digests", digests.size());
+        stats.put("connections", connectionPool.getStats());
+        return stats;
+    }
+
+    private void closeExpiredDigests() {
+        long now = clock.getAsLong();
+        for (String key : digests.keySet()) {
+            digests.computeIfPresent(key, (k, digest) -> {
+                if (now - digest.openedAt < digestWindowMs) {
+                    return digest;
+                }
+                digest.emit(this);
+                return null;
+            });
+        }
+    }
+
+    private MimeMessage toMimeMessage(SimpleMailMessage message) throws MessagingException {
+        MimeMessage mime = connectionPool.createMimeMessage();
+        message.copyTo(new MimeMailMessage(mime));
+        if (mime.getSentDate() == null) {
+            mime.setSentDate(new Date(clock.getAsLong()));
+        }
+        mime.saveChanges();
+        return mime;
+    }
+
+    /**
+     * Окно дайджеста одного получателя и вида письма. Меняется только внутри compute карты digests.
+     */
+    private static final class Digest {
+        final long openedAt;
+        final List<String> lines = new ArrayList<>();
+        SimpleMailMessage single;
+        Function<List<String>, SimpleMailMessage> summary;
+
+        Digest(long openedAt) {
+            this.openedAt = openedAt;
+        }
+
+        void add(SimpleMailMessage message, String line, Function<List<String>, SimpleMailMessage> summary) {
+            if (lines.isEmpty()) {
+                single = message;
+            }
+            lines.add(line);
+            this.summary = summary;
+        }
+
+        void emit(MailBatchSender sender) {
+            if (lines.size() == 1) {
+                sender.enqueue(single);
+            } else if (lines.size() > 1) {
+                sender.enqueue(summary.apply(List.copyOf(lines)));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.airline.service.notification;
+
+import com.example.airline.entity.user.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Напоминания сотрудникам о необработанных заявках (статус NEW старше min-age-minutes).
+ *
+ * Число заявок для всех активных сотрудников считается одним GROUP BY, письма ставятся в очередь
+ * {@link MailBatchSender} через EmailService. На нескольких узлах задачу выполняет один:
+ * транзакционная advisory-блокировка не дает запускам пересечься, а запись в job_runs -
+ * повторить рассылку узлу, чье расписание сработало чуть позже.
+ */
+@Component
+public class RequestReminderJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestReminderJob.class);
+
+    static final String JOB_NAME = "request-reminders";
+
+    /**
+     * Ключ pg_try_advisory_xact_lock; общий для всех узлов приложения
+     */
+    static final long LOCK_KEY = 0x52454d494e444552L;
+
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_xact_lock(?)";
+
+    private static final String CLAIM_RUN_SQL =
+            "INSERT INTO bookings.job_runs (name, last_run_at) VALUES (?, ?) " +
+            "ON CONFLICT (name) DO UPDATE SET last_run_at = EXCLUDED.last_run_at " +
+            "WHERE bookings.job_runs.last_run_at < ?";
+
+    private static final String UNPROCESSED_SQL =
+            "SELECT e.id, e.email, e.first_name, e.last_name, COUNT(*) AS unprocessed " +
+            "FROM bookings.client_requests r " +
+            "JOIN bookings.employees e ON e.id = r.employee_id " +
+            "WHERE r.status = 'NEW' AND r.created_at < ? AND e.active = TRUE " +
+            "GROUP BY e.id, e.email, e.first_name, e.last_name";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailService emailService;
+
+    @Value("${app.reminders.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.reminders.min-age-minutes:60}")
+    private long minAgeMinutes = 60;
+
+    /**
+     * Повторный запуск раньше этого срока (с другого узла) пропускается
+     */
+    @Value("${app.reminders.min-interval-ms:3600000}")
+    private long minIntervalMs = 3_600_000;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public RequestReminderJob(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              EmailService emailService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.emailService = emailService;
+    }
+
+    /**
+     * @return число сотрудников, которым поставлено напоминание; 0, если запуск выполняет другой узел
+     */
+    @Scheduled(cron = "${app.reminders.cron:0 0 9 * * MON-FRI}")
+    public int sendReminders() {
+        if (!enabled) {
+            return 0;
+        }
+        Integer notified = transactionTemplate.execute(status -> {
+            // Блокировка снимается вместе с транзакцией, даже если узел упадет посреди рассылки
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(LOCK_SQL, Boolean.class, LOCK_KEY))) {
+                logger.debug("Request reminders are being sent by another instance");
+                return 0;
+            }
+            long now = clock.getAsLong();
+            if (jdbcTemplate.update(CLAIM_RUN_SQL, JOB_NAME, new Timestamp(now), new Timestamp(now - minIntervalMs)) == 0) {
+                logger.debug("Request reminders were already sent recently");
+                return 0;
+            }
+            List<Reminder> reminders = jdbcTemplate.query(UNPROCESSED_SQL, (rs, rowNum) -> {
+                Employee employee = new Employee();
+                employee.setId(rs.getLong("id"));
+                employee.setEmail(rs.getString("email"));
+                employee.setFirstName(rs.getString("first_name"));
+                employee.setLastName(rs.getString("last_name"));
+                return new Reminder(employee, rs.getInt("unprocessed"));
+            }, new Timestamp(now - minAgeMinutes * 60_000));
+            for (Reminder reminder : reminders) {
+                emailService.sendReminderNotification(reminder.employee(), reminder.unprocessed());
+            }
+            return reminders.size();
+        });
+        int count = notified != null ? notified : 0;
+        if (count > 0) {
+            logger.info("Queued unprocessed request reminders for {} employees", count);
+        }
+        return count;
+    }
+
+    private record Reminder(Employee employee, int unprocessed) {
+    }
+}
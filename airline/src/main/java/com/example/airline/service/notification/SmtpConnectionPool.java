@@ -0,0 +1,185 @@
+package com.example.airline.service.notification;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Пул подключенных и аутентифицированных SMTP-соединений.
+ *
+ * JavaMailSender открывает соединение (TCP, STARTTLS, AUTH) на каждый вызов send; пул держит
+ * до app.email.pool.size соединений открытыми между пакетами писем. Свободные соединения
+ * выдаются в порядке LIFO, а простаивающие дольше max-idle-ms закрываются: сервер все равно
+ * разорвал бы их по своему таймауту.
+ */
+@Component
+public class SmtpConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    private final JavaMailSenderImpl mailSender;
+    private final Semaphore permits;
+    private final Deque<IdleTransport> idle = new ArrayDeque<>();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    @Value("${app.email.pool.max-idle-ms:30000}")
+    private long maxIdleMs = 30_000;
+
+    @Value("${app.email.pool.borrow-timeout-ms:10000}")
+    private long borrowTimeoutMs = 10_000;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public SmtpConnectionPool(JavaMailSenderImpl mailSender, @Value("${app.email.pool.size:2}") int size) {
+        this.mailSender = mailSender;
+        this.permits = new Semaphore(size);
+    }
+
+    /**
+     * Взять соединение. Его нужно вернуть через {@link #release} или, если оно сломалось, {@link #invalidate}.
+     */
+    public Transport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection available within " + borrowTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for SMTP connection", e);
+        }
+        try {
+            Transport transport = takeIdle();
+            if (transport != null) {
+                reused.increment();
+                return transport;
+            }
+            transport = mailSender.getSession().getTransport(protocol());
+            transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+            opened.increment();
+            return transport;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(Transport transport) {
+        synchronized (idle) {
+            idle.addFirst(new IdleTransport(transport, clock.getAsLong()));
+        }
+        permits.release();
+    }
+
+    public void invalidate(Transport transport) {
+        close(transport);
+        permits.release();
+    }
+
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * Закрыть соединения, простаивающие дольше max-idle-ms
+     */
+    @Scheduled(fixedDelayString = "${app.email.pool.max-idle-ms:30000}")
+    public void evictIdle() {
+        long idleBefore = clock.getAsLong() - maxIdleMs;
+        List<Transport> expired = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<IdleTransport> iterator = idle.descendingIterator();
+            while (iterator.hasNext()) {
+                IdleTransport entry = iterator.next();
+                if (entry.since > idleBefore) {
+                    break;
+                }
+                iterator.remove();
+                expired.add(entry.transport);
+            }
+        }
+        expired.forEach(SmtpConnectionPool::close);
+    }
+
+    @PreDestroy
+    public void close() {
+        List<Transport> all = new ArrayList<>();
+        synchronized (idle) {
+            idle.forEach(entry -> all.add(entry.transport));
+            idle.clear();
+        }
+        all.forEach(SmtpConnectionPool::close);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (idle) {
+            stats.put("idle", idle.size());
+        }
+        stats.put("opened", opened.sum());
+        stats.put("reused", reused.sum());
+        return stats;
+    }
+
+    /**
+     * Свежее свободное соединение или null. Проверка isConnected у SMTP - это NOOP на сервер,
+     * поэтому закрытые сервером соединения отсеиваются до отправки.
+     */
+    private Transport takeIdle() {
+        long idleBefore = clock.getAsLong() - maxIdleMs;
+        while (true) {
+            IdleTransport entry;
+            synchronized (idle) {
+                entry = idle.pollFirst();
+            }
+            if (entry == null) {
+                return null;
+            }
+            if (entry.since > idleBefore && entry.transport.isConnected()) {
+                return entry.transport;
+            }
+            close(entry.transport);
+        }
+    }
+
+    /**
+     * Протокол выбирается так же, как в JavaMailSenderImpl
+     */
+    private String protocol() {
+        String protocol = mailSender.getProtocol();
+        if (protocol == null) {
+            protocol = mailSender.getSession().getProperty("mail.transport.protocol");
+        }
+        return protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Failed to close SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    private record IdleTransport(Transport transport, long since) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.airline.service.recommendation;
+
+/**
+ * Событие изменения предпочтений клиента: регистрация, избранное или новая заявка.
+ * Публикуется AuthService, FavoriteTourService и ClientRequestService; по нему
+ * пересчитываются рекомендации пользователя после коммита.
+ */
+public class ClientActivityEvent {
+    private final Long clientId;
+
+    public ClientActivityEvent(Long clientId) {
+        this.clientId = clientId;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.airline.service.recommendation;
+
+import com.example.airline.repository.client.ClientRepository;
+import com.example.airline.service.ml.MlServiceClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Предварительно рассчитанные персональные рекомендации.
+ *
+ * Рекомендации пользователя запрашиваются у ML-сервиса сразу после входа или регистрации
+ * и хранятся в памяти (LRU, не более max-users пользователей), поэтому главный экран
+ * мобильного приложения не ждет ML-сервис. При изменении избранного или заявок клиента
+ * рекомендации пересчитываются в фоне. Устаревшая запись отдается сразу и обновляется в фоне.
+ */
+@Service
+public class UserRecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserRecommendationService.class);
+
+    private final MlServiceClient mlServiceClient;
+    private final ClientRepository clientRepository;
+    private final Map<Long, Entry> entries;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.recommendations.precompute.limit:10}")
+    private int precomputeLimit = 10;
+
+    @Value("${app.recommendations.precompute.refresh-after-ms:1800000}")
+    private long refreshAfterMs = 1_800_000;
+
+    @Value("${app.recommendations.precompute.batch-size:100}")
+    private int batchSize = 100;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    public UserRecommendationService(MlServiceClient mlServiceClient,
+                                     ClientRepository clientRepository,
+                                     @Value("${app.recommendations.precompute.max-users:10000}") int maxUsers) {
+        this.mlServiceClient = mlServiceClient;
+        this.clientRepository = clientRepository;
+        // LinkedHashMap в режиме access-order вытесняет давно не заходивших пользователей
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Запустить расчет рекомендаций пользователя в фоне (вызывающий поток не ждет ML-сервис)
+     */
+    public void precompute(Long userId) {
+        if (userId != null) {
+            refreshInBackground(userId, false);
+        }
+    }
+
+    /**
+     * Рекомендации пользователя без фильтров: из памяти, если они уже рассчитаны
+     */
+    public Mono<JsonNode> getRecommendations(Long userId, int limit) {
+        Entry entry = get(userId);
+        if (entry == null || limit > precomputeLimit) {
+            return load(userId, false).map(value -> truncate(value, limit));
+        }
+        if (clock.getAsLong() - entry.computedAt >= refreshAfterMs) {
+            refreshInBackground(userId, false);
+        }
+        return Mono.just(truncate(entry.value, limit));
+    }
+
+    /**
+     * Рассчитать рекомендации для списка пользователей пакетами по batch-size за один вызов ML-сервиса
+     *
+     * @return число пользователей, для которых рекомендации получены
+     */
+    public Mono<Integer> precomputeBatch(List<Long> userIds) {
+        return Flux.fromIterable(userIds)
+                .distinct()
+                .buffer(batchSize)
+                .concatMap(batch -> mlServiceClient.getRecommendationsBatch(batch, precomputeLimit)
+                        .map(this::storeBatch)
+                        .defaultIfEmpty(0))
+                .reduce(0, Integer::sum);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClientActivity(ClientActivityEvent event) {
+        clientRepository.findUserIdById(event.getClientId())
+                .ifPresent(userId -> refreshInBackground(userId, true));
+    }
+
+    /**
+     * Сбросить все рассчитанные рекомендации (например, после изменения каталога)
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void refreshInBackground(Long userId, boolean bypassMlCache) {
+        // Не больше одного фонового расчета на пользователя
+        if (refreshing.add(userId)) {
+            load(userId, bypassMlCache)
+                    .doFinally(signal -> refreshing.remove(userId))
+                    .subscribe();
+        }
+    }
+
+    private Mono<JsonNode> load(Long userId, boolean bypassMlCache) {
+        Mono<JsonNode> call = bypassMlCache
+                ? mlServiceClient.refreshRecommendations(userId, precomputeLimit)
+                : mlServiceClient.getRecommendations(userId, null, null, null, null, precomputeLimit);
+        return call
+                .doOnNext(value -> put(userId, value))
+                .doOnError(e -> logger.debug("Failed to precompute recommendations for user {}: {}", userId, e.toString()));
+    }
+
+    private int storeBatch(JsonNode response) {
+        int stored = 0;
+        for (JsonNode result : response.path("results")) {
+            ObjectNode value = JsonNodeFactory.instance.objectNode();
+            value.set("recommendations", result.path("recommendations"));
+            value.set("total_tours_analyzed", response.path("total_tours_analyzed"));
+            value.set("model_version", response.path("model_version"));
+            put(result.path("user_id").asLong(), value);
+            stored++;
+        }
+        return stored;
+    }
+
+    // Ответ ML-сервиса: {recommendations: [...], total_tours_analyzed, model_version}
+    private static JsonNode truncate(JsonNode value, int limit) {
+        JsonNode recommendations = value.path("recommendations");
+        if (!recommendations.isArray() || recommendations.size() <= limit) {
+            return value;
+        }
+        ObjectNode copy = ((ObjectNode) value).deepCopy();
+        ArrayNode truncated = copy.putArray("recommendations");
+        for (int i = 0; i < limit; i++) {
+            truncated.add(recommendations.get(i));
+        }
+        return copy;
+    }
+
+    private synchronized Entry get(Long userId) {
+        return entries.get(userId);
+    }
+
+    private synchronized void put(Long userId, JsonNode value) {
+        entries.put(userId, new Entry(value, clock.getAsLong()));
+    }
+
+    private record Entry(JsonNode value, long computedAt) {
+    }
+}
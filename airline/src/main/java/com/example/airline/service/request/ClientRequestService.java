@@ -12,9 +12,11 @@ import com.example.airline.repository.client.ClientRepository;
 import com.example.airline.repository.tour.ClientRequestRepository;
 import com.example.airline.repository.user.EmployeeRepository;
 import com.example.airline.repository.tour.TourRepository;
-import com.example.airline.repository.user.UserRepository;
+import com.example.airline.service.analytics.TourEngagementService;
 import com.example.airline.service.notification.EmailService;
+import com.example.airline.service.recommendation.ClientActivityEvent;
 import com.example.airline.util.CustomValidator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -31,27 +33,30 @@ public class ClientRequestService {
     private final TourRepository tourRepository;
     private final EmployeeRepository employeeRepository;
     private final ClientRepository clientRepository;
-    private final UserRepository userRepository;
     private final RequestHistoryService historyService;
     private final CustomValidator customValidator;
     private final EmailService emailService;
+    private final TourEngagementService engagementService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ClientRequestService(ClientRequestRepository requestRepository,
                                TourRepository tourRepository,
                                EmployeeRepository employeeRepository,
                                ClientRepository clientRepository,
-                               UserRepository userRepository,
                                RequestHistoryService historyService,
                                CustomValidator customValidator,
-                               EmailService emailService) {
+                               EmailService emailService,
+                               TourEngagementService engagementService,
+                               ApplicationEventPublisher eventPublisher) {
         this.requestRepository = requestRepository;
         this.tourRepository = tourRepository;
         this.employeeRepository = employeeRepository;
         this.clientRepository = clientRepository;
-        this.userRepository = userRepository;
         this.historyService = historyService;
         this.customValidator = customValidator;
         this.emailService = emailService;
+        this.engagementService = engagementService;
+        this.eventPublisher = eventPublisher;
     }
 
     public ClientRequestDto createRequest(ClientRequestDto dto) {
@@ -89,24 +94,26 @@ public class ClientRequestService {
         
         // Отправляем email-уведомление клиенту
         emailService.sendRequestCreatedNotification(request);
+        engagementService.recordRequest(tour.getId());
+        if (client != null) {
+            eventPublisher.publishEvent(new ClientActivityEvent(client.getId()));
+        }
 
         return ClientRequestMapper.toDto(request);
     }
     
     /**
      * Создание заявки от авторизованного пользователя.
-     * Автоматически связывает заявку с клиентом по username.
+     * Заявка связывается с клиентом, идентификатор которого взят из токена.
      */
-    public ClientRequestDto createRequestForUser(ClientRequestDto dto, String username) {
+    public ClientRequestDto createRequestForUser(ClientRequestDto dto, Long clientId) {
         customValidator.validate(dto);
         
         Tour tour = tourRepository.findById(dto.getTourId())
                 .orElseThrow(() -> new IllegalArgumentException("Tour not found: " + dto.getTourId()));
         
-        // Находим клиента по username (через User)
-        Client client = userRepository.findByUsername(username)
-                .flatMap(user -> clientRepository.findByUserId(user.getId()))
-                .orElseThrow(() -> new IllegalArgumentException("Client not found for user: " + username));
+        Client client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new IllegalArgumentException("Client not found: " + clientId));
         
         // Используем данные из профиля клиента
         ClientRequest request = new ClientRequest(
@@ -130,6 +137,8 @@ public class ClientRequestService {
         
         // Отправляем email-уведомление клиенту
         emailService.sendRequestCreatedNotification(request);
+        engagementService.recordRequest(tour.getId());
+        eventPublisher.publishEvent(new ClientActivityEvent(client.getId()));
         
         return ClientRequestMapper.toDto(request);
     }
@@ -0,0 +1,470 @@
+package com.example.airline.service.tour;
+
+import com.example.airline.entity.tour.Tour;
+import com.example.airline.entity.tour.TourCategory;
+import com.example.airline.repository.tour.TourRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Индекс похожих туров (content-based kNN) внутри backend.
+ *
+ * Сходство двух туров - взвешенная сумма сходств по направлению, категориям, цене,
+ * длительности и TF-IDF описания. Для каждого тура заранее вычисляются K ближайших соседей
+ * и хранятся в примитивных массивах, поэтому ответ строится без вычислений.
+ *
+ * При изменении тура пересчитываются только затронутые окрестности: строка самого тура,
+ * строки, где он был соседом, и строки, куда он теперь проходит по порогу. IDF фиксируется
+ * при полной перестройке, которая выполняется периодически.
+ */
+@Service
+public class SimilarToursIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarToursIndex.class);
+
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    private final TourRepository tourRepository;
+    private final int neighbours;
+
+    @Value("${app.similarity.weight.destination:0.30}")
+    private double destinationWeight = 0.30;
+
+    @Value("${app.similarity.weight.categories:0.20}")
+    private double categoriesWeight = 0.20;
+
+    @Value("${app.similarity.weight.price:0.20}")
+    private double priceWeight = 0.20;
+
+    @Value("${app.similarity.weight.duration:0.10}")
+    private double durationWeight = 0.10;
+
+    @Value("${app.similarity.weight.text:0.20}")
+    private double textWeight = 0.20;
+
+    // Словарь и IDF меняются только под монитором this
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private float[] idf = new float[0];
+    private int documentsAtRebuild;
+
+    // Опубликованное состояние индекса; строки массивов после публикации не изменяются
+    private volatile Index index = new Index(0);
+
+    public SimilarToursIndex(TourRepository tourRepository,
+                             @Value("${app.similarity.neighbours:20}") int neighbours) {
+        this.tourRepository = tourRepository;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Похожие туры в формате ML-сервиса; пустой Optional, если тур не проиндексирован
+     */
+    public Optional<JsonNode> findSimilar(long tourId, int limit) {
+        Index current = index;
+        Integer slot = current.slotById.get(tourId);
+        if (slot == null) {
+            return Optional.empty();
+        }
+        int[] slots = current.neighbourSlots[slot];
+        float[] scores = current.neighbourScores[slot];
+        ArrayNode result = JsonNodeFactory.instance.arrayNode();
+        for (int i = 0; i < slots.length && result.size() < limit; i++) {
+            int other = slots[i];
+            ObjectNode node = result.addObject();
+            node.put("tour_id", current.ids[other]);
+            node.put("tour_name", current.names[other]);
+            node.put("destination", current.destinations[other]);
+            node.put("price", current.prices[other]);
+            node.put("score", Math.round(scores[i] * 1000) / 1000.0);
+            node.put("reason", reason(current, slot, other));
+        }
+        return Optional.of(result);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${app.similarity.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${app.similarity.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        try {
+            List<Tour> tours = tourRepository.findActiveWithCategories();
+            long start = System.nanoTime();
+            synchronized (this) {
+                rebuildVocabulary(tours);
+                Index next = new Index(tours.size());
+                for (Tour tour : tours) {
+                    next.put(tour, vectorize(tour.getDescription()));
+                }
+                for (int slot = 0; slot < next.count; slot++) {
+                    recomputeRow(next, slot);
+                }
+                index = next;
+            }
+            logger.info("Similar tours index rebuilt: {} tours in {} ms",
+                    tours.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.warn("Failed to rebuild similar tours index: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTourChanged(TourChangedEvent event) {
+        if (event.getTour().isActive()) {
+            tourRepository.findByIdWithCategories(event.getTourId()).ifPresent(this::update);
+        } else {
+            remove(event.getTourId());
+        }
+    }
+
+    synchronized void update(Tour tour) {
+        Index next = index.copy();
+        int slot = next.put(tour, vectorize(tour.getDescription()));
+
+        float[] sims = new float[next.count];
+        for (int other = 0; other < next.count; other++) {
+            if (other != slot && next.active[other]) {
+                sims[other] = similarity(next, slot, other);
+            }
+        }
+        recomputeRow(next, slot);
+
+        for (int other = 0; other < next.count; other++) {
+            if (other == slot || !next.active[other]) {
+                continue;
+            }
+            int[] row = next.neighbourSlots[other];
+            if (indexOf(row, slot) >= 0) {
+                // Сходство с измененным туром могло упасть - пересчитываем окрестность целиком
+                recomputeRow(next, other);
+            } else if (row.length < neighbours || sims[other] > next.neighbourScores[other][row.length - 1]) {
+                insertNeighbour(next, other, slot, sims[other]);
+            }
+        }
+        index = next;
+    }
+
+    synchronized void remove(Long tourId) {
+        Integer slot = index.slotById.get(tourId);
+        if (slot == null) {
+            return;
+        }
+        Index next = index.copy();
+        next.active[slot] = false;
+        next.slotById.remove(tourId);
+        next.neighbourSlots[slot] = new int[0];
+        next.neighbourScores[slot] = new float[0];
+        for (int other = 0; other < next.count; other++) {
+            if (next.active[other] && indexOf(next.neighbourSlots[other], slot) >= 0) {
+                recomputeRow(next, other);
+            }
+        }
+        index = next;
+    }
+
+    private void recomputeRow(Index target, int slot) {
+        int size = 0;
+        int[] topSlots = new int[neighbours];
+        float[] topScores = new float[neighbours];
+        for (int other = 0; other < target.count; other++) {
+            if (other == slot || !target.active[other]) {
+                continue;
+            }
+            float score = similarity(target, slot, other);
+            if (size < neighbours) {
+                size++;
+            } else if (score <= topScores[size - 1]) {
+                continue;
+            }
+            // Вставка в отсортированный по убыванию массив (K невелико)
+            int pos = size - 1;
+            while (pos > 0 && topScores[pos - 1] < score) {
+                topScores[pos] = topScores[pos - 1];
+                topSlots[pos] = topSlots[pos - 1];
+                pos--;
+            }
+            topScores[pos] = score;
+            topSlots[pos] = other;
+        }
+        target.neighbourSlots[slot] = Arrays.copyOf(topSlots, size);
+        target.neighbourScores[slot] = Arrays.copyOf(topScores, size);
+    }
+
+    private void insertNeighbour(Index target, int slot, int neighbour, float score) {
+        int[] oldSlots = target.neighbourSlots[slot];
+        float[] oldScores = target.neighbourScores[slot];
+        int size = Math.min(oldSlots.length + 1, neighbours);
+        int[] slots = new int[size];
+        float[] scores = new float[size];
+        int src = 0;
+        boolean inserted = false;
+        for (int dst = 0; dst < size; dst++) {
+            if (!inserted && (src >= oldSlots.length || score > oldScores[src])) {
+                slots[dst] = neighbour;
+                scores[dst] = score;
+                inserted = true;
+            } else {
+                slots[dst] = oldSlots[src];
+                scores[dst] = oldScores[src];
+                src++;
+            }
+        }
+        target.neighbourSlots[slot] = slots;
+        target.neighbourScores[slot] = scores;
+    }
+
+    float similarity(Index target, int a, int b) {
+        double sum = 0;
+        if (target.destinationKeys[a].equals(target.destinationKeys[b])) {
+            sum += destinationWeight;
+        }
+        sum += categoriesWeight * overlap(target.categories[a], target.categories[b]);
+        sum += priceWeight * Math.exp(-Math.abs(target.logPrices[a] - target.logPrices[b]));
+        sum += durationWeight * Math.exp(-Math.abs(target.durations[a] - target.durations[b]) / 7.0);
+        sum += textWeight * dot(target.terms[a], target.termWeights[a], target.terms[b], target.termWeights[b]);
+        return (float) (sum / (destinationWeight + categoriesWeight + priceWeight + durationWeight + textWeight));
+    }
+
+    private String reason(Index target, int slot, int other) {
+        if (target.destinationKeys[slot].equals(target.destinationKeys[other])) {
+            return "То же направление";
+        }
+        if (overlap(target.categories[slot], target.categories[other]) > 0) {
+            return "Похожая категория тура";
+        }
+        return "Похожие цена, длительность и описание";
+    }
+
+    private void rebuildVocabulary(List<Tour> tours) {
+        termIds.clear();
+        Map<Integer, Integer> documentFrequency = new HashMap<>();
+        for (Tour tour : tours) {
+            for (String token : distinctTokens(tour.getDescription())) {
+                int termId = termIds.computeIfAbsent(token, t -> termIds.size());
+                documentFrequency.merge(termId, 1, Integer::sum);
+            }
+        }
+        documentsAtRebuild = tours.size();
+        idf = new float[termIds.size()];
+        for (Map.Entry<Integer, Integer> entry : documentFrequency.entrySet()) {
+            idf[entry.getKey()] = idfFor(entry.getValue());
+        }
+    }
+
+    // TF-IDF описания, нормированный по L2; термины отсортированы по id для слияния при скалярном произведении
+    private Sparse vectorize(String text) {
+        Map<Integer, Integer> tf = new HashMap<>();
+        for (String token : tokens(text)) {
+            int termId = termIds.computeIfAbsent(token, t -> termIds.size());
+            tf.merge(termId, 1, Integer::sum);
+        }
+        int[] ids = tf.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        float[] weights = new float[ids.length];
+        double norm = 0;
+        for (int i = 0; i < ids.length; i++) {
+            // Новый термин, которого не было при перестройке, считается редким
+            float termIdf = ids[i] < idf.length && idf[ids[i]] > 0 ? idf[ids[i]] : idfFor(0);
+            weights[i] = (float) ((1 + Math.log(tf.get(ids[i]))) * termIdf);
+            norm += weights[i] * weights[i];
+        }
+        if (norm > 0) {
+            float inv = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] *= inv;
+            }
+        }
+        return new Sparse(ids, weights);
+    }
+
+    private float idfFor(int documentFrequency) {
+        return (float) (Math.log((documentsAtRebuild + 1.0) / (documentFrequency + 1.0)) + 1.0);
+    }
+
+    private static List<String> distinctTokens(String text) {
+        return tokens(text).stream().distinct().toList();
+    }
+
+    private static List<String> tokens(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+"))
+                .filter(token -> token.length() >= MIN_TOKEN_LENGTH)
+                .toList();
+    }
+
+    private static double overlap(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int common = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return common / Math.sqrt((double) a.length * b.length);
+    }
+
+    private static double dot(int[] aIds, float[] aWeights, int[] bIds, float[] bWeights) {
+        double sum = 0;
+        for (int i = 0, j = 0; i < aIds.length && j < bIds.length; ) {
+            if (aIds[i] == bIds[j]) {
+                sum += aWeights[i++] * bWeights[j++];
+            } else if (aIds[i] < bIds[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    private static int indexOf(int[] row, int slot) {
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private record Sparse(int[] ids, float[] weights) {
+    }
+
+    /**
+     * Признаки и соседи туров по слотам. При изменении создается копия внешних массивов,
+     * строки заменяются целиком - читатели всегда видят согласованное состояние.
+     */
+    static final class Index {
+        int count;
+        long[] ids;
+        String[] names;
+        String[] destinations;
+        String[] destinationKeys;
+        double[] prices;
+        float[] logPrices;
+        float[] durations;
+        long[][] categories;
+        int[][] terms;
+        float[][] termWeights;
+        boolean[] active;
+        int[][] neighbourSlots;
+        float[][] neighbourScores;
+        Map<Long, Integer> slotById;
+
+        Index(int capacity) {
+            ids = new long[capacity];
+            names = new String[capacity];
+            destinations = new String[capacity];
+            destinationKeys = new String[capacity];
+            prices = new double[capacity];
+            logPrices = new float[capacity];
+            durations = new float[capacity];
+            categories = new long[capacity][];
+            terms = new int[capacity][];
+            termWeights = new float[capacity][];
+            active = new boolean[capacity];
+            neighbourSlots = new int[capacity][];
+            neighbourScores = new float[capacity][];
+            slotById = new HashMap<>();
+        }
+
+        Index copy() {
+            Index copy = new Index(0);
+            copy.count = count;
+            copy.ids = ids.clone();
+            copy.names = names.clone();
+            copy.destinations = destinations.clone();
+            copy.destinationKeys = destinationKeys.clone();
+            copy.prices = prices.clone();
+            copy.logPrices = logPrices.clone();
+            copy.durations = durations.clone();
+            copy.categories = categories.clone();
+            copy.terms = terms.clone();
+            copy.termWeights = termWeights.clone();
+            copy.active = active.clone();
+            copy.neighbourSlots = neighbourSlots.clone();
+            copy.neighbourScores = neighbourScores.clone();
+            copy.slotById = new HashMap<>(slotById);
+            return copy;
+        }
+
+        int put(Tour tour, Sparse text) {
+            Integer existing = slotById.get(tour.getId());
+            int slot = existing != null ? existing : append(tour.getId());
+            double price = tour.getPrice() != null ? tour.getPrice().doubleValue() : 0;
+            names[slot] = tour.getName();
+            destinations[slot] = tour.getDestinationCity();
+            destinationKeys[slot] = tour.getDestinationCity() != null
+                    ? tour.getDestinationCity().trim().toLowerCase(Locale.ROOT) : "";
+            prices[slot] = price;
+            logPrices[slot] = (float) Math.log1p(Math.max(price, 0));
+            durations[slot] = tour.getDurationDays() != null ? tour.getDurationDays() : 0;
+            categories[slot] = tour.getCategories() == null ? new long[0] : tour.getCategories().stream()
+                    .map(TourCategory::getId)
+                    .mapToLong(Long::longValue)
+                    .sorted()
+                    .toArray();
+            terms[slot] = text.ids();
+            termWeights[slot] = text.weights();
+            active[slot] = true;
+            if (neighbourSlots[slot] == null) {
+                neighbourSlots[slot] = new int[0];
+                neighbourScores[slot] = new float[0];
+            }
+            return slot;
+        }
+
+        private int append(long tourId) {
+            if (count == ids.length) {
+                grow(Math.max(16, count * 2));
+            }
+            int slot = count++;
+            ids[slot] = tourId;
+            slotById.put(tourId, slot);
+            return slot;
+        }
+
+        private void grow(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            destinations = Arrays.copyOf(destinations, capacity);
+            destinationKeys = Arrays.copyOf(destinationKeys, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            logPrices = Arrays.copyOf(logPrices, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            terms = Arrays.copyOf(terms, capacity);
+            termWeights = Arrays.copyOf(termWeights, capacity);
+            active = Arrays.copyOf(active, capacity);
+            neighbourSlots = Arrays.copyOf(neighbourSlots, capacity);
+            neighbourScores = Arrays.copyOf(neighbourScores, capacity);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.airline.service.tour;
+
+import com.example.airline.dto.tour.TourDto;
+
+/**
+ * Событие изменения каталога туров (создание, обновление, деактивация).
+ * Публикуется TourService; слушатели обновляют свои in-memory индексы после коммита.
+ */
+public class TourChangedEvent {
+    private final TourDto tour;
+
+    public TourChangedEvent(TourDto tour) {
+        this.tour = tour;
+    }
+
+    public TourDto getTour() {
+        return tour;
+    }
+
+    public Long getTourId() {
+        return tour.getId();
+    }
+}
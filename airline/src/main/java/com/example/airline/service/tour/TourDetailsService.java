@@ -0,0 +1,138 @@
+package com.example.airline.service.tour;
+
+import com.example.airline.dto.flight.FlightDto;
+import com.example.airline.dto.tour.TourDetailsDto;
+import com.example.airline.dto.tour.TourDto;
+import com.example.airline.mapper.flight.FlightMapper;
+import com.example.airline.mapper.tour.TourMapper;
+import com.example.airline.service.favorite.FavoriteTourService;
+import com.example.airline.service.ml.MlServiceClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Сборка составной карточки тура.
+ * Тур загружается в потоке запроса, остальные секции - параллельно на ограниченном пуле,
+ * каждая со своим дедлайном. Секция, не успевшая к дедлайну, возвращается пустой.
+ */
+@Service
+public class TourDetailsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TourDetailsService.class);
+
+    static final String SECTION_FLIGHTS = "flights";
+    static final String SECTION_SIMILAR = "similarTours";
+    static final String SECTION_FAVORITE = "favorite";
+
+    private final TourService tourService;
+    private final FavoriteTourService favoriteTourService;
+    private final MlServiceClient mlServiceClient;
+    private final SimilarToursIndex similarToursIndex;
+    private final Executor executor;
+
+    @Value("${app.tour-details.part-timeout-ms:2000}")
+    private long partTimeoutMs = 2000;
+
+    @Value("${app.tour-details.similar-timeout-ms:1500}")
+    private long similarTimeoutMs = 1500;
+
+    @Value("${app.tour-details.similar-limit:5}")
+    private int similarLimit = 5;
+
+    public TourDetailsService(TourService tourService,
+                              FavoriteTourService favoriteTourService,
+                              MlServiceClient mlServiceClient,
+                              SimilarToursIndex similarToursIndex,
+                              @Qualifier("tourDetailsExecutor") Executor executor) {
+        this.tourService = tourService;
+        this.favoriteTourService = favoriteTourService;
+        this.mlServiceClient = mlServiceClient;
+        this.similarToursIndex = similarToursIndex;
+        this.executor = executor;
+    }
+
+    /**
+     * Получить карточку тура.
+     *
+     * @param tourId   идентификатор тура
+     * @param clientId клиент авторизованного пользователя или null (анонимный запрос или не клиент)
+     * @return пустой Optional, если тур не найден
+     */
+    public Optional<TourDetailsDto> getTourDetails(Long tourId, Long clientId) {
+        CompletableFuture<List<FlightDto>> flightsPart = submit(() -> tourService.getTourFlights(tourId).stream()
+                .map(FlightMapper::toDTO)
+                .toList())
+                .orTimeout(partTimeoutMs, TimeUnit.MILLISECONDS);
+
+        // Похожие туры берутся из локального индекса; ML-сервис - только если тур еще не проиндексирован
+        Optional<JsonNode> indexedSimilar = similarToursIndex.findSimilar(tourId, similarLimit);
+        CompletableFuture<JsonNode> similarPart = indexedSimilar.isPresent()
+                ? CompletableFuture.completedFuture(indexedSimilar.get())
+                : mlServiceClient.getSimilarTours(tourId.intValue(), similarLimit)
+                        .toFuture()
+                        .orTimeout(similarTimeoutMs, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<Boolean> favoritePart = clientId == null
+                ? CompletableFuture.completedFuture(null)
+                : submit(() -> favoriteTourService.isFavorite(clientId, tourId)).orTimeout(partTimeoutMs, TimeUnit.MILLISECONDS);
+
+        Optional<TourDto> tour = tourService.findById(tourId).map(TourMapper::toDto);
+        if (tour.isEmpty()) {
+            flightsPart.cancel(false);
+            similarPart.cancel(false);
+            favoritePart.cancel(false);
+            return Optional.empty();
+        }
+
+        TourDetailsDto details = new TourDetailsDto();
+        details.setTour(tour.get());
+        details.setFlights(await(flightsPart, List.of(), SECTION_FLIGHTS, details));
+        details.setFavorite(await(favoritePart, null, SECTION_FAVORITE, details));
+
+        JsonNode similar = await(similarPart, null, SECTION_SIMILAR, details);
+        if (similar == null) {
+            // ML-сервис вернул пустой ответ (ошибка уже обработана в MlServiceClient)
+            if (!details.getDegradedSections().contains(SECTION_SIMILAR)) {
+                details.getDegradedSections().add(SECTION_SIMILAR);
+            }
+            similar = JsonNodeFactory.instance.arrayNode();
+        }
+        details.setSimilarTours(similar);
+
+        return Optional.of(details);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> part, T fallback, String section, TourDetailsDto details) {
+        try {
+            return part.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.warn("Tour details section '{}' degraded: {}", section, cause.toString());
+            details.getDegradedSections().add(section);
+            return fallback;
+        }
+    }
+}
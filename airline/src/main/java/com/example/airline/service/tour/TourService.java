@@ -7,6 +7,7 @@ import com.example.airline.mapper.tour.TourMapper;
 import com.example.airline.repository.flight.FlightRepository;
 import com.example.airline.repository.tour.TourRepository;
 import com.example.airline.util.CustomValidator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -24,13 +25,16 @@ public class TourService {
     private final TourRepository tourRepository;
     private final FlightRepository flightRepository;
     private final CustomValidator customValidator;
+    private final ApplicationEventPublisher eventPublisher;
 
     public TourService(TourRepository tourRepository, 
                       FlightRepository flightRepository,
-                      CustomValidator customValidator) {
+                      CustomValidator customValidator,
+                      ApplicationEventPublisher eventPublisher) {
         this.tourRepository = tourRepository;
         this.flightRepository = flightRepository;
         this.customValidator = customValidator;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -77,7 +81,7 @@ public class TourService {
         }
 
         tour = tourRepository.save(tour);
-        return TourMapper.toDto(tour);
+        return publishChanged(TourMapper.toDto(tour));
     }
 
     public TourDto updateTour(Long id, TourDto dto) {
@@ -100,14 +104,15 @@ public class TourService {
         }
 
         tour = tourRepository.save(tour);
-        return TourMapper.toDto(tour);
+        return publishChanged(TourMapper.toDto(tour));
     }
 
     public void deleteTour(Long id) {
         Tour tour = tourRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Tour not found: " + id));
         tour.setActive(false);
-        tourRepository.save(tour);
+        tour = tourRepository.save(tour);
+        publishChanged(TourMapper.toDto(tour));
     }
 
     @Transactional(readOnly = true)
@@ -116,5 +121,9 @@ public class TourService {
                 .orElseThrow(() -> new IllegalArgumentException("Tour not found: " + tourId));
         return List.copyOf(tour.getFlights());
     }
-}
 
+    private TourDto publishChanged(TourDto dto) {
+        eventPublisher.publishEvent(new TourChangedEvent(dto));
+        return dto;
+    }
+}
@@ -0,0 +1,16 @@
+-- Агрегированные счетчики вовлеченности по турам (просмотры, заявки, избранное).
+-- Заполняется пакетным upsert из TourEngagementService, а не строкой на каждое событие.
+CREATE TABLE IF NOT EXISTS bookings.tour_engagement (
+    tour_id BIGINT PRIMARY KEY,
+    views BIGINT NOT NULL DEFAULT 0,
+    requests BIGINT NOT NULL DEFAULT 0,
+    favorites BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_engagement_tour FOREIGN KEY (tour_id) REFERENCES bookings.tours(id) ON DELETE CASCADE
+);
+
+-- Индексы для сортировки туров по популярности
+CREATE INDEX IF NOT EXISTS idx_tour_engagement_views ON bookings.tour_engagement(views DESC);
+CREATE INDEX IF NOT EXISTS idx_tour_engagement_requests ON bookings.tour_engagement(requests DESC);
+CREATE INDEX IF NOT EXISTS idx_tour_engagement_favorites ON bookings.tour_engagement(favorites DESC);
@@ -0,0 +1,3 @@
+-- Версия токенов пользователя: токены с версией ниже текущей считаются отозванными
+ALTER TABLE bookings.users
+ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,29 @@
+-- Refresh-токены: хранится только SHA-256 токена. Токены одной цепочки ротации
+-- имеют общий family_id; повторное использование отозванного токена отзывает всю цепочку.
+CREATE TABLE IF NOT EXISTS bookings.refresh_tokens (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    token_hash VARCHAR(64) NOT NULL UNIQUE,
+    family_id VARCHAR(36) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_refresh_token_user FOREIGN KEY (user_id) REFERENCES bookings.users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_id ON bookings.refresh_tokens(user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family_id ON bookings.refresh_tokens(family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at ON bookings.refresh_tokens(expires_at);
+
+-- Отозванные до истечения access-токены (выход из аккаунта). Все экземпляры backend'а
+-- периодически подгружают новые строки в память; строки удаляются после истечения токена.
+CREATE TABLE IF NOT EXISTS bookings.revoked_tokens (
+    token_id VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_revoked_at ON bookings.revoked_tokens(revoked_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at ON bookings.revoked_tokens(expires_at);
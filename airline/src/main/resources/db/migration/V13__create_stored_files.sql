@@ -0,0 +1,25 @@
+-- Содержимое загруженных файлов, адресуемое SHA-256: uploads/objects/ab/cd/<hash>.
+-- Одинаковые загрузки хранятся один раз.
+CREATE TABLE IF NOT EXISTS bookings.stored_files (
+    hash CHAR(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    content_type VARCHAR(100),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    touched_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Кто использует файл (тур, заявка). Файл без ссылок удаляется сборщиком мусора
+-- по истечении grace-периода после последней загрузки.
+CREATE TABLE IF NOT EXISTS bookings.file_references (
+    id BIGSERIAL PRIMARY KEY,
+    file_hash CHAR(64) NOT NULL,
+    owner_type VARCHAR(20) NOT NULL,
+    owner_id BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_file_reference_file FOREIGN KEY (file_hash) REFERENCES bookings.stored_files(hash),
+    CONSTRAINT uq_file_reference UNIQUE (file_hash, owner_type, owner_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_references_owner ON bookings.file_references(owner_type, owner_id);
+CREATE INDEX IF NOT EXISTS idx_stored_files_touched_at ON bookings.stored_files(touched_at);
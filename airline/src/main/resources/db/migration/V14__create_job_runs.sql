@@ -0,0 +1,11 @@
+-- Время последнего запуска периодических задач, которые должны выполняться одним узлом
+-- (напоминания сотрудникам). Запуск, пришедший с другого узла сразу после, пропускается.
+CREATE TABLE IF NOT EXISTS bookings.job_runs (
+    name VARCHAR(100) PRIMARY KEY,
+    last_run_at TIMESTAMP NOT NULL
+);
+
+-- Необработанные заявки по сотрудникам для напоминаний
+CREATE INDEX IF NOT EXISTS idx_client_requests_new_by_employee
+    ON bookings.client_requests(employee_id, created_at)
+    WHERE status = 'NEW';
@@ -0,0 +1,124 @@
+package com.example.airline.integration;
+
+import com.example.airline.controller.admin.AdminAnalyticsController;
+import com.example.airline.controller.public_api.RecommendationController;
+import com.example.airline.service.analytics.AnalyticsOverviewService;
+import com.example.airline.service.analytics.DemandForecastService;
+import com.example.airline.service.analytics.PopularityRankingService;
+import com.example.airline.service.analytics.StreamingAnomalyDetector;
+import com.example.airline.service.ml.MlCallGuard;
+import com.example.airline.service.ml.MlCircuitBreaker;
+import com.example.airline.service.ml.MlResponseCache;
+import com.example.airline.service.ml.MlServiceClient;
+import com.example.airline.service.recommendation.UserRecommendationService;
+import com.example.airline.service.tour.SimilarToursIndex;
+import com.example.airline.support.ml.LoadTestDriver;
+import com.example.airline.support.ml.StubMlServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Нагрузочный прогон ML-зависимых endpoint'ов против StubMlServer без Python-сервиса и БД.
+ * Кэш ответов отключен, чтобы каждый вызов доходил до заглушки. Зависит от времени, поэтому
+ * в обычный прогон не входит: mvn test -Dgroups=load -Dtest.excludedGroups=
+ */
+@Tag("load")
+class MlBackedEndpointsLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(MlBackedEndpointsLoadTest.class);
+
+    private static final int CONCURRENCY = 32;
+    private static final int REQUESTS = 400;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private StubMlServer stub;
+    private RecommendationController recommendationController;
+    private AdminAnalyticsController analyticsController;
+
+    @BeforeEach
+    void setUp() {
+        stub = StubMlServer.start().latencyMs(20).payloadItems(20);
+
+        MockEnvironment environment = new MockEnvironment();
+        MlResponseCache cache = new MlResponseCache(environment);
+        ReflectionTestUtils.setField(cache, "enabled", false);
+        MlCallGuard guard = new MlCallGuard(new MlCircuitBreaker(20, 10, 0.5, 30_000, 3), environment);
+        ReflectionTestUtils.setField(guard, "defaultMaxConcurrent", CONCURRENCY);
+        MlServiceClient client = new MlServiceClient(stub.url(), cache, guard);
+
+        recommendationController = new RecommendationController(client,
+                mock(PopularityRankingService.class), mock(SimilarToursIndex.class),
+                mock(UserRecommendationService.class));
+        ReflectionTestUtils.setField(recommendationController, "similarSource", "ml");
+        analyticsController = new AdminAnalyticsController(client, cache,
+                new AnalyticsOverviewService(client), guard, mock(DemandForecastService.class),
+                mock(StreamingAnomalyDetector.class));
+
+        // Прогрев WebClient: первое соединение не должно попадать в перцентили
+        client.healthCheck().block(TIMEOUT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void recommendationEndpoints_ShouldSustainLoadAgainstStub() {
+        LoadTestDriver.Report popular = LoadTestDriver.run("GET /recommendations/popular", CONCURRENCY, REQUESTS,
+                () -> ok(recommendationController.getPopularTours(10).block(TIMEOUT)));
+        LoadTestDriver.Report similar = LoadTestDriver.run("GET /recommendations/similar/{id}", CONCURRENCY, REQUESTS,
+                () -> ok(recommendationController.getSimilarTours(
+                        ThreadLocalRandom.current().nextInt(1, 200), 5).block(TIMEOUT)));
+
+        logger.info("{}", popular);
+        logger.info("{}", similar);
+        assertThat(popular.errors()).isZero();
+        assertThat(similar.errors()).isZero();
+        assertThat(similar.percentileMs(50)).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void analyticsOverview_ShouldCoalesceIdenticalCallsUnderLoad() {
+        LoadTestDriver.Report overview = LoadTestDriver.run("GET /admin/analytics/overview", CONCURRENCY, REQUESTS,
+                () -> ok(analyticsController.getOverview(30, 12, null).block(TIMEOUT)));
+
+        logger.info("{}; stub ML requests: {}", overview, stub.totalRequests());
+        assertThat(overview.errors()).isZero();
+        // Без объединения одинаковых вызовов было бы по 5 запросов на каждую сводку
+        assertThat(stub.totalRequests()).isLessThan(REQUESTS * 5L);
+    }
+
+    @Test
+    void analyticsEndpoints_WhenStubFails_ShouldOpenBreakerAndFailFast() {
+        // Given
+        stub.errorRate(1.0).latencyMs(50);
+
+        // When
+        LoadTestDriver.Report dashboard = LoadTestDriver.run("GET /admin/analytics/dashboard (failing ML)", 4, 200,
+                () -> ok(analyticsController.getDashboard().block(TIMEOUT)));
+
+        // Then: после открытия автомата запросы к заглушке прекращаются
+        logger.info("{}", dashboard);
+        assertThat(dashboard.errors()).isEqualTo(200);
+        assertThat(stub.requestCount("/analytics/dashboard")).isLessThan(50);
+        assertThat(dashboard.percentileMs(50)).isLessThan(50);
+    }
+
+    private static boolean ok(ResponseEntity<?> response) {
+        return response != null && response.getStatusCode().is2xxSuccessful() && response.getBody() != null;
+    }
+}
@@ -31,7 +31,9 @@ import static org.assertj.core.api.Assertions.assertThat;
         com.example.airline.service.request.RequestHistoryService.class,
         com.example.airline.util.CustomValidator.class,
         com.example.airline.mapper.request.ClientRequestMapper.class,
-        com.example.airline.service.notification.EmailService.class})
+        com.example.airline.service.notification.EmailService.class,
+        com.example.airline.service.analytics.TourEngagementService.class,
+        com.example.airline.service.analytics.PopularityRankingService.class})
 class RequestFlowIntegrationTest {
 
     @Autowired
@@ -0,0 +1,46 @@
+package com.example.airline.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_ShouldNeverMissAddedValues() {
+        // Given
+        BloomFilter filter = new BloomFilter(1000, 0.001);
+        String[] values = new String[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = UUID.randomUUID().toString();
+            filter.add(values[i]);
+        }
+
+        // When / Then
+        for (String value : values) {
+            assertThat(filter.mightContain(value)).isTrue();
+        }
+    }
+
+    @Test
+    void mightContain_ShouldKeepFalsePositivesNearConfiguredRate() {
+        // Given
+        BloomFilter filter = new BloomFilter(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(UUID.randomUUID().toString());
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        // Then: ожидается около 100, с большим запасом на разброс
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.airline.security;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitFilterTest {
+
+    private long now;
+    private ConcurrencyLimiter limiter;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.concurrency.employee.share", "1.0")
+                .withProperty("app.concurrency.analytics.share", "0.5");
+        limiter = new ConcurrencyLimiter(environment, 10);
+        limiter.clock = () -> now;
+        filter = new ConcurrencyLimitFilter(limiter, 2);
+    }
+
+    @Test
+    void tryAcquire_WhenBusy_ShouldShedAnalyticsBeforeEmployeeRequests() {
+        // Given: половина лимита занята
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            permits.add(limiter.tryAcquire("employee"));
+        }
+
+        // When / Then
+        assertThat(limiter.tryAcquire("analytics")).isNull();
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("employee")).isNotNull();
+        }
+        assertThat(limiter.tryAcquire("employee")).isNull();
+        assertThat(limiter.getInFlight()).isEqualTo(10);
+
+        permits.forEach(ConcurrencyLimiter.Permit::release);
+        permits.get(0).release();
+        assertThat(limiter.getInFlight()).isEqualTo(5);
+    }
+
+    @Test
+    void release_WhenLatencyGrowsUnderLoad_ShouldLowerLimit() {
+        // Given: базовая задержка 10 мс
+        complete("employee", 10);
+        int before = limiter.getLimit();
+
+        // When: под нагрузкой задержка выросла в 10 раз
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < before; i++) {
+            permits.add(limiter.tryAcquire("employee"));
+        }
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+        permits.forEach(ConcurrencyLimiter.Permit::release);
+
+        // Then
+        assertThat(limiter.getLimit()).isLessThan(before);
+    }
+
+    @Test
+    void release_WhenLimitSaturatedWithStableLatency_ShouldRaiseLimit() {
+        // Given
+        complete("employee", 10);
+        int before = limiter.getLimit();
+
+        // When
+        for (int round = 0; round < 5; round++) {
+            List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                permits.add(limiter.tryAcquire("employee"));
+            }
+            now += TimeUnit.MILLISECONDS.toNanos(10);
+            permits.forEach(ConcurrencyLimiter.Permit::release);
+        }
+
+        // Then
+        assertThat(limiter.getLimit()).isGreaterThan(before);
+    }
+
+    @Test
+    void release_WhenIdle_ShouldNotRaiseLimit() {
+        // When
+        for (int i = 0; i < 100; i++) {
+            complete("employee", 10);
+        }
+
+        // Then
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void doFilter_WhenOverLimit_ShouldRespond503WithRetryAfter() throws Exception {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("employee");
+        }
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/admin/statistics/dashboard"), response,
+                (request, servletResponse) -> { });
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(limiter.getStats()).extracting("groups").asString().contains("analytics");
+    }
+
+    @Test
+    void doFilter_WhenFileDownload_ShouldBypassLimiter() throws Exception {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("employee");
+        }
+        boolean[] served = new boolean[1];
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/files/tours/photo.jpg"), response,
+                (request, servletResponse) -> served[0] = true);
+
+        // Then
+        assertThat(served[0]).isTrue();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void doFilter_ShouldHoldSlotUntilAsyncRequestCompletes() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/analytics/overview");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, (servletRequest, servletResponse) -> servletRequest.startAsync());
+
+        // Then
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onComplete(new AsyncEvent(asyncContext));
+        }
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void doFilter_WhenHandlerThrows_ShouldReleaseAndLowerLimit() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/employee/requests");
+
+        // When
+        assertThatThrownBy(() -> filter.doFilter(request, new MockHttpServletResponse(),
+                (servletRequest, servletResponse) -> {
+                    throw new IllegalStateException("boom");
+                })).isInstanceOf(IllegalStateException.class);
+
+        // Then
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getLimit()).isEqualTo(9);
+    }
+
+    @Test
+    void group_ShouldSeparateEmployeeWorkFromAnalytics() {
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("GET", "/employee/requests"))).isEqualTo("employee");
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("PUT", "/admin/requests/5/status"))).isEqualTo("employee");
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("GET", "/admin/statistics/dashboard"))).isEqualTo("analytics");
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("GET", "/admin/tours"))).isEqualTo("admin");
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("GET", "/tours"))).isEqualTo("public");
+    }
+
+    private void complete(String group, long latencyMs) {
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire(group);
+        now += TimeUnit.MILLISECONDS.toNanos(latencyMs);
+        permit.release();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.airline.security;
+
+import com.example.airline.repository.user.RefreshTokenRepository;
+import com.example.airline.repository.user.RevokedTokenRepository;
+import com.example.airline.repository.user.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Горячий путь JwtAuthenticationFilter: разбор токена, проверка отзыва и установка Authentication.
+ * cacheSize=0 - проверка подписи на каждом запросе, иначе claims берутся из LRU.
+ *
+ * Запуск после mvn test-compile (main с тестовым classpath), например из IDE или:
+ * <pre>
+ * mvn -q exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.airline.security.JwtAuthenticationFilterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "BenchmarkSecretKeyThatIsAtLeast256BitsLongForHS256Algorithm";
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3_600_000L, cacheSize);
+        filter = new JwtAuthenticationFilter(jwtUtil, new TokenRevocationService(mock(UserRepository.class),
+                mock(RevokedTokenRepository.class), mock(RefreshTokenRepository.class)));
+        String token = jwtUtil.generateToken(User.withUsername("manager")
+                .password("")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_EMPLOYEE")))
+                .build(), 7L, 3L, null, 0);
+        request = new MockHttpServletRequest("GET", "/employee/requests");
+        request.addHeader("Authorization", "Bearer " + token);
+    }
+
+    @Benchmark
+    public Object authenticate() throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.airline.security;
+
+import com.example.airline.entity.user.RevokedToken;
+import com.example.airline.repository.user.RefreshTokenRepository;
+import com.example.airline.repository.user.RevokedTokenRepository;
+import com.example.airline.repository.user.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "TestSecretKeyThatIsAtLeast256BitsLongForHS256Algorithm";
+
+    private UserRepository userRepository;
+    private RevokedTokenRepository revokedTokenRepository;
+    private JwtUtil jwtUtil;
+    private TokenRevocationService revocationService;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        jwtUtil = new JwtUtil(SECRET, 3_600_000L, 100);
+        revocationService = new TokenRevocationService(userRepository, revokedTokenRepository,
+                mock(RefreshTokenRepository.class));
+        filter = new JwtAuthenticationFilter(jwtUtil, revocationService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ShouldAuthenticateFromClaimsWithoutUserLookup() throws Exception {
+        // Given
+        String token = jwtUtil.generateToken(user("manager", "ROLE_EMPLOYEE"), 7L, 3L, null, 0);
+
+        // When
+        Authentication authentication = filter(token);
+
+        // Then
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getName()).isEqualTo("manager");
+        assertThat(authentication.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_EMPLOYEE");
+        assertThat(authentication.getPrincipal()).isInstanceOfSatisfying(AuthenticatedUser.class, user -> {
+            assertThat(user.getUserId()).isEqualTo(7L);
+            assertThat(user.getEmployeeId()).isEqualTo(3L);
+            assertThat(user.getClientId()).isNull();
+        });
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void doFilter_WhenTokenLoggedOut_ShouldNotAuthenticate() throws Exception {
+        // Given
+        String token = jwtUtil.generateToken(user("client", "ROLE_USER"), 8L, null, 5L, 0);
+        revocationService.revoke(jwtUtil.parseClaims(token));
+
+        // When / Then
+        assertThat(filter(token)).isNull();
+    }
+
+    @Test
+    void sync_ShouldPickUpTokensRevokedOnOtherInstances() throws Exception {
+        // Given
+        String token = jwtUtil.generateToken(user("client", "ROLE_USER"), 8L, null, 5L, 0);
+        Claims claims = jwtUtil.parseClaims(token);
+        assertThat(filter(token)).isNotNull();
+        when(revokedTokenRepository.findRevokedSince(any(), any())).thenReturn(List.of(new RevokedToken(
+                claims.getId(), 8L,
+                LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()),
+                LocalDateTime.now())));
+
+        // When
+        revocationService.sync();
+
+        // Then
+        assertThat(filter(token)).isNull();
+        verify(revokedTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void doFilter_WhenUserTokensRevoked_ShouldRejectOnlyOlderVersions() throws Exception {
+        // Given
+        String oldToken = jwtUtil.generateToken(user("client", "ROLE_USER"), 8L, null, 5L, 0);
+        when(userRepository.incrementTokenVersion(8L)).thenReturn(1);
+        when(userRepository.findTokenVersionById(8L)).thenReturn(Optional.of(1));
+
+        // When
+        revocationService.revokeAllForUser(8L);
+        String newToken = jwtUtil.generateToken(user("client", "ROLE_USER"), 8L, null, 5L, 1);
+
+        // Then
+        assertThat(filter(oldToken)).isNull();
+        assertThat(filter(newToken)).isNotNull();
+    }
+
+    @Test
+    void doFilter_WhenTokenHasNoRolesClaim_ShouldRequireNewLogin() throws Exception {
+        // Given: токен старого формата, только subject
+        String token = Jwts.builder()
+                .subject("legacy")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        // When / Then
+        assertThat(filter(token)).isNull();
+    }
+
+    @Test
+    void purgeExpired_ShouldForgetRevokedTokensAfterExpiry() {
+        // Given
+        String token = jwtUtil.generateToken(user("client", "ROLE_USER"), 8L, null, 5L, 0);
+        revocationService.revoke(jwtUtil.parseClaims(token));
+        assertThat(revocationService.revokedCount()).isEqualTo(1);
+
+        // When
+        revocationService.clock = () -> System.currentTimeMillis() + 3_600_001L;
+        revocationService.purgeExpired();
+
+        // Then
+        assertThat(revocationService.revokedCount()).isZero();
+    }
+
+    private Authentication filter(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/client/requests");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static UserDetails user(String username, String role) {
+        return User.withUsername(username)
+                .password("")
+                .authorities(List.of(new SimpleGrantedAuthority(role)))
+                .build();
+    }
+}
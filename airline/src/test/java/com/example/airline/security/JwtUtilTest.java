@@ -0,0 +1,81 @@
+package com.example.airline.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "TestSecretKeyThatIsAtLeast256BitsLongForHS256Algorithm";
+
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000L, 2);
+
+    @Test
+    void parseClaims_ShouldVerifyTokenOnceAndReuseClaims() {
+        // Given
+        String token = jwtUtil.generateToken(user(), 7L, 3L, null, 0);
+
+        // When
+        Claims first = jwtUtil.parseClaims(token);
+        Claims second = jwtUtil.parseClaims(token);
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(jwtUtil.extractUsername(token)).isEqualTo("manager");
+        assertThat(jwtUtil.validateToken(token, user())).isTrue();
+        assertThat(second.get(JwtUtil.CLAIM_EMPLOYEE_ID, Long.class)).isEqualTo(3L);
+        assertThat(jwtUtil.cachedClaimsCount()).isEqualTo(1);
+    }
+
+    @Test
+    void parseClaims_WhenCachedTokenExpires_ShouldRejectIt() {
+        // Given
+        String token = jwtUtil.generateToken(user(), 7L, 3L, null, 0);
+        jwtUtil.parseClaims(token);
+
+        // When
+        jwtUtil.clock = () -> System.currentTimeMillis() + 120_000L;
+
+        // Then: кэш не продлевает жизнь токена, повторная проверка парсером отклоняет его
+        assertThatThrownBy(() -> jwtUtil.parseClaims(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void parseClaims_WhenTokenTampered_ShouldNotHitCache() {
+        // Given
+        String token = jwtUtil.generateToken(user(), 7L, 3L, null, 0);
+        jwtUtil.parseClaims(token);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1] + "x." + parts[2];
+
+        // When / Then
+        assertThatThrownBy(() -> jwtUtil.parseClaims(forged)).isInstanceOf(RuntimeException.class);
+        assertThat(jwtUtil.cachedClaimsCount()).isEqualTo(1);
+    }
+
+    @Test
+    void parseClaims_ShouldKeepCacheBounded() {
+        // When
+        for (int i = 0; i < 5; i++) {
+            jwtUtil.parseClaims(jwtUtil.generateToken(user(), 7L, 3L, null, 0));
+        }
+
+        // Then
+        assertThat(jwtUtil.cachedClaimsCount()).isEqualTo(2);
+    }
+
+    private static UserDetails user() {
+        return User.withUsername("manager")
+                .password("")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_EMPLOYEE")))
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.airline.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы RateLimitFilter на разрешенном запросе: limited - маршрут с бакетами IP
+ * и пользователя, unlimited - маршрут без ограничения (только сопоставление пути).
+ * Цепочка фильтров пустая, чтобы измерялся только сам фильтр.
+ *
+ * Запуск после mvn test-compile (main с тестовым classpath), например из IDE или:
+ * <pre>
+ * mvn -q exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.airline.security.RateLimitFilterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+
+    private RateLimitFilter filter;
+    private MockHttpServletRequest limitedRequest;
+    private MockHttpServletRequest unlimitedRequest;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.rate-limit.recommendations.ip.capacity", String.valueOf(Integer.MAX_VALUE))
+                .withProperty("app.rate-limit.recommendations.ip.refill-per-minute", String.valueOf(Integer.MAX_VALUE));
+        filter = new RateLimitFilter(new RateLimiter(environment, 16), false);
+        limitedRequest = new MockHttpServletRequest("GET", "/recommendations");
+        limitedRequest.setRemoteAddr("10.0.0.1");
+        unlimitedRequest = new MockHttpServletRequest("GET", "/tours/42");
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object limited() throws Exception {
+        filter.doFilter(limitedRequest, response, (request, response) -> { });
+        return response;
+    }
+
+    @Benchmark
+    public Object unlimited() throws Exception {
+        filter.doFilter(unlimitedRequest, response, (request, response) -> { });
+        return response;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimitFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
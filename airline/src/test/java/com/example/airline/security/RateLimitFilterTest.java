@@ -0,0 +1,142 @@
+package com.example.airline.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private long now;
+    private RateLimiter rateLimiter;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.rate-limit.login.ip.capacity", "2")
+                .withProperty("app.rate-limit.login.ip.refill-per-minute", "6")
+                .withProperty("app.rate-limit.tour-request.ip.capacity", "100")
+                .withProperty("app.rate-limit.tour-request.ip.refill-per-minute", "100")
+                .withProperty("app.rate-limit.tour-request.user.capacity", "1")
+                .withProperty("app.rate-limit.tour-request.user.refill-per-minute", "1");
+        rateLimiter = new RateLimiter(environment, 4);
+        rateLimiter.clock = () -> now;
+        filter = new RateLimitFilter(rateLimiter, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_WhenBurstExceeded_ShouldRejectWithRetryAfterUntilRefill() throws Exception {
+        // Given
+        assertThat(login("10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(login("10.0.0.1").getStatus()).isEqualTo(200);
+
+        // When
+        MockHttpServletResponse rejected = login("10.0.0.1");
+
+        // Then: 6 токенов в минуту - новый через 10 секунд
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("11");
+        assertThat(login("10.0.0.2").getStatus()).isEqualTo(200);
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertThat(login("10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(rejectedCount("login.ip")).isEqualTo(1L);
+    }
+
+    @Test
+    void doFilter_ShouldLimitAuthenticatedUserAcrossAddresses() throws Exception {
+        // Given
+        authenticate(8L);
+        assertThat(tourRequest("10.0.0.1").getStatus()).isEqualTo(200);
+
+        // When: тот же пользователь с другого адреса
+        MockHttpServletResponse rejected = tourRequest("10.0.0.2");
+
+        // Then
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        authenticate(9L);
+        assertThat(tourRequest("10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void doFilter_ShouldUseAddressAppendedByProxy() throws Exception {
+        // Given: клиент подставляет свой X-Forwarded-For, прокси дописывает реальный адрес
+        login("spoofed-1, 10.0.0.1");
+        login("spoofed-2, 10.0.0.1");
+
+        // When / Then
+        assertThat(login("spoofed-3, 10.0.0.1").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void route_ShouldMatchOnlyLimitedEndpoints() {
+        assertThat(RateLimitFilter.route(new MockHttpServletRequest("POST", "/auth/login"))).isEqualTo("login");
+        assertThat(RateLimitFilter.route(new MockHttpServletRequest("POST", "/tours/42/request"))).isEqualTo("tour-request");
+        assertThat(RateLimitFilter.route(new MockHttpServletRequest("GET", "/recommendations/similar/5"))).isEqualTo("recommendations");
+        assertThat(RateLimitFilter.route(new MockHttpServletRequest("GET", "/auth/login"))).isNull();
+        assertThat(RateLimitFilter.route(new MockHttpServletRequest("POST", "/tours/42/images/request"))).isNull();
+        assertThat(RateLimitFilter.route(new MockHttpServletRequest("GET", "/tours/42"))).isNull();
+    }
+
+    @Test
+    void evictIdle_ShouldDropBucketsNotUsedForIdlePeriod() throws Exception {
+        // Given
+        login("10.0.0.1");
+        now += TimeUnit.MINUTES.toNanos(5);
+        login("10.0.0.2");
+        assertThat(rateLimiter.bucketCount()).isEqualTo(2);
+
+        // When
+        now += TimeUnit.MINUTES.toNanos(6);
+        rateLimiter.evictIdle();
+
+        // Then
+        assertThat(rateLimiter.bucketCount()).isEqualTo(1);
+    }
+
+    private MockHttpServletResponse login(String forwardedFor) throws Exception {
+        return perform(new MockHttpServletRequest("POST", "/auth/login"), forwardedFor);
+    }
+
+    private MockHttpServletResponse tourRequest(String forwardedFor) throws Exception {
+        return perform(new MockHttpServletRequest("POST", "/tours/42/request"), forwardedFor);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, String forwardedFor) throws Exception {
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static void authenticate(Long userId) {
+        AuthenticatedUser user = new AuthenticatedUser("client" + userId,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")), userId, null, 5L);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private long rejectedCount(String limit) {
+        Map<String, Object> limits = (Map<String, Object>) rateLimiter.getStats().get("limits");
+        return (Long) ((Map<String, Object>) limits.get(limit)).get("rejected");
+    }
+}
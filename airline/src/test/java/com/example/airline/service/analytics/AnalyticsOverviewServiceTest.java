@@ -0,0 +1,114 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.service.ml.MlServiceClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsOverviewServiceTest {
+
+    private static final Duration SLOW_ML = Duration.ofMillis(500);
+
+    @Mock
+    private MlServiceClient mlServiceClient;
+
+    private AnalyticsOverviewService overviewService;
+
+    /**
+     * Вызовы ML-заглушки, начатые и еще не завершенные, и их максимум
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        overviewService = new AnalyticsOverviewService(mlServiceClient);
+    }
+
+    @Test
+    void getOverview_ShouldFetchPartsConcurrently() {
+        // Given: каждая часть отвечает за 500 мс
+        stubAll(SLOW_ML);
+
+        // When
+        JsonNode overview = overviewService.getOverview(30, 12, null).block();
+
+        // Then: все пять частей запрошены до того, как ответила первая
+        assertThat(overview).isNotNull();
+        assertThat(overview.get("dashboard").get("section").asText()).isEqualTo("dashboard");
+        assertThat(overview.get("forecast").get("section").asText()).isEqualTo("forecast");
+        assertThat(overview.get("degraded_sections")).isEmpty();
+        assertThat(peakInFlight.get()).isEqualTo(5);
+    }
+
+    @Test
+    void getOverview_WhenPartFailsOrExceedsBudget_ShouldDegradeOnlyThatPart() {
+        // Given
+        stubAll(Duration.ZERO);
+        when(mlServiceClient.getSeasonalTrends(12)).thenReturn(section("trends").delayElement(Duration.ofSeconds(30)));
+        when(mlServiceClient.getAnomalousTours()).thenReturn(Mono.empty());
+
+        // When
+        JsonNode overview = overviewService.getOverview(30, 12, null).block();
+
+        // Then
+        assertThat(overview.get("dashboard").isNull()).isFalse();
+        assertThat(overview.get("trends").isNull()).isTrue();
+        assertThat(overview.get("anomalies").isNull()).isTrue();
+        assertThat(overview.get("degraded_sections")).extracting(JsonNode::asText)
+                .containsExactly("trends", "anomalies");
+    }
+
+    @Test
+    void getOverview_UnderConcurrentLoadWithSlowMl_ShouldNotHoldThreadPerRequest() {
+        // Given: 200 одновременных запросов сводки при медленном ML-сервисе
+        stubAll(SLOW_ML);
+        int requests = 200;
+
+        // When
+        List<JsonNode> results = Flux.range(0, requests)
+                .flatMap(i -> overviewService.getOverview(30, 12, null), requests)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        // Then: все вызовы ML ожидаются одновременно, без потока на запрос, который
+        // ограничил бы их число размером пула
+        assertThat(results).hasSize(requests)
+                .allSatisfy(overview -> assertThat(overview.get("degraded_sections")).isEmpty());
+        assertThat(peakInFlight.get()).isEqualTo(requests * 5);
+    }
+
+    private void stubAll(Duration latency) {
+        lenient().when(mlServiceClient.getDashboardData()).thenReturn(slow(section("dashboard"), latency));
+        lenient().when(mlServiceClient.getStatistics(30)).thenReturn(slow(section("statistics"), latency));
+        lenient().when(mlServiceClient.getSeasonalTrends(12)).thenReturn(slow(section("trends"), latency));
+        lenient().when(mlServiceClient.getAnomalousTours()).thenReturn(slow(section("anomalies"), latency));
+        lenient().when(mlServiceClient.getDemandForecast(null)).thenReturn(slow(section("forecast"), latency));
+    }
+
+    private Mono<JsonNode> slow(Mono<JsonNode> value, Duration latency) {
+        Mono<JsonNode> delayed = latency.isZero() ? value : value.delayElement(latency);
+        return Mono.defer(() -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return delayed.doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    private static Mono<JsonNode> section(String name) {
+        return Mono.just(JsonNodeFactory.instance.objectNode().put("section", name));
+    }
+}
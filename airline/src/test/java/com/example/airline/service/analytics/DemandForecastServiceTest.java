@@ -0,0 +1,133 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.entity.tour.RequestStatus;
+import com.example.airline.repository.tour.ClientRequestRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DemandForecastServiceTest {
+
+    private static final YearMonth NOW = YearMonth.of(2025, 1);
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private ClientRequestRepository requestRepository;
+    private DemandForecastService service;
+
+    @BeforeEach
+    void setUp() {
+        requestRepository = mock(ClientRequestRepository.class);
+        service = new DemandForecastService(requestRepository, 2);
+        service.clock = now::get;
+        service.currentMonth = () -> NOW;
+    }
+
+    @Test
+    void getForecast_ShouldReturnMlServiceShape() {
+        // Given: Сочи растет, Казань стабильна
+        List<Object[]> rows = new ArrayList<>();
+        rows.addAll(history("Сочи", 12, m -> 10 + 2 * m, 50_000, 0.5));
+        rows.addAll(history("Казань", 12, m -> 8, 30_000, 0.25));
+        when(requestRepository.findMonthlyDemandSince(any(), eq(RequestStatus.COMPLETED))).thenReturn(rows);
+
+        // When
+        JsonNode response = service.getForecast("Сочи", 6);
+
+        // Then
+        assertThat(response.path("destination").asText()).isEqualTo("Сочи");
+        JsonNode forecast = response.path("forecast");
+        assertThat(forecast).hasSize(6);
+        assertThat(forecast.get(0).path("date").asText()).isEqualTo("2025-01");
+        assertThat(forecast.get(0).path("predictedDemand").asInt()).isBetween(30, 36);
+        assertThat(forecast.get(5).path("predictedDemand").asInt()).isGreaterThan(forecast.get(0).path("predictedDemand").asInt());
+        assertThat(forecast.get(0).path("predictedRevenue").asDouble())
+                .isEqualTo(forecast.get(0).path("predictedDemand").asInt() * 0.5 * 50_000);
+        assertThat(forecast.get(1).path("confidence").asDouble()).isLessThan(forecast.get(0).path("confidence").asDouble());
+        assertThat(response.path("totalPredictedRevenue").asDouble()).isPositive();
+        assertThat(response.path("destinationBreakdown")).hasSize(2);
+        assertThat(response.path("destinationBreakdown").get(0).path("trend").asText()).isEqualTo("rising");
+        assertThat(response.path("destinationBreakdown").get(1).path("trend").asText()).isEqualTo("stable");
+        assertThat(response.path("recommendations")).hasSize(1);
+        assertThat(response.path("hasMore").asBoolean()).isFalse();
+    }
+
+    @Test
+    void getForecast_WithoutEnoughHistory_ShouldReturnEmptyForecast() {
+        // Given
+        when(requestRepository.findMonthlyDemandSince(any(), any()))
+                .thenReturn(history("Сочи", 2, m -> 1, 50_000, 0));
+
+        // When
+        JsonNode response = service.getForecast("Сочи", 6);
+
+        // Then
+        assertThat(response.path("forecast")).isEmpty();
+        assertThat(response.path("recommendations").get(0).asText()).startsWith("Недостаточно данных");
+    }
+
+    @Test
+    void getSeasonalForecast_ShouldForecastTotalDemandWithTopDestinations() {
+        // Given
+        List<Object[]> rows = new ArrayList<>();
+        for (int d = 0; d < 20; d++) {
+            int base = d + 1;
+            rows.addAll(history("Город " + d, 24, m -> base, 40_000, 0.3));
+        }
+        when(requestRepository.findMonthlyDemandSince(any(), any())).thenReturn(rows);
+
+        // When
+        JsonNode response = service.getSeasonalForecast(3);
+
+        // Then
+        assertThat(response).hasSize(3);
+        JsonNode first = response.get(0);
+        assertThat(first.path("month").asInt()).isEqualTo(1);
+        assertThat(first.path("month_name").asText()).isEqualTo("Январь (прогноз)");
+        assertThat(first.path("request_count").asInt()).isBetween(200, 220);
+        assertThat(first.path("avg_price").asDouble()).isEqualTo(40_000.0);
+        assertThat(first.path("top_destinations")).extracting(JsonNode::asText)
+                .containsExactly("Город 19", "Город 18", "Город 17");
+        assertThat(first.path("is_forecast").asBoolean()).isTrue();
+    }
+
+    @Test
+    void snapshot_ShouldBeCachedUntilRefitInterval() {
+        // Given
+        when(requestRepository.findMonthlyDemandSince(any(), any()))
+                .thenReturn(history("Сочи", 12, m -> 10, 50_000, 0.5));
+
+        // When
+        service.getForecast(null, 3);
+        service.getSeasonalForecast(3);
+        now.addAndGet(3_600_000);
+        service.getForecast(null, 3);
+
+        // Then
+        verify(requestRepository, times(2)).findMonthlyDemandSince(any(), any());
+    }
+
+    private static List<Object[]> history(String destination, int months,
+                                          java.util.function.IntUnaryOperator demand,
+                                          double avgPrice, double conversion) {
+        List<Object[]> rows = new ArrayList<>();
+        YearMonth first = NOW.minusMonths(months);
+        for (int m = 0; m < months; m++) {
+            YearMonth month = first.plusMonths(m);
+            long count = demand.applyAsInt(m);
+            rows.add(new Object[]{destination, month.getYear(), month.getMonthValue(), count, avgPrice,
+                    Math.round(count * conversion)});
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.airline.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HoltWintersModelTest {
+
+    @Test
+    void fit_WithSeasonalSeries_ShouldRepeatSeasonalPattern() {
+        // Given: три года с пиком летом и ростом на 1 заявку в месяц
+        double[] series = new double[36];
+        for (int t = 0; t < series.length; t++) {
+            series[t] = 50 + t + 20 * Math.sin(2 * Math.PI * t / 12);
+        }
+
+        // When
+        HoltWintersModel model = HoltWintersModel.fit(series);
+
+        // Then
+        for (int h = 1; h <= 6; h++) {
+            int t = series.length + h - 1;
+            double expected = 50 + t + 20 * Math.sin(2 * Math.PI * t / 12);
+            assertThat(model.forecast(h)).isCloseTo(expected, within(3.0));
+        }
+        assertThat(model.trend()).isCloseTo(1.0, within(0.3));
+        assertThat(model.confidence()).isGreaterThan(0.9);
+    }
+
+    @Test
+    void fit_WithShortSeries_ShouldExtrapolateTrend() {
+        // Given
+        double[] series = {10, 12, 14, 16, 18, 20};
+
+        // When
+        HoltWintersModel model = HoltWintersModel.fit(series);
+
+        // Then
+        assertThat(model.forecast(1)).isCloseTo(22, within(0.5));
+        assertThat(model.forecast(3)).isCloseTo(26, within(1.0));
+        assertThat(model.trend()).isCloseTo(2, within(0.2));
+    }
+
+    @Test
+    void confidence_WithNoisySeries_ShouldBeLowerThanForSmoothSeries() {
+        double[] smooth = {10, 10, 11, 10, 10, 11, 10, 10};
+        double[] noisy = {2, 25, 1, 30, 3, 18, 0, 27};
+
+        assertThat(HoltWintersModel.fit(noisy).confidence())
+                .isLessThan(HoltWintersModel.fit(smooth).confidence());
+    }
+}
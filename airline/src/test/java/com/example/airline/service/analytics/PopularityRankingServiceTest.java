@@ -0,0 +1,116 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.dto.tour.TourDto;
+import com.example.airline.repository.client.FavoriteTourRepository;
+import com.example.airline.repository.tour.ClientRequestRepository;
+import com.example.airline.repository.tour.TourEngagementRepository;
+import com.example.airline.repository.tour.TourRepository;
+import com.example.airline.service.tour.TourChangedEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class PopularityRankingServiceTest {
+
+    private static final long HOUR_MS = 3_600_000L;
+
+    @Mock
+    private TourRepository tourRepository;
+
+    @Mock
+    private ClientRequestRepository requestRepository;
+
+    @Mock
+    private FavoriteTourRepository favoriteTourRepository;
+
+    @Mock
+    private TourEngagementRepository engagementRepository;
+
+    private PopularityRankingService rankingService;
+
+    @BeforeEach
+    void setUp() {
+        // Период полураспада 1 час, в топе держим 3 тура
+        rankingService = new PopularityRankingService(tourRepository, requestRepository,
+                favoriteTourRepository, engagementRepository, 1.0, 3);
+        for (long id = 1; id <= 5; id++) {
+            rankingService.onTourChanged(new TourChangedEvent(tour(id, true)));
+        }
+    }
+
+    @Test
+    void getPopularTours_ShouldOrderByDecayedScore() {
+        // Given: тур 1 получил больше событий, но давно; тур 2 - меньше, но сейчас
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            rankingService.record(1L, 1.0, now - 3 * HOUR_MS);
+        }
+        rankingService.record(2L, 1.0, now);
+        rankingService.record(3L, 0.1, now);
+
+        // When
+        JsonNode result = rankingService.getPopularTours(10);
+
+        // Then: 4 * 2^-3 = 0.5 < 1
+        assertThat(tourIds(result)).containsExactly(2L, 1L, 3L);
+        assertThat(result.get(0).get("score").asDouble()).isEqualTo(1.0);
+        assertThat(result.get(0).get("tour_name").asText()).isEqualTo("Тур 2");
+    }
+
+    @Test
+    void record_WhenHeapIsFull_ShouldEvictLowestScore() {
+        // Given
+        long now = System.currentTimeMillis();
+        rankingService.record(1L, 1.0, now);
+        rankingService.record(2L, 2.0, now);
+        rankingService.record(3L, 3.0, now);
+
+        // When
+        rankingService.record(4L, 1.5, now);
+        rankingService.record(1L, 0.1, now);
+
+        // Then
+        assertThat(tourIds(rankingService.getPopularTours(10))).containsExactly(3L, 2L, 4L);
+    }
+
+    @Test
+    void onTourChanged_WhenTourDeactivated_ShouldRemoveItAndRefillTop() {
+        // Given
+        long now = System.currentTimeMillis();
+        for (long id = 1; id <= 4; id++) {
+            rankingService.record(id, id, now);
+        }
+
+        // When
+        rankingService.onTourChanged(new TourChangedEvent(tour(4L, false)));
+
+        // Then
+        assertThat(tourIds(rankingService.getPopularTours(10))).containsExactly(3L, 2L, 1L);
+    }
+
+    private static List<Long> tourIds(JsonNode result) {
+        List<Long> ids = new ArrayList<>();
+        result.forEach(node -> ids.add(node.get("tour_id").asLong()));
+        return ids;
+    }
+
+    private static TourDto tour(long id, boolean active) {
+        TourDto dto = new TourDto();
+        dto.setId(id);
+        dto.setName("Тур " + id);
+        dto.setDestinationCity("Сочи");
+        dto.setPrice(new BigDecimal("45000.00"));
+        dto.setActive(active);
+        return dto;
+    }
+}
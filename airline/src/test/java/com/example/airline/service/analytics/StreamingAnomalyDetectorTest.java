@@ -0,0 +1,116 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.repository.tour.ClientRequestRepository;
+import com.example.airline.repository.tour.TourRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class StreamingAnomalyDetectorTest {
+
+    private static final long DAY = 86_400_000L;
+
+    private final AtomicLong now = new AtomicLong(100 * DAY);
+
+    private StreamingAnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new StreamingAnomalyDetector(mock(TourRepository.class), mock(ClientRequestRepository.class));
+        detector.clock = now::get;
+        for (long id = 1; id <= 5; id++) {
+            detector.onTour(id, "Тур " + id, "Сочи", 50_000 + id * 1_000, true, false);
+        }
+    }
+
+    @Test
+    void onTour_WhenPriceJumps_ShouldFlagImmediately() {
+        // When
+        detector.onTour(1L, "Тур 1", "Сочи", 80_000, true, true);
+
+        // Then
+        assertThat(types()).contains(StreamingAnomalyDetector.PRICE_JUMP);
+        Map<String, Object> anomaly = detector.getAnomalies().get(0);
+        assertThat(anomaly.get("tour_id")).isEqualTo(1L);
+        assertThat(anomaly.get("destination")).isEqualTo("Сочи");
+    }
+
+    @Test
+    void onTour_WhenPriceFarFromDestination_ShouldFlagOutlierAndClearAfterCorrection() {
+        // When
+        detector.onTour(6L, "Тур 6", "Сочи", 500_000, true, true);
+
+        // Then
+        assertThat(types()).containsExactly(StreamingAnomalyDetector.PRICE_OUTLIER);
+
+        // When: цену исправили
+        detector.onTour(6L, "Тур 6", "Сочи", 52_000, true, true);
+
+        // Then: скачок цены остается, выброса больше нет
+        assertThat(types()).containsExactly(StreamingAnomalyDetector.PRICE_JUMP);
+    }
+
+    @Test
+    void onRequest_WhenRateSpikes_ShouldFlagBeforeBucketCloses() {
+        // Given: две недели по 2 заявки в день
+        for (int day = 0; day < 14; day++) {
+            requests(1L, 2);
+            now.addAndGet(DAY);
+        }
+        detector.rollBuckets();
+        assertThat(detector.getAnomalies()).isEmpty();
+
+        // When
+        requests(1L, 12);
+
+        // Then: всплеск и по туру, и по направлению
+        assertThat(detector.getAnomalies())
+                .extracting(anomaly -> anomaly.get("anomaly_type"))
+                .containsOnly(StreamingAnomalyDetector.REQUEST_SPIKE)
+                .hasSize(2);
+    }
+
+    @Test
+    void rollBuckets_WhenRequestsStop_ShouldFlagDrop() {
+        // Given: две недели по 10 заявок в день
+        for (int day = 0; day < 14; day++) {
+            requests(2L, 10);
+            now.addAndGet(DAY);
+        }
+
+        // When: день без заявок
+        now.addAndGet(DAY);
+        detector.rollBuckets();
+
+        // Then
+        assertThat(types()).contains(StreamingAnomalyDetector.REQUEST_DROP);
+    }
+
+    @Test
+    void onTour_WhenDeactivated_ShouldDropTourAnomalies() {
+        // Given
+        detector.onTour(1L, "Тур 1", "Сочи", 80_000, true, true);
+
+        // When
+        detector.onTour(1L, "Тур 1", "Сочи", 80_000, false, true);
+
+        // Then
+        assertThat(detector.getAnomalies()).isEmpty();
+    }
+
+    private void requests(long tourId, int count) {
+        for (int i = 0; i < count; i++) {
+            detector.onRequest(tourId);
+        }
+    }
+
+    private List<Object> types() {
+        return detector.getAnomalies().stream().map(anomaly -> anomaly.get("anomaly_type")).toList();
+    }
+}
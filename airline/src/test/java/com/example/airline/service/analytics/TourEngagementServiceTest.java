@@ -0,0 +1,84 @@
+package com.example.airline.service.analytics;
+
+import com.example.airline.repository.tour.TourEngagementRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TourEngagementServiceTest {
+
+    @Mock
+    private TourEngagementRepository engagementRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PopularityRankingService rankingService;
+
+    @Mock
+    private StreamingAnomalyDetector anomalyDetector;
+
+    private TourEngagementService engagementService;
+
+    @BeforeEach
+    void setUp() {
+        engagementService = new TourEngagementService(engagementRepository, jdbcTemplate, rankingService, anomalyDetector);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldSendOneBatchWithAccumulatedDeltas() {
+        // Given
+        engagementService.recordView(1L);
+        engagementService.recordView(1L);
+        engagementService.recordRequest(1L);
+        engagementService.recordFavorite(2L);
+
+        // When
+        engagementService.flush();
+
+        // Then
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), captor.capture());
+        assertThat(captor.getValue())
+                .extracting(row -> List.of(row))
+                .containsExactlyInAnyOrder(List.of(1L, 2L, 1L, 0L), List.of(2L, 0L, 0L, 1L));
+
+        // Повторный сброс без новых событий не обращается к БД
+        engagementService.flush();
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_WhenDatabaseFails_ShouldKeepDeltasForNextFlush() {
+        // Given
+        engagementService.recordView(1L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenReturn(new int[]{1});
+
+        // When
+        engagementService.flush();
+        engagementService.flush();
+
+        // Then
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), captor.capture());
+        assertThat(captor.getAllValues().get(1).get(0)).containsExactly(1L, 1L, 0L, 0L);
+    }
+}
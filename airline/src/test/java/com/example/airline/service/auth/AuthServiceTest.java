@@ -0,0 +1,137 @@
+package com.example.airline.service.auth;
+
+import com.example.airline.dto.auth.AuthRequest;
+import com.example.airline.dto.auth.AuthResponse;
+import com.example.airline.entity.client.Client;
+import com.example.airline.entity.user.Role;
+import com.example.airline.entity.user.RoleName;
+import com.example.airline.entity.user.User;
+import com.example.airline.repository.client.ClientRepository;
+import com.example.airline.repository.user.EmployeeRepository;
+import com.example.airline.repository.user.RoleRepository;
+import com.example.airline.repository.user.UserRepository;
+import com.example.airline.security.JwtUtil;
+import com.example.airline.security.TokenRevocationService;
+import com.example.airline.service.recommendation.UserRecommendationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AuthServiceTest {
+
+    private static final String SECRET = "TestSecretKeyThatIsAtLeast256BitsLongForHS256Algorithm";
+
+    private UserRepository userRepository;
+    private ClientRepository clientRepository;
+    private EmployeeRepository employeeRepository;
+    private BCryptPasswordEncoder passwordEncoder;
+    private JwtUtil jwtUtil;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        clientRepository = mock(ClientRepository.class);
+        employeeRepository = mock(EmployeeRepository.class);
+        passwordEncoder = spy(new BCryptPasswordEncoder(4));
+        jwtUtil = new JwtUtil(SECRET, 60_000L, 0);
+
+        user = new User("client", passwordEncoder.encode("secret"), "client@example.com");
+        user.setId(8L);
+        user.setRoles(Set.of(new Role(RoleName.ROLE_USER)));
+        when(userRepository.findByUsernameWithRoles("client")).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(employeeRepository.findByUserId(8L)).thenReturn(Optional.empty());
+        Client client = new Client();
+        client.setId(5L);
+        when(clientRepository.findByUserId(8L)).thenReturn(Optional.of(client));
+        clearInvocations(passwordEncoder);
+    }
+
+    @Test
+    void authenticate_ShouldCheckPasswordOnceAndEmbedIdsInToken() {
+        // When
+        AuthResponse response = service(Runnable::run).authenticate(request("client", "secret"));
+
+        // Then
+        verify(passwordEncoder, times(1)).matches(anyString(), anyString());
+        verify(passwordEncoder, never()).encode(any());
+        assertThat(response.getRoles()).containsExactly("ROLE_USER");
+        assertThat(jwtUtil.parseClaims(response.getToken()).get(JwtUtil.CLAIM_CLIENT_ID, Long.class)).isEqualTo(5L);
+    }
+
+    @Test
+    void authenticate_WhenPasswordWrong_ShouldRejectWithoutRehash() {
+        // When / Then
+        assertThatThrownBy(() -> service(Runnable::run).authenticate(request("client", "wrong")))
+                .isInstanceOf(BadCredentialsException.class);
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void authenticate_WhenUserUnknown_ShouldSpendOneHashAndReject() {
+        // When / Then
+        assertThatThrownBy(() -> service(Runnable::run).authenticate(request("nobody", "secret")))
+                .isInstanceOf(BadCredentialsException.class);
+        verify(passwordEncoder, times(1)).matches(anyString(), anyString());
+    }
+
+    @Test
+    void authenticate_WhenCostIncreased_ShouldRehashPassword() {
+        // Given: хэш пользователя создан со стоимостью 4, текущая настройка - 5
+        BCryptPasswordEncoder strongerEncoder = new BCryptPasswordEncoder(5);
+        PasswordHashingService hashing = new PasswordHashingService(strongerEncoder, Runnable::run);
+
+        // When
+        service(hashing).authenticate(request("client", "secret"));
+
+        // Then
+        verify(userRepository).save(user);
+        assertThat(user.getPassword()).startsWith("$2a$05$");
+        assertThat(strongerEncoder.matches("secret", user.getPassword())).isTrue();
+    }
+
+    @Test
+    void authenticate_WhenHashingPoolFull_ShouldFailFastAsBusy() {
+        // Given
+        Executor saturated = task -> {
+            throw new RejectedExecutionException("queue is full");
+        };
+
+        // When / Then
+        assertThatThrownBy(() -> service(saturated).authenticate(request("client", "secret")))
+                .isInstanceOf(PasswordHashingBusyException.class);
+    }
+
+    private AuthService service(Executor hashingExecutor) {
+        return service(new PasswordHashingService(passwordEncoder, hashingExecutor));
+    }
+
+    private AuthService service(PasswordHashingService hashing) {
+        clearInvocations(passwordEncoder);
+        return new AuthService(jwtUtil, userRepository, mock(RoleRepository.class), clientRepository,
+                employeeRepository, hashing, mock(UserRecommendationService.class),
+                mock(ApplicationEventPublisher.class), mock(TokenRevocationService.class),
+                mock(RefreshTokenService.class));
+    }
+
+    private static AuthRequest request(String username, String password) {
+        AuthRequest request = new AuthRequest();
+        request.setUsername(username);
+        request.setPassword(password);
+        return request;
+    }
+}
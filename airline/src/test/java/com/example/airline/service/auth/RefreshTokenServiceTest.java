@@ -0,0 +1,96 @@
+package com.example.airline.service.auth;
+
+import com.example.airline.entity.user.RefreshToken;
+import com.example.airline.repository.user.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceTest {
+
+    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenService refreshTokenService;
+    private final Map<String, RefreshToken> stored = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            stored.put(token.getTokenHash(), token);
+            return token;
+        });
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.<String>getArgument(0))));
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository);
+    }
+
+    @Test
+    void issue_ShouldStoreOnlyTokenHash() {
+        // When
+        String rawToken = refreshTokenService.issue(8L);
+
+        // Then
+        assertThat(stored).hasSize(1).doesNotContainKey(rawToken);
+        assertThat(stored.get(RefreshTokenService.hash(rawToken)).getUserId()).isEqualTo(8L);
+    }
+
+    @Test
+    void rotate_ShouldRevokeUsedTokenAndIssueNextInSameFamily() {
+        // Given
+        String first = refreshTokenService.issue(8L);
+
+        // When
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(first);
+
+        // Then
+        assertThat(rotation.userId()).isEqualTo(8L);
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+        RefreshToken used = stored.get(RefreshTokenService.hash(first));
+        RefreshToken next = stored.get(RefreshTokenService.hash(rotation.refreshToken()));
+        assertThat(used.getRevokedAt()).isNotNull();
+        assertThat(next.getRevokedAt()).isNull();
+        assertThat(next.getFamilyId()).isEqualTo(used.getFamilyId());
+    }
+
+    @Test
+    void rotate_WhenTokenReused_ShouldRevokeWholeFamily() {
+        // Given
+        String first = refreshTokenService.issue(8L);
+        refreshTokenService.rotate(first);
+        String familyId = stored.get(RefreshTokenService.hash(first)).getFamilyId();
+
+        // When / Then
+        assertThatThrownBy(() -> refreshTokenService.rotate(first))
+                .isInstanceOf(BadCredentialsException.class);
+        verify(refreshTokenRepository).revokeFamily(eq(familyId), any());
+    }
+
+    @Test
+    void rotate_WhenTokenExpired_ShouldReject() {
+        // Given
+        String rawToken = refreshTokenService.issue(8L);
+        refreshTokenService.clock = () -> System.currentTimeMillis() + refreshTokenService.getTtlMs() + 1;
+
+        // When / Then
+        assertThatThrownBy(() -> refreshTokenService.rotate(rawToken))
+                .isInstanceOf(BadCredentialsException.class);
+        verify(refreshTokenRepository, never()).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void rotate_WhenTokenUnknown_ShouldReject() {
+        assertThatThrownBy(() -> refreshTokenService.rotate("unknown"))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.airline.service.file;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileServingServiceTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @TempDir
+    Path tempDir;
+
+    private Path uploadDir;
+    private JdbcTemplate jdbcTemplate;
+    private FileServingService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        uploadDir = tempDir.resolve("uploads");
+        Files.createDirectories(uploadDir.resolve("tours"));
+        Files.writeString(uploadDir.resolve("tours/photo.jpg"), CONTENT, StandardCharsets.UTF_8);
+        Files.writeString(tempDir.resolve("secret.txt"), "secret", StandardCharsets.UTF_8);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        FileStorageService storage = new FileStorageService(uploadDir.toString(), jdbcTemplate,
+                mock(PlatformTransactionManager.class), mock(ApplicationEventPublisher.class), 4);
+        service = new FileServingService(uploadDir.toString(), storage,
+                new ImageDerivativeService(storage, Runnable::run, new int[]{200, 600}), 100);
+    }
+
+    @Test
+    void serve_ShouldSendContentWithValidatorsAndLongCaching() throws Exception {
+        // When
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/files/tours/photo.jpg"));
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length());
+        assertThat(response.getHeader("ETag")).matches("\"[0-9a-f]{64}\"");
+        assertThat(response.getHeader("Last-Modified")).isNotNull();
+        assertThat(response.getHeader("Cache-Control")).contains("max-age=31536000", "immutable");
+        assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+    }
+
+    @Test
+    void serve_WhenETagMatches_ShouldReturn304WithoutBody() throws Exception {
+        // Given
+        String etag = serve(new MockHttpServletRequest("GET", "/files/tours/photo.jpg")).getHeader("ETag");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/tours/photo.jpg");
+        request.addHeader("If-None-Match", "\"other\", " + etag);
+
+        // When
+        MockHttpServletResponse response = serve(request);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void serve_WhenNotModifiedSince_ShouldReturn304() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/tours/photo.jpg");
+        request.addHeader("If-Modified-Since", serve(new MockHttpServletRequest("GET", "/files/tours/photo.jpg"))
+                .getHeader("Last-Modified"));
+
+        // When / Then
+        assertThat(serve(request).getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void serve_WithRange_ShouldSendPartialContent() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/tours/photo.jpg");
+        request.addHeader("Range", "bytes=5-9");
+
+        // When
+        MockHttpServletResponse response = serve(request);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("56789");
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 5-9/20");
+    }
+
+    @Test
+    void serve_WhenIfRangeIsStale_ShouldSendWholeFile() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/tours/photo.jpg");
+        request.addHeader("Range", "bytes=5-9");
+        request.addHeader("If-Range", "\"stale\"");
+
+        // When
+        MockHttpServletResponse response = serve(request);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void serve_WhenRangeOutsideFile_ShouldReturn416() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/tours/photo.jpg");
+        request.addHeader("Range", "bytes=100-");
+
+        // When
+        MockHttpServletResponse response = serve(request);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */20");
+    }
+
+    @Test
+    void serve_WhenRangeEndsBeforeStart_ShouldIgnoreRangeAndSendWholeFile() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/tours/photo.jpg");
+        request.addHeader("Range", "bytes=5-3");
+
+        // When
+        MockHttpServletResponse response = serve(request);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("Content-Range")).isNull();
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void serve_WhenTomcatSupportsSendfile_ShouldDelegateLargeBodies() throws Exception {
+        // Given
+        byte[] large = new byte[64 * 1024];
+        Files.write(uploadDir.resolve("tours/large.png"), large);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/tours/large.png");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=1024-");
+
+        // When
+        MockHttpServletResponse response = serve(request, "large.png");
+
+        // Then
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename"))
+                .isEqualTo(uploadDir.resolve("tours/large.png").toAbsolutePath().normalize().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(1024L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(64L * 1024);
+        assertThat(response.getContentLengthLong()).isEqualTo(63 * 1024);
+    }
+
+    @Test
+    void serve_ContentAddressedFile_ShouldUseHashAsETag() throws Exception {
+        // Given
+        String hash = "ab".repeat(32);
+        Path object = uploadDir.resolve("objects/ab/ab").resolve(hash);
+        Files.createDirectories(object.getParent());
+        Files.writeString(object, CONTENT, StandardCharsets.UTF_8);
+        stored(hash, "tour", "image/png");
+
+        // When
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/files/tours/" + hash + ".png"),
+                hash + ".png");
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"" + hash + "\"");
+        assertThat(response.getContentType()).isEqualTo("image/png");
+        assertThat(response.getHeader("Content-Disposition")).startsWith("inline;");
+        assertThat(response.getHeader("X-Content-Type-Options")).isEqualTo("nosniff");
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void serve_ContentAddressedDocument_ShouldSendStoredTypeAsAttachment() throws Exception {
+        // Given
+        String hash = "ef".repeat(32);
+        writeObject(hash);
+        stored(hash, "request", "application/pdf");
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve("requests", hash + ".pdf", null,
+                new MockHttpServletRequest("GET", "/files/requests/" + hash + ".pdf"), response);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("application/pdf");
+        assertThat(response.getHeader("Content-Disposition")).startsWith("attachment;");
+        assertThat(response.getHeader("X-Content-Type-Options")).isEqualTo("nosniff");
+    }
+
+    @Test
+    void serve_WhenExtensionDoesNotMatchStoredType_ShouldReturn404() throws Exception {
+        // Given
+        String hash = "ef".repeat(32);
+        writeObject(hash);
+        stored(hash, "tour", "application/pdf");
+
+        // When
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/files/tours/" + hash + ".png"),
+                hash + ".png");
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(404);
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+
+    @Test
+    void serve_WhenFileBelongsToOtherSection_ShouldReturn404() throws Exception {
+        // Given: документ заявки запрашивается по URL раздела туров
+        String hash = "ef".repeat(32);
+        writeObject(hash);
+        stored(hash, "request", "application/pdf");
+
+        // When
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/files/tours/" + hash + ".pdf"),
+                hash + ".pdf");
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(404);
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+
+    @Test
+    void serve_WithWidth_ShouldSendResizedVariant() throws Exception {
+        // Given
+        String hash = "cd".repeat(32);
+        Path object = uploadDir.resolve("objects/cd/cd").resolve(hash);
+        Files.createDirectories(object.getParent());
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "jpeg", object.toFile());
+        stored(hash, "tour", "image/jpeg");
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve("tours", hash + ".jpg", 150,
+                new MockHttpServletRequest("GET", "/files/tours/" + hash + ".jpg"), response);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"" + hash + "-w200\"");
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray())).getWidth()).isEqualTo(200);
+    }
+
+    @Test
+    void serve_WhenTypeNotWhitelisted_ShouldSendOctetStreamAttachment() throws Exception {
+        // Given
+        Files.writeString(uploadDir.resolve("tours/page.html"), "<script>alert(1)</script>", StandardCharsets.UTF_8);
+
+        // When
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/files/tours/page.html"), "page.html");
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("application/octet-stream");
+        assertThat(response.getHeader("Content-Disposition")).startsWith("attachment;");
+    }
+
+    @Test
+    void serve_WithWidth_WhenVariantUnavailable_ShouldSendOriginalWithoutLongCaching() throws Exception {
+        // Given: вариант не строится, отдается оригинал
+        String hash = "ef".repeat(32);
+        writeObject(hash);
+        stored(hash, "tour", "image/png");
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve("tours", hash + ".png", 150,
+                new MockHttpServletRequest("GET", "/files/tours/" + hash + ".png"), response);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"" + hash + "\"");
+        assertThat(response.getHeader("Cache-Control")).isEqualTo("private, no-cache");
+    }
+
+    @Test
+    void serve_ShouldNotEscapeUploadDirectory() throws Exception {
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve("..", "secret.txt", null, new MockHttpServletRequest("GET", "/files/x"), response);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(404);
+        assertThat(response.getContentAsString()).doesNotContain("secret");
+    }
+
+    private void writeObject(String hash) throws Exception {
+        Path object = uploadDir.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+        Files.createDirectories(object.getParent());
+        Files.writeString(object, CONTENT, StandardCharsets.UTF_8);
+    }
+
+    private void stored(String hash, String ownerType, String contentType) {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq(hash), eq(ownerType)))
+                .thenReturn(List.of(contentType));
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws Exception {
+        return serve(request, "photo.jpg");
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request, String filename) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve("tours", filename, null, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.airline.service.file;
+
+import com.example.airline.dto.file.FileUploadResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FileStorageServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private FileStorageService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new FileStorageService(uploadDir.toString(), jdbcTemplate, mock(PlatformTransactionManager.class),
+                mock(ApplicationEventPublisher.class), 4);
+    }
+
+    @Test
+    void storeTourImage_ShouldStoreUnderShardedHashPathAndRecordReference() throws Exception {
+        // When
+        FileUploadResponse response = service.storeTourImage(7L, image("beach.JPG", "photo"));
+
+        // Then
+        String hash = hashOf(response);
+        assertThat(response.getFileUrl()).isEqualTo("/files/tours/" + hash + ".jpg");
+        Path stored = uploadDir.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+        assertThat(Files.readAllBytes(stored)).isEqualTo(jpeg("photo"));
+        verify(jdbcTemplate).update(contains("file_references"), eq(hash), eq(FileStorageService.OWNER_TOUR), eq(7L));
+        assertThat(Files.list(uploadDir.resolve("objects/tmp"))).isEmpty();
+    }
+
+    @Test
+    void storeTourImage_WhenContentAlreadyStored_ShouldNotWriteItAgain() throws Exception {
+        // Given
+        FileUploadResponse first = service.storeTourImage(7L, image("a.jpg", "photo"));
+        String hash = hashOf(first);
+        Path stored = service.objectPath(hash);
+        Files.setLastModifiedTime(stored, FileTime.fromMillis(0));
+
+        // When
+        FileUploadResponse second = service.storeTourImage(8L, image("b.jpg", "photo"));
+
+        // Then
+        assertThat(second.getFileUrl()).isEqualTo(first.getFileUrl());
+        assertThat(second.getMessage()).isEqualTo("File already stored");
+        assertThat(Files.getLastModifiedTime(stored).toMillis()).isZero();
+        verify(jdbcTemplate).update(contains("file_references"), eq(hash), eq(FileStorageService.OWNER_TOUR), eq(8L));
+    }
+
+    @Test
+    void deleteFile_ShouldDropReferencesAndLeaveContentToGarbageCollector() throws Exception {
+        // Given
+        FileUploadResponse response = service.storeTourImage(7L, image("a.jpg", "photo"));
+        String hash = hashOf(response);
+
+        // When
+        service.deleteFile(response.getFileUrl(), 7L);
+
+        // Then
+        verify(jdbcTemplate).update(contains("DELETE FROM bookings.file_references"),
+                eq(hash), eq(FileStorageService.OWNER_TOUR), eq(7L));
+        assertThat(service.objectPath(hash)).exists();
+    }
+
+    @Test
+    void deleteFile_WhenContentSharedByTwoOwners_ShouldDropOnlyCallersReference() throws Exception {
+        // Given: два тура загрузили одно и то же изображение
+        FileUploadResponse first = service.storeTourImage(7L, image("a.jpg", "photo"));
+        FileUploadResponse second = service.storeTourImage(8L, image("b.jpg", "photo"));
+        String hash = hashOf(first);
+        assertThat(second.getFileUrl()).isEqualTo(first.getFileUrl());
+
+        // When
+        service.deleteFile(first.getFileUrl(), 7L);
+
+        // Then
+        verify(jdbcTemplate).update(contains("AND owner_id = ?"), eq(hash), eq(FileStorageService.OWNER_TOUR), eq(7L));
+        verify(jdbcTemplate, never()).update(contains("DELETE FROM bookings.file_references"),
+                eq(hash), eq(FileStorageService.OWNER_TOUR), eq(8L));
+        verify(jdbcTemplate, never()).update(contains("DELETE FROM bookings.file_references"), eq(hash), any());
+        assertThat(service.objectPath(hash)).exists();
+    }
+
+    @Test
+    void storedType_ShouldQueryDatabaseOncePerTtl() {
+        // Given
+        long[] now = {1_000_000};
+        service.clock = () -> now[0];
+        String hash = "ab".repeat(32);
+        when(jdbcTemplate.queryForList(contains("content_type"), eq(String.class), eq(hash), eq(FileStorageService.OWNER_TOUR)))
+                .thenReturn(List.of("image/png"));
+
+        // When
+        FileType first = service.storedType(hash, "tours");
+        FileType second = service.storedType(hash, "tours");
+        now[0] += 60_000;
+        FileType expired = service.storedType(hash, "tours");
+
+        // Then
+        assertThat(first).isEqualTo(FileType.PNG);
+        assertThat(second).isEqualTo(FileType.PNG);
+        assertThat(expired).isEqualTo(FileType.PNG);
+        verify(jdbcTemplate, times(2)).queryForList(contains("content_type"), eq(String.class), eq(hash), eq(FileStorageService.OWNER_TOUR));
+    }
+
+    @Test
+    void storedType_AfterDeleteOrUpload_ShouldQueryDatabaseAgain() throws Exception {
+        // Given
+        FileUploadResponse response = service.storeTourImage(7L, image("a.jpg", "photo"));
+        String hash = hashOf(response);
+        when(jdbcTemplate.queryForList(contains("content_type"), eq(String.class), eq(hash), eq(FileStorageService.OWNER_TOUR)))
+                .thenReturn(List.of("image/jpeg"), List.of(), List.of("image/jpeg"));
+        assertThat(service.storedType(hash, "tours")).isEqualTo(FileType.JPEG);
+
+        // When / Then
+        service.deleteFile(response.getFileUrl(), 7L);
+        assertThat(service.storedType(hash, "tours")).isNull();
+        service.storeTourImage(8L, image("b.jpg", "photo"));
+        assertThat(service.storedType(hash, "tours")).isEqualTo(FileType.JPEG);
+    }
+
+    @Test
+    void collectGarbage_ShouldDeleteOnlyFilesWhoseRowWasRemoved() throws Exception {
+        // Given
+        String orphan = hashOf(service.storeTourImage(7L, image("a.jpg", "orphan")));
+        String referenced = hashOf(service.storeTourImage(7L, image("b.jpg", "referenced")));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(), any())).thenReturn(List.of(orphan, referenced));
+        when(jdbcTemplate.update(contains("DELETE FROM bookings.stored_files"), eq(orphan), any())).thenReturn(1);
+        // Между выборкой и удалением на второй файл появилась ссылка
+        when(jdbcTemplate.update(contains("DELETE FROM bookings.stored_files"), eq(referenced), any())).thenReturn(0);
+
+        // When
+        int deleted = service.collectGarbage();
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(service.objectPath(orphan)).doesNotExist();
+        assertThat(service.objectPath(referenced)).exists();
+    }
+
+    @Test
+    void storeTourImage_WhenTypeNotAllowed_ShouldReject() {
+        MockMultipartFile file = new MockMultipartFile("file", "a.exe", "application/octet-stream", new byte[]{1});
+
+        assertThatThrownBy(() -> service.storeTourImage(7L, file))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void storeTourImage_ShouldTakeTypeFromContentNotFromClient() throws Exception {
+        // Given
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+        MockMultipartFile file = new MockMultipartFile("file", "photo.jpg", "image/jpeg", png);
+
+        // When
+        FileUploadResponse response = service.storeTourImage(7L, file);
+
+        // Then
+        assertThat(response.getFileUrl()).endsWith(".png");
+        assertThat(response.getFileType()).isEqualTo("image/png");
+        verify(jdbcTemplate).update(contains("stored_files"), anyString(), eq(16L), eq("image/png"));
+    }
+
+    @Test
+    void storeRequestDocument_WhenImageDisguisedAsPdfIsGif_ShouldReject() {
+        MockMultipartFile file = new MockMultipartFile("file", "scan.pdf", "application/pdf",
+                "GIF89a......".getBytes(StandardCharsets.US_ASCII));
+
+        assertThatThrownBy(() -> service.storeRequestDocument(3L, file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("not allowed");
+    }
+
+    @Test
+    void storeTourImage_Stream_ShouldStoreBodyOfUnknownLength() throws Exception {
+        // When
+        FileUploadResponse response = service.storeTourImage(7L,
+                new ByteArrayInputStream(jpeg("streamed")), -1, "beach.jpg");
+
+        // Then
+        assertThat(Files.readAllBytes(service.objectPath(hashOf(response)))).isEqualTo(jpeg("streamed"));
+        assertThat(response.getFileSize()).isEqualTo((long) jpeg("streamed").length);
+    }
+
+    @Test
+    void storeTourImage_Stream_WhenLimitExceeded_ShouldStopReadingAndLeaveNothing() throws Exception {
+        // Given: тело заметно больше лимита, длина заранее не известна
+        byte[] body = new byte[40 * 1024 * 1024];
+        System.arraycopy(jpeg(""), 0, body, 0, 4);
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(body));
+
+        // When / Then
+        assertThatThrownBy(() -> service.storeTourImage(7L, in, -1, "big.jpg"))
+                .isInstanceOf(FileTooLargeException.class);
+        assertThat(in.count).isLessThanOrEqualTo(10 * 1024 * 1024 + 64 * 1024);
+        assertThat(Files.list(uploadDir.resolve("objects/tmp"))).isEmpty();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void storeTourImage_Stream_WhenDeclaredLengthTooLarge_ShouldRejectWithoutReading() {
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(jpeg("photo")));
+
+        assertThatThrownBy(() -> service.storeTourImage(7L, in, 11L * 1024 * 1024, "big.jpg"))
+                .isInstanceOf(FileTooLargeException.class);
+        assertThat(in.count).isZero();
+    }
+
+    private static String hashOf(FileUploadResponse response) {
+        return FileStorageService.contentHash(response.getFileUrl().substring("/files/tours/".length()));
+    }
+
+    private static MockMultipartFile image(String name, String content) {
+        return new MockMultipartFile("file", name, "image/jpeg", jpeg(content));
+    }
+
+    /**
+     * Содержимое с сигнатурой JPEG: тип файла определяется по первым байтам
+     */
+    private static byte[] jpeg(String content) {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[data.length + 4];
+        result[0] = (byte) 0xFF;
+        result[1] = (byte) 0xD8;
+        result[2] = (byte) 0xFF;
+        result[3] = (byte) 0xE0;
+        System.arraycopy(data, 0, result, 4, data.length);
+        return result;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
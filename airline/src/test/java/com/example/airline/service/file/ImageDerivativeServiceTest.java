@@ -0,0 +1,115 @@
+package com.example.airline.service.file;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ImageDerivativeServiceTest {
+
+    private static final String HASH = "ef".repeat(32);
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageService storage;
+    private Path original;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storage = new FileStorageService(tempDir.toString(), mock(JdbcTemplate.class),
+                mock(PlatformTransactionManager.class), mock(ApplicationEventPublisher.class), 4);
+        original = storage.objectPath(HASH);
+        Files.createDirectories(original.getParent());
+    }
+
+    @Test
+    void onTourImageStored_ShouldBuildAllWidthsNextToOriginal() throws Exception {
+        // Given
+        ImageIO.write(new BufferedImage(1600, 800, BufferedImage.TYPE_INT_RGB), "jpeg", original.toFile());
+        ImageDerivativeService service = new ImageDerivativeService(storage, Runnable::run, new int[]{600, 200, 1200});
+
+        // When
+        service.onTourImageStored(new TourImageStoredEvent(HASH));
+
+        // Then
+        for (int width : new int[]{200, 600, 1200}) {
+            BufferedImage variant = ImageIO.read(original.resolveSibling(HASH + ".w" + width + ".jpg").toFile());
+            assertThat(variant.getWidth()).isEqualTo(width);
+            assertThat(variant.getHeight()).isEqualTo(width / 2);
+        }
+    }
+
+    @Test
+    void variant_ShouldPickSmallestWidthNotNarrowerThanRequested() {
+        // Given
+        ImageDerivativeService service = new ImageDerivativeService(storage, Runnable::run, new int[]{200, 600, 1200});
+
+        // Then
+        assertThat(service.variantWidth(1)).isEqualTo(200);
+        assertThat(service.variantWidth(200)).isEqualTo(200);
+        assertThat(service.variantWidth(201)).isEqualTo(600);
+        assertThat(service.variantWidth(2000)).isZero();
+    }
+
+    @Test
+    void variant_WhenMissing_ShouldGenerateLazilyAsPng() throws Exception {
+        // Given
+        ImageIO.write(new BufferedImage(900, 300, BufferedImage.TYPE_INT_ARGB), "png", original.toFile());
+        List<Runnable> queued = new ArrayList<>();
+        ImageDerivativeService service = new ImageDerivativeService(storage, task -> {
+            if (queued.size() < 2) {
+                queued.add(task);
+                throw new RejectedExecutionException("full");
+            }
+            task.run();
+        }, new int[]{200, 600});
+        service.onTourImageStored(new TourImageStoredEvent(HASH));
+
+        // When
+        Path variant = service.variant(HASH, 500);
+
+        // Then
+        assertThat(variant).isEqualTo(original.resolveSibling(HASH + ".w600.png"));
+        assertThat(ImageIO.read(variant.toFile()).getWidth()).isEqualTo(600);
+        assertThat(Files.exists(original.resolveSibling(HASH + ".w200.png"))).isFalse();
+    }
+
+    @Test
+    void variant_WhenOriginalIsNarrower_ShouldLinkOriginal() throws Exception {
+        // Given
+        ImageIO.write(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+        ImageDerivativeService service = new ImageDerivativeService(storage, Runnable::run, new int[]{200});
+
+        // When
+        Path variant = service.variant(HASH, 200);
+
+        // Then
+        assertThat(Files.readAllBytes(variant)).isEqualTo(Files.readAllBytes(original));
+    }
+
+    @Test
+    void variant_WhenFormatIsNotDecodable_ShouldFallBackToOriginal() throws Exception {
+        // Given
+        Files.writeString(original, "RIFF....WEBPVP8 ", StandardCharsets.US_ASCII);
+        ImageDerivativeService service = new ImageDerivativeService(storage, Runnable::run, new int[]{200});
+
+        // When / Then
+        assertThat(service.variant(HASH, 200)).isNull();
+        assertThat(service.variant(HASH, 200)).isNull();
+    }
+}
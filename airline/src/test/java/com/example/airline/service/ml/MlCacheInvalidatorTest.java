@@ -0,0 +1,139 @@
+package com.example.airline.service.ml;
+
+import com.example.airline.dto.tour.TourDto;
+import com.example.airline.service.recommendation.UserRecommendationService;
+import com.example.airline.service.tour.TourChangedEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class MlCacheInvalidatorTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private MlServiceClient mlServiceClient;
+    private MlResponseCache mlResponseCache;
+    private UserRecommendationService userRecommendationService;
+    private MlCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        mlServiceClient = mock(MlServiceClient.class);
+        mlResponseCache = mock(MlResponseCache.class);
+        userRecommendationService = mock(UserRecommendationService.class);
+        invalidator = new MlCacheInvalidator(mlServiceClient, mlResponseCache, userRecommendationService);
+        invalidator.clock = now::get;
+    }
+
+    @Test
+    void flushIfQuiet_ShouldCoalesceBurstOfChangesIntoOneCall() {
+        // Given
+        when(mlServiceClient.invalidateCache(anyCollection())).thenReturn(Mono.empty());
+        for (long id = 1; id <= 50; id++) {
+            invalidator.onTourChanged(changed(id % 10 + 1));
+            now.addAndGet(100);
+            invalidator.flushIfQuiet();
+        }
+        verify(mlServiceClient, never()).invalidateCache(anyCollection());
+
+        // When
+        now.addAndGet(5_000);
+        invalidator.flushIfQuiet();
+
+        // Then
+        verify(mlServiceClient, times(1)).invalidateCache(Set.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L));
+        // До вызова ML-сервиса и после его завершения
+        verify(mlResponseCache, times(2)).invalidate("recommendations", "similar", "popular");
+        verify(userRecommendationService, times(2)).invalidateAll();
+        assertThat(invalidator.pendingCount()).isZero();
+    }
+
+    @Test
+    void flushIfQuiet_WhenChangesNeverStop_ShouldFlushAfterMaxDelay() {
+        // Given
+        when(mlServiceClient.invalidateCache(anyCollection())).thenReturn(Mono.empty());
+
+        // When: изменения каждую секунду, окно тишины не наступает
+        for (int i = 0; i < 31; i++) {
+            invalidator.onTourChanged(changed(1L));
+            now.addAndGet(1_000);
+            invalidator.flushIfQuiet();
+        }
+
+        // Then
+        verify(mlServiceClient, times(1)).invalidateCache(anyCollection());
+    }
+
+    @Test
+    void flushIfQuiet_WhenMlServiceFails_ShouldRetryChangedTours() {
+        // Given
+        when(mlServiceClient.invalidateCache(anyCollection()))
+                .thenReturn(Mono.error(new IllegalStateException("ML service unavailable")), Mono.empty());
+        invalidator.onTourChanged(changed(42L));
+        now.addAndGet(5_000);
+
+        // When
+        invalidator.flushIfQuiet();
+
+        // Then
+        assertThat(invalidator.pendingCount()).isEqualTo(1);
+        now.addAndGet(5_000);
+        invalidator.flushIfQuiet();
+        verify(mlServiceClient, times(2)).invalidateCache(Set.of(42L));
+        assertThat(invalidator.pendingCount()).isZero();
+    }
+
+    @Test
+    void flushIfQuiet_WhenFetchLandsBeforeMlInvalidated_ShouldNotKeepOldAnswer() {
+        // Given
+        MlResponseCache cache = new MlResponseCache(new MockEnvironment());
+        invalidator = new MlCacheInvalidator(mlServiceClient, cache, userRecommendationService);
+        invalidator.clock = now::get;
+        Sinks.Empty<Void> mlInvalidated = Sinks.empty();
+        when(mlServiceClient.invalidateCache(anyCollection())).thenReturn(mlInvalidated.asMono());
+        invalidator.onTourChanged(changed(42L));
+        now.addAndGet(5_000);
+        invalidator.flushIfQuiet();
+
+        // Запрос между сбросом локального кэша и ответом ML-сервиса получает старый результат
+        cache.get("popular", 10, () -> Mono.just(answer("old"))).block();
+
+        // When
+        mlInvalidated.tryEmitEmpty();
+
+        // Then
+        JsonNode fresh = cache.get("popular", 10, () -> Mono.just(answer("new"))).block();
+        assertThat(fresh.get("tours").asText()).isEqualTo("new");
+        verify(userRecommendationService, times(2)).invalidateAll();
+    }
+
+    @Test
+    void flushIfQuiet_WithoutChanges_ShouldNotCallMlService() {
+        invalidator.flushIfQuiet();
+
+        verify(mlServiceClient, never()).invalidateCache(anyCollection());
+        verify(mlResponseCache, never()).invalidate(any());
+    }
+
+    private static JsonNode answer(String tours) {
+        return JsonNodeFactory.instance.objectNode().put("tours", tours);
+    }
+
+    private static TourChangedEvent changed(Long id) {
+        TourDto tour = new TourDto();
+        tour.setId(id);
+        return new TourChangedEvent(tour);
+    }
+}
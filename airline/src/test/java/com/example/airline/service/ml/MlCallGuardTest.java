@@ -0,0 +1,100 @@
+package com.example.airline.service.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MlCallGuardTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private MlCircuitBreaker breaker;
+    private MlCallGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new MlCircuitBreaker(10, 4, 0.5, 30_000, 1);
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.ml.bulkhead.statistics.max-concurrent", "2");
+        guard = new MlCallGuard(breaker, environment);
+    }
+
+    @Test
+    void call_WhenIdenticalCallsInFlight_ShouldSendSingleRequest() {
+        // Given: 50 администраторов одновременно открывают дашборд
+        Mono<JsonNode> slow = Mono.fromSupplier(() -> {
+            requests.incrementAndGet();
+            return (JsonNode) JsonNodeFactory.instance.objectNode().put("ok", true);
+        }).delayElement(Duration.ofMillis(200));
+
+        // When
+        List<JsonNode> results = Flux.range(0, 50)
+                .flatMap(i -> guard.call("dashboard", "", () -> slow))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(results).hasSize(50);
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void call_WhenBulkheadFull_ShouldRejectImmediately() {
+        // Given: два запроса с разными параметрами занимают все слоты
+        Sinks.One<JsonNode> pending = Sinks.one();
+        guard.call("statistics", 7, pending::asMono).subscribe();
+        guard.call("statistics", 30, pending::asMono).subscribe();
+
+        // When / Then
+        assertThatThrownBy(() -> guard.call("statistics", 90, pending::asMono).block())
+                .hasMessageContaining("bulkhead is full");
+        assertThat(guard.call("dashboard", "", () -> Mono.just(node())).block()).isNotNull();
+    }
+
+    @Test
+    void call_WhenChainedFromResult_ShouldReleaseSlotBeforeEmitting() {
+        // Given: каждый следующий вызов делается из обработчика результата предыдущего,
+        // а слотов всего два
+        Mono<JsonNode> chain = guard.call("statistics", 7, () -> Mono.just(node()))
+                .flatMap(r -> guard.call("statistics", 30, () -> Mono.just(node())))
+                .flatMap(r -> guard.call("statistics", 90, () -> Mono.just(node())));
+
+        // When / Then
+        assertThat(chain.block(Duration.ofSeconds(5))).isNotNull();
+    }
+
+    @Test
+    void call_WhenBreakerOpen_ShouldNotCallMlService() {
+        // Given
+        for (int i = 0; i < 4; i++) {
+            guard.call("trends", i, () -> Mono.error(new IOException("connection refused")))
+                    .onErrorResume(e -> Mono.empty())
+                    .block();
+        }
+
+        // When / Then
+        assertThatThrownBy(() -> guard.call("trends", 12, () -> {
+            requests.incrementAndGet();
+            return Mono.just(node());
+        }).block()).hasMessageContaining("circuit breaker is open");
+        assertThat(requests).hasValue(0);
+        assertThat(guard.getCircuitState()).isEqualTo(MlCircuitBreaker.State.OPEN);
+    }
+
+    private static JsonNode node() {
+        return JsonNodeFactory.instance.objectNode();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.airline.service.ml;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MlCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private MlCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        // Окно 10 вызовов, минимум 4, порог 50%, открыт 30 с, 2 пробных вызова
+        breaker = new MlCircuitBreaker(10, 4, 0.5, 30_000, 2);
+        breaker.clock = now::get;
+    }
+
+    @Test
+    void onError_WhenFailureRateReachesThreshold_ShouldOpen() {
+        // When
+        call(true);
+        call(false);
+        call(true);
+        assertThat(breaker.getState()).isEqualTo(MlCircuitBreaker.State.CLOSED);
+        call(true);
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(MlCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void halfOpen_WhenProbesSucceed_ShouldClose() {
+        // Given
+        open();
+        now.addAndGet(30_000);
+
+        // When: пропускаются только два пробных вызова
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(MlCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpen_WhenProbeFails_ShouldReopen() {
+        // Given
+        open();
+        now.addAndGet(30_000);
+
+        // When
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onError();
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(MlCircuitBreaker.State.OPEN);
+        assertThat(breaker.getStats()).containsEntry("retry_after_ms", 30_000L);
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertThat(breaker.getState()).isEqualTo(MlCircuitBreaker.State.OPEN);
+    }
+
+    private void call(boolean failure) {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        if (failure) {
+            breaker.onError();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+}
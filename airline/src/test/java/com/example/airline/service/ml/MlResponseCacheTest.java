@@ -0,0 +1,115 @@
+package com.example.airline.service.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MlResponseCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private MlResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // TTL 100 секунд: фоновое обновление после 80 секунд, устаревшие ответы - еще час после истечения
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.ml.cache.dashboard.ttl-seconds", "100");
+        cache = new MlResponseCache(environment);
+        cache.clock = now::get;
+    }
+
+    @Test
+    void get_WhenFresh_ShouldNotCallMlService() {
+        // Given
+        assertThat(cache.get("dashboard", "", () -> load(1)).block()).isEqualTo(value(1));
+
+        // When
+        now.addAndGet(50_000);
+        JsonNode result = cache.get("dashboard", "", () -> load(2)).block();
+
+        // Then
+        assertThat(result).isEqualTo(value(1));
+        assertThat(calls).hasValue(1);
+        assertThat(cache.getStats().get("dashboard")).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void get_AfterRefreshThreshold_ShouldServeCurrentAndRefreshInBackground() {
+        // Given
+        cache.get("dashboard", "", () -> load(1)).block();
+        now.addAndGet(90_000);
+
+        // When
+        JsonNode result = cache.get("dashboard", "", () -> load(2)).block();
+
+        // Then
+        assertThat(result).isEqualTo(value(1));
+        assertThat(cache.get("dashboard", "", () -> load(3)).block()).isEqualTo(value(2));
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void get_WhenExpiredAndMlServiceFails_ShouldServeStale() {
+        // Given
+        cache.get("dashboard", "", () -> load(1)).block();
+        now.addAndGet(160_000);
+
+        // When
+        JsonNode result = cache.get("dashboard", "",
+                () -> Mono.<JsonNode>error(new TimeoutException("ML service timeout"))).block();
+
+        // Then
+        assertThat(result).isEqualTo(value(1));
+        assertThat(cache.getStats().get("dashboard"))
+                .containsEntry("stale_served", 1L)
+                .containsEntry("max_staleness_seconds", 60L)
+                .containsEntry("load_errors", 1L);
+    }
+
+    @Test
+    void get_WhenStaleWindowExceeded_ShouldReturnEmpty() {
+        // Given
+        cache.get("dashboard", "", () -> load(1)).block();
+        now.addAndGet(100_000 + 3_601_000);
+
+        // When
+        JsonNode result = cache.get("dashboard", "", Mono::empty).block();
+
+        // Then
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void get_ShouldKeyOnParameters() {
+        // When
+        cache.get("statistics", 7, () -> load(1)).block();
+        cache.get("statistics", 30, () -> load(2)).block();
+
+        // Then
+        assertThat(cache.get("statistics", 7, () -> load(3)).block()).isEqualTo(value(1));
+        assertThat(cache.get("statistics", 30, () -> load(3)).block()).isEqualTo(value(2));
+        assertThat(calls).hasValue(2);
+    }
+
+    private Mono<JsonNode> load(int version) {
+        return Mono.fromSupplier(() -> {
+            calls.incrementAndGet();
+            return value(version);
+        });
+    }
+
+    private static JsonNode value(int version) {
+        return JsonNodeFactory.instance.objectNode().put("version", version);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.airline.service.notification;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Минимальный SMTP-сервер для тестов и бенчмарка: принимает EHLO, MAIL, RCPT, DATA, RSET, NOOP
+ * и QUIT без аутентификации и TLS, хранит принятые письма в памяти.
+ */
+class LocalSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final List<byte[]> messages = new CopyOnWriteArrayList<>();
+    private final Set<String> rejectedRecipients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger messageCount = new AtomicInteger();
+    private final boolean keepMessages;
+    private volatile int dropAfterMessages = Integer.MAX_VALUE;
+
+    /**
+     * @param keepMessages хранить принятые письма (бенчмарк только считает их)
+     */
+    LocalSmtpServer(boolean keepMessages) throws IOException {
+        this.keepMessages = keepMessages;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "local-smtp");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getConnections() {
+        return connections.get();
+    }
+
+    int getMessageCount() {
+        return messageCount.get();
+    }
+
+    /**
+     * Отклонять RCPT TO для этого адреса (550)
+     */
+    void reject(String recipient) {
+        rejectedRecipients.add(recipient);
+    }
+
+    /**
+     * Разрывать соединение после указанного числа писем в нем
+     */
+    void dropConnectionsAfter(int messageCount) {
+        this.dropAfterMessages = messageCount;
+    }
+
+    List<MimeMessage> getMessages() throws Exception {
+        Session session = Session.getInstance(new Properties());
+        List<MimeMessage> parsed = new ArrayList<>();
+        for (byte[] raw : messages) {
+            parsed.add(new MimeMessage(session, new ByteArrayInputStream(raw)));
+        }
+        return parsed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                Thread handler = new Thread(() -> handle(socket), "local-smtp-session");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost ESMTP");
+            int received = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "MAIL", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "RCPT" -> {
+                        String address = line.substring(line.indexOf('<') + 1, line.lastIndexOf('>'));
+                        reply(out, rejectedRecipients.contains(address) ? "550 No such user" : "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        ByteArrayOutputStream data = new ByteArrayOutputStream();
+                        String dataLine;
+                        while ((dataLine = in.readLine()) != null && !dataLine.equals(".")) {
+                            String unstuffed = dataLine.startsWith("..") ? dataLine.substring(1) : dataLine;
+                            data.write(unstuffed.getBytes(StandardCharsets.ISO_8859_1));
+                            data.write('\r');
+                            data.write('\n');
+                        }
+                        if (keepMessages) {
+                            messages.add(data.toByteArray());
+                        }
+                        messageCount.incrementAndGet();
+                        reply(out, "250 OK");
+                        if (++received >= dropAfterMessages) {
+                            return;
+                        }
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // Клиент закрыл соединение
+        }
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+}
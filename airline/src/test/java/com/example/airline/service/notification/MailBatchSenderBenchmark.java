@@ -0,0 +1,85 @@
+package com.example.airline.service.notification;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность отправки писем на локальный SMTP-сервер: perMessageConnection -
+ * JavaMailSender.send на каждое письмо (как раньше в EmailService), pooledBatch - пакет
+ * из BATCH писем по соединению из SmtpConnectionPool. Результат в письмах в секунду;
+ * на реальном сервере разница больше за счет STARTTLS и AUTH при каждом подключении.
+ *
+ * Запуск после mvn test-compile (main с тестовым classpath), например из IDE или:
+ * <pre>
+ * mvn -q exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.airline.service.notification.MailBatchSenderBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailBatchSenderBenchmark {
+
+    private static final int BATCH = 50;
+
+    private LocalSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+    private SmtpConnectionPool pool;
+    private MailBatchSender sender;
+    private SimpleMailMessage message;
+    private List<SimpleMailMessage> batch;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new LocalSmtpServer(false);
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.getPort());
+        mailSender.setDefaultEncoding("UTF-8");
+        pool = new SmtpConnectionPool(mailSender, 1);
+        sender = new MailBatchSender(pool, Runnable::run, BATCH, 1);
+
+        message = new SimpleMailMessage();
+        message.setFrom("noreply@airline.com");
+        message.setTo("employee@example.com");
+        message.setSubject("Вам назначена новая заявка");
+        message.setText("Здравствуйте!\n\nВам назначена новая заявка #42 для обработки.");
+        batch = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(message);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        pool.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void perMessageConnection() {
+        mailSender.send(message);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void pooledBatch() {
+        sender.sendBatch(batch);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MailBatchSenderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.airline.service.notification;
+
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MailBatchSenderTest {
+
+    private LocalSmtpServer server;
+    private SmtpConnectionPool pool;
+    private MailBatchSender sender;
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new LocalSmtpServer(true);
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.getPort());
+        mailSender.setDefaultEncoding("UTF-8");
+        Properties properties = new Properties();
+        properties.put("mail.smtp.timeout", "5000");
+        properties.put("mail.smtp.connectiontimeout", "5000");
+        mailSender.setJavaMailProperties(properties);
+        pool = new SmtpConnectionPool(mailSender, 2);
+        sender = new MailBatchSender(pool, Runnable::run, 100, 2);
+        sender.clock = now::get;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        server.close();
+    }
+
+    @Test
+    void flush_ShouldSendQueuedMessagesOverOnePooledConnection() throws Exception {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            sender.enqueue(message("client" + i + "@example.com", "Заявка " + i));
+        }
+
+        // When
+        sender.flush();
+        sender.enqueue(message("late@example.com", "Позже"));
+        sender.flush();
+
+        // Then
+        assertThat(server.getMessageCount()).isEqualTo(11);
+        assertThat(server.getConnections()).isEqualTo(1);
+        assertThat(sender.getQueueSize()).isZero();
+        assertThat(sender.getStats()).containsEntry("sent", 11L);
+    }
+
+    @Test
+    void sendBatch_WhenRecipientRejected_ShouldSkipOnlyThatMessage() throws Exception {
+        // Given
+        server.reject("missing@example.com");
+
+        // When
+        sender.sendBatch(List.of(
+                message("a@example.com", "1"),
+                message("missing@example.com", "2"),
+                message("b@example.com", "3")));
+
+        // Then
+        assertThat(server.getMessageCount()).isEqualTo(2);
+        assertThat(server.getConnections()).isEqualTo(1);
+        assertThat(sender.getStats()).containsEntry("sent", 2L).containsEntry("failed", 1L);
+    }
+
+    @Test
+    void sendBatch_WhenConnectionDrops_ShouldResendRestOnNewConnection() throws Exception {
+        // Given
+        server.dropConnectionsAfter(2);
+
+        // When
+        sender.sendBatch(List.of(
+                message("a@example.com", "1"),
+                message("b@example.com", "2"),
+                message("c@example.com", "3"),
+                message("d@example.com", "4")));
+
+        // Then
+        assertThat(server.getMessageCount()).isEqualTo(4);
+        assertThat(server.getConnections()).isEqualTo(2);
+        assertThat(sender.getStats()).containsEntry("failed", 0L);
+    }
+
+    @Test
+    void sendBatch_WhenTransportThrowsRuntimeException_ShouldInvalidateConnection() throws Exception {
+        // Given
+        SmtpConnectionPool brokenPool = mock(SmtpConnectionPool.class);
+        Transport transport = mock(Transport.class);
+        when(brokenPool.borrow()).thenReturn(transport);
+        when(brokenPool.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+        doThrow(new IllegalStateException("Not connected")).when(transport).sendMessage(any(), any());
+        MailBatchSender brokenSender = new MailBatchSender(brokenPool, Runnable::run, 100, 2);
+
+        // When
+        brokenSender.sendBatch(List.of(message("a@example.com", "1"), message("b@example.com", "2")));
+
+        // Then: обе попытки вернули слот пула
+        verify(brokenPool, times(2)).invalidate(transport);
+        verify(brokenPool, never()).release(any());
+        assertThat(brokenSender.getStats()).containsEntry("sent", 0L).containsEntry("failed", 2L);
+    }
+
+    @Test
+    void enqueueDigest_ShouldSendFirstImmediatelyAndSummarizeRestOfWindow() throws Exception {
+        // Given: 30 назначений одному сотруднику за 5 минут
+        for (int i = 1; i <= 30; i++) {
+            sender.enqueueDigest("employee@example.com", "assigned", message("employee@example.com", "Заявка #" + i),
+                    "#" + i, lines -> message("employee@example.com", "Заявок: " + lines.size() + "\n" + String.join("\n", lines)));
+            now.addAndGet(9_000);
+        }
+        sender.flush();
+        assertThat(server.getMessageCount()).isEqualTo(1);
+
+        // When
+        now.addAndGet(300_000);
+        sender.flush();
+
+        // Then
+        List<MimeMessage> messages = server.getMessages();
+        assertThat(messages).hasSize(2);
+        assertThat((String) messages.get(0).getContent()).isEqualTo("Заявка #1");
+        String summary = (String) messages.get(1).getContent();
+        assertThat(summary).startsWith("Заявок: 29").contains("#2", "#30");
+    }
+
+    @Test
+    void enqueueDigest_WhenSingleMessageInWindow_ShouldSendItAsIs() throws Exception {
+        // Given
+        sender.enqueueDigest("employee@example.com", "assigned", message("employee@example.com", "Первая"),
+                "#1", lines -> message("employee@example.com", "Сводка"));
+        sender.enqueueDigest("employee@example.com", "assigned", message("employee@example.com", "Вторая"),
+                "#2", lines -> message("employee@example.com", "Сводка"));
+
+        // When
+        now.addAndGet(300_000);
+        sender.flush();
+
+        // Then
+        List<MimeMessage> messages = server.getMessages();
+        assertThat(messages).extracting(message -> (String) message.getContent()).containsExactly("Первая", "Вторая");
+    }
+
+    @Test
+    void enqueue_WhenQueueFull_ShouldDropWithoutBlocking() {
+        // Given
+        MailBatchSender small = new MailBatchSender(pool, Runnable::run, 2, 2);
+
+        // When
+        boolean first = small.enqueue(message("a@example.com", "1"));
+        boolean second = small.enqueue(message("b@example.com", "2"));
+        boolean third = small.enqueue(message("c@example.com", "3"));
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(small.getStats()).containsEntry("dropped", 1L);
+    }
+
+    private static SimpleMailMessage message(String to, String text) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@airline.com");
+        message.setTo(to);
+        message.setSubject("Уведомление");
+        message.setText(text);
+        return message;
+    }
+}
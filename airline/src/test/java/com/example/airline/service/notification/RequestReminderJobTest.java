@@ -0,0 +1,107 @@
+package com.example.airline.service.notification;
+
+import com.example.airline.entity.user.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RequestReminderJobTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private JdbcTemplate jdbcTemplate;
+    private EmailService emailService;
+    private RequestReminderJob job;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        emailService = mock(EmailService.class);
+        job = new RequestReminderJob(jdbcTemplate, mock(PlatformTransactionManager.class), emailService);
+        job.clock = () -> NOW;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendReminders_ShouldQueueOneReminderPerEmployeeFromGroupedQuery() throws Exception {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("pg_try_advisory_xact_lock"), eq(Boolean.class), eq(RequestReminderJob.LOCK_KEY)))
+                .thenReturn(true);
+        when(jdbcTemplate.update(contains("job_runs"), any(), any(), any())).thenReturn(1);
+        when(jdbcTemplate.query(contains("GROUP BY"), any(RowMapper.class), any(Timestamp.class))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(row(1L, "anna@airline.com", "Анна", "Иванова", 3), 0),
+                    mapper.mapRow(row(2L, "oleg@airline.com", "Олег", "Петров", 12), 1));
+        });
+
+        // When
+        int notified = job.sendReminders();
+
+        // Then
+        assertThat(notified).isEqualTo(2);
+        ArgumentCaptor<Employee> employees = ArgumentCaptor.forClass(Employee.class);
+        verify(emailService).sendReminderNotification(employees.capture(), eq(3));
+        verify(emailService).sendReminderNotification(any(Employee.class), eq(12));
+        assertThat(employees.getValue().getEmail()).isEqualTo("anna@airline.com");
+        assertThat(employees.getValue().getFullName()).isEqualTo("Анна Иванова");
+
+        ArgumentCaptor<Timestamp> createdBefore = ArgumentCaptor.forClass(Timestamp.class);
+        verify(jdbcTemplate).query(anyString(), any(RowMapper.class), createdBefore.capture());
+        assertThat(createdBefore.getValue().getTime()).isEqualTo(NOW - 60 * 60_000);
+    }
+
+    @Test
+    void sendReminders_WhenAnotherInstanceHoldsLock_ShouldSkip() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(false);
+
+        // When
+        int notified = job.sendReminders();
+
+        // Then
+        assertThat(notified).isZero();
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendReminders_WhenAlreadyRunRecently_ShouldSkip() {
+        // Given: другой узел только что выполнил рассылку и отпустил блокировку
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(true);
+        when(jdbcTemplate.update(contains("job_runs"), any(), any(), any())).thenReturn(0);
+
+        // When
+        int notified = job.sendReminders();
+
+        // Then
+        assertThat(notified).isZero();
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any(Object[].class));
+        verify(emailService, never()).sendReminderNotification(any(), anyInt());
+    }
+
+    private static ResultSet row(long id, String email, String firstName, String lastName, int unprocessed) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("email")).thenReturn(email);
+        when(rs.getString("first_name")).thenReturn(firstName);
+        when(rs.getString("last_name")).thenReturn(lastName);
+        when(rs.getInt("unprocessed")).thenReturn(unprocessed);
+        return rs;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.airline.service.recommendation;
+
+import com.example.airline.repository.client.ClientRepository;
+import com.example.airline.service.ml.MlServiceClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class UserRecommendationServiceTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private MlServiceClient mlServiceClient;
+    private ClientRepository clientRepository;
+    private UserRecommendationService service;
+
+    @BeforeEach
+    void setUp() {
+        mlServiceClient = mock(MlServiceClient.class);
+        clientRepository = mock(ClientRepository.class);
+        service = new UserRecommendationService(mlServiceClient, clientRepository, 2);
+        service.clock = now::get;
+    }
+
+    @Test
+    void getRecommendations_AfterPrecompute_ShouldServeFromMemory() {
+        // Given
+        when(mlServiceClient.getRecommendations(eq(1L), isNull(), isNull(), isNull(), isNull(), eq(10)))
+                .thenReturn(Mono.just(recommendations(1, 10)));
+        service.precompute(1L);
+
+        // When
+        JsonNode result = service.getRecommendations(1L, 5).block();
+
+        // Then
+        assertThat(result.path("recommendations")).hasSize(5);
+        assertThat(result.path("recommendations").get(0).path("tour_id").asInt()).isEqualTo(100);
+        verify(mlServiceClient, times(1)).getRecommendations(any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getRecommendations_WhenNotPrecomputed_ShouldCallMlServiceAndRemember() {
+        // Given
+        when(mlServiceClient.getRecommendations(eq(1L), isNull(), isNull(), isNull(), isNull(), eq(10)))
+                .thenReturn(Mono.just(recommendations(1, 10)));
+
+        // When
+        service.getRecommendations(1L, 5).block();
+        service.getRecommendations(1L, 3).block();
+
+        // Then
+        verify(mlServiceClient, times(1)).getRecommendations(any(), any(), any(), any(), any(), anyInt());
+        assertThat(service.size()).isEqualTo(1);
+    }
+
+    @Test
+    void getRecommendations_WhenOld_ShouldServeCurrentAndRefreshInBackground() {
+        // Given
+        when(mlServiceClient.getRecommendations(eq(1L), isNull(), isNull(), isNull(), isNull(), eq(10)))
+                .thenReturn(Mono.just(recommendations(1, 10)), Mono.just(recommendations(2, 10)));
+        service.precompute(1L);
+        now.addAndGet(1_800_000);
+
+        // When
+        JsonNode result = service.getRecommendations(1L, 5).block();
+
+        // Then
+        assertThat(result.path("recommendations").get(0).path("tour_id").asInt()).isEqualTo(100);
+        assertThat(service.getRecommendations(1L, 5).block()
+                .path("recommendations").get(0).path("tour_id").asInt()).isEqualTo(200);
+    }
+
+    @Test
+    void precompute_ShouldEvictLeastRecentlyUsedUser() {
+        // Given
+        when(mlServiceClient.getRecommendations(any(), isNull(), isNull(), isNull(), isNull(), eq(10)))
+                .thenReturn(Mono.just(recommendations(1, 10)));
+
+        // When
+        service.precompute(1L);
+        service.precompute(2L);
+        service.precompute(3L);
+
+        // Then
+        assertThat(service.size()).isEqualTo(2);
+    }
+
+    @Test
+    void onClientActivity_ShouldBypassMlCacheForUserOfClient() {
+        // Given
+        when(clientRepository.findUserIdById(7L)).thenReturn(Optional.of(1L));
+        when(mlServiceClient.refreshRecommendations(1L, 10)).thenReturn(Mono.just(recommendations(3, 10)));
+
+        // When
+        service.onClientActivity(new ClientActivityEvent(7L));
+
+        // Then
+        assertThat(service.getRecommendations(1L, 5).block()
+                .path("recommendations").get(0).path("tour_id").asInt()).isEqualTo(300);
+        verify(mlServiceClient, never()).getRecommendations(any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void precomputeBatch_ShouldDeduplicateAndStoreEveryUser() {
+        // Given
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        when(mlServiceClient.getRecommendationsBatch(anyList(), eq(10))).thenAnswer(invocation -> {
+            List<Long> userIds = invocation.getArgument(0);
+            ObjectNode response = JsonNodeFactory.instance.objectNode();
+            ArrayNode results = response.putArray("results");
+            for (Long userId : userIds) {
+                ObjectNode result = results.addObject();
+                result.put("user_id", userId);
+                result.set("recommendations", recommendations(userId.intValue(), 3).path("recommendations"));
+            }
+            response.put("total_tours_analyzed", 50);
+            response.put("model_version", "1.0.0");
+            return Mono.just(response);
+        });
+
+        // When
+        Integer precomputed = service.precomputeBatch(List.of(1L, 2L, 2L)).block();
+
+        // Then
+        assertThat(precomputed).isEqualTo(2);
+        verify(mlServiceClient, times(1)).getRecommendationsBatch(anyList(), eq(10));
+        assertThat(service.getRecommendations(2L, 5).block().path("total_tours_analyzed").asInt()).isEqualTo(50);
+        verify(mlServiceClient, never()).getRecommendations(any(), any(), any(), any(), any(), anyInt());
+    }
+
+    private static JsonNode recommendations(int seed, int count) {
+        ObjectNode response = JsonNodeFactory.instance.objectNode();
+        ArrayNode items = response.putArray("recommendations");
+        for (int i = 0; i < count; i++) {
+            items.addObject().put("tour_id", seed * 100 + i).put("score", 1.0 - i * 0.05);
+        }
+        response.put("total_tours_analyzed", 100);
+        response.put("model_version", "1.0.0");
+        return response;
+    }
+}
@@ -11,7 +11,7 @@ import com.example.airline.repository.client.ClientRepository;
 import com.example.airline.repository.tour.ClientRequestRepository;
 import com.example.airline.repository.tour.TourRepository;
 import com.example.airline.repository.user.EmployeeRepository;
-import com.example.airline.repository.user.UserRepository;
+import com.example.airline.service.analytics.TourEngagementService;
 import com.example.airline.service.notification.EmailService;
 import com.example.airline.util.CustomValidator;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +20,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -49,9 +50,6 @@ class ClientRequestServiceTest {
     @Mock
     private ClientRepository clientRepository;
 
-    @Mock
-    private UserRepository userRepository;
-
     @Mock
     private RequestHistoryService historyService;
 
@@ -61,6 +59,12 @@ class ClientRequestServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private TourEngagementService engagementService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private ClientRequestService clientRequestService;
 
@@ -0,0 +1,121 @@
+package com.example.airline.service.tour;
+
+import com.example.airline.dto.tour.TourDto;
+import com.example.airline.entity.tour.Tour;
+import com.example.airline.repository.tour.TourRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SimilarToursIndexTest {
+
+    @Mock
+    private TourRepository tourRepository;
+
+    private SimilarToursIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SimilarToursIndex(tourRepository, 2);
+        when(tourRepository.findActiveWithCategories()).thenReturn(List.of(
+                tour(1L, "Сочи", "45000", 7, "Пляжный отдых у моря, отель на первой линии"),
+                tour(2L, "Сочи", "50000", 7, "Отдых у моря, пляж и экскурсии"),
+                tour(3L, "Москва", "30000", 3, "Экскурсионный тур по музеям столицы"),
+                tour(4L, "Казань", "32000", 4, "Экскурсии по кремлю и музеям")
+        ));
+        index.rebuild();
+    }
+
+    @Test
+    void findSimilar_ShouldRankSameDestinationFirst() {
+        // When
+        Optional<JsonNode> result = index.findSimilar(1L, 5);
+
+        // Then
+        assertThat(result).isPresent();
+        assertThat(ids(result.get())).hasSize(2).startsWith(2L);
+        assertThat(result.get().get(0).get("reason").asText()).isEqualTo("То же направление");
+    }
+
+    @Test
+    void findSimilar_WhenTourNotIndexed_ShouldReturnEmpty() {
+        assertThat(index.findSimilar(99L, 5)).isEmpty();
+    }
+
+    @Test
+    void update_ShouldRecomputeAffectedNeighbourhoods() {
+        // Given
+        double scoreBefore = scoreOf(index.findSimilar(1L, 5).get(), 2L);
+
+        // When: тур 2 переехал в Казань и стал экскурсионным
+        index.update(tour(2L, "Казань", "32000", 4, "Экскурсии по кремлю и музеям"));
+
+        // Then
+        assertThat(scoreOf(index.findSimilar(1L, 5).get(), 2L)).isLessThan(scoreBefore);
+        assertThat(ids(index.findSimilar(4L, 5).get())).startsWith(2L);
+    }
+
+    @Test
+    void update_WhenNewTourAdded_ShouldInsertIntoNeighbourRows() {
+        // When
+        index.update(tour(5L, "Сочи", "46000", 7, "Пляжный отдых у моря"));
+
+        // Then
+        assertThat(ids(index.findSimilar(1L, 5).get())).startsWith(5L);
+        assertThat(ids(index.findSimilar(5L, 5).get())).startsWith(1L);
+    }
+
+    @Test
+    void onTourChanged_WhenTourDeactivated_ShouldRemoveFromNeighbours() {
+        // Given
+        TourDto deactivated = new TourDto();
+        deactivated.setId(2L);
+        deactivated.setActive(false);
+
+        // When
+        index.onTourChanged(new TourChangedEvent(deactivated));
+
+        // Then
+        assertThat(index.findSimilar(2L, 5)).isEmpty();
+        assertThat(ids(index.findSimilar(1L, 5).get())).doesNotContain(2L).hasSize(2);
+    }
+
+    private static List<Long> ids(JsonNode result) {
+        List<Long> ids = new ArrayList<>();
+        result.forEach(node -> ids.add(node.get("tour_id").asLong()));
+        return ids;
+    }
+
+    private static double scoreOf(JsonNode result, long tourId) {
+        for (JsonNode node : result) {
+            if (node.get("tour_id").asLong() == tourId) {
+                return node.get("score").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    private static Tour tour(Long id, String destination, String price, int days, String description) {
+        Tour tour = new Tour();
+        tour.setId(id);
+        tour.setName("Тур " + id);
+        tour.setDestinationCity(destination);
+        tour.setPrice(new BigDecimal(price));
+        tour.setDurationDays(days);
+        tour.setDescription(description);
+        tour.setActive(true);
+        return tour;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.airline.service.tour;
+
+import com.example.airline.dto.tour.TourDetailsDto;
+import com.example.airline.entity.tour.Tour;
+import com.example.airline.service.favorite.FavoriteTourService;
+import com.example.airline.service.ml.MlServiceClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TourDetailsServiceTest {
+
+    @Mock
+    private TourService tourService;
+
+    @Mock
+    private FavoriteTourService favoriteTourService;
+
+    @Mock
+    private MlServiceClient mlServiceClient;
+
+    @Mock
+    private SimilarToursIndex similarToursIndex;
+
+    private TourDetailsService tourDetailsService;
+
+    private Tour tour;
+
+    @BeforeEach
+    void setUp() {
+        tourDetailsService = new TourDetailsService(tourService, favoriteTourService,
+                mlServiceClient, similarToursIndex, Executors.newFixedThreadPool(2));
+
+        tour = new Tour();
+        tour.setId(1L);
+        tour.setName("Отдых в Сочи");
+        tour.setPrice(new BigDecimal("45000.00"));
+        tour.setDurationDays(7);
+        tour.setDestinationCity("Сочи");
+    }
+
+    @Test
+    void getTourDetails_WhenMlServiceIsSlow_ShouldDegradeSimilarToursOnly() {
+        // Given
+        when(tourService.findById(1L)).thenReturn(Optional.of(tour));
+        when(tourService.getTourFlights(1L)).thenReturn(List.of());
+        when(similarToursIndex.findSimilar(1L, 5)).thenReturn(Optional.empty());
+        when(mlServiceClient.getSimilarTours(1, 5)).thenReturn(
+                Mono.<JsonNode>just(JsonNodeFactory.instance.arrayNode().add(2)).delayElement(Duration.ofSeconds(10)));
+
+        // When
+        long start = System.nanoTime();
+        Optional<TourDetailsDto> result = tourDetailsService.getTourDetails(1L, null);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Then
+        assertThat(result).isPresent();
+        assertThat(result.get().getTour().getName()).isEqualTo("Отдых в Сочи");
+        assertThat(result.get().getFlights()).isEmpty();
+        assertThat(result.get().getSimilarTours().isEmpty()).isTrue();
+        assertThat(result.get().getFavorite()).isNull();
+        assertThat(result.get().getDegradedSections()).containsExactly("similarTours");
+        assertThat(elapsedMs).isLessThan(5000);
+    }
+
+    @Test
+    void getTourDetails_WhenTourIndexed_ShouldNotCallMlService() {
+        // Given
+        when(tourService.findById(1L)).thenReturn(Optional.of(tour));
+        when(tourService.getTourFlights(1L)).thenReturn(List.of());
+        when(similarToursIndex.findSimilar(1L, 5)).thenReturn(
+                Optional.of(JsonNodeFactory.instance.arrayNode().add(2)));
+
+        // When
+        Optional<TourDetailsDto> result = tourDetailsService.getTourDetails(1L, null);
+
+        // Then
+        assertThat(result).isPresent();
+        assertThat(result.get().getSimilarTours().size()).isEqualTo(1);
+        assertThat(result.get().getDegradedSections()).isEmpty();
+        verifyNoInteractions(mlServiceClient);
+    }
+
+    @Test
+    void getTourDetails_WhenClientKnown_ShouldCheckFavoriteByClientId() {
+        // Given
+        when(tourService.findById(1L)).thenReturn(Optional.of(tour));
+        when(tourService.getTourFlights(1L)).thenReturn(List.of());
+        when(similarToursIndex.findSimilar(1L, 5)).thenReturn(
+                Optional.of(JsonNodeFactory.instance.arrayNode().add(2)));
+        when(favoriteTourService.isFavorite(5L, 1L)).thenReturn(true);
+
+        // When
+        Optional<TourDetailsDto> result = tourDetailsService.getTourDetails(1L, 5L);
+
+        // Then
+        assertThat(result).isPresent();
+        assertThat(result.get().getFavorite()).isTrue();
+    }
+
+    @Test
+    void getTourDetails_WhenTourNotFound_ShouldReturnEmpty() {
+        // Given
+        when(tourService.findById(99L)).thenReturn(Optional.empty());
+        lenient().when(tourService.getTourFlights(99L)).thenThrow(new IllegalArgumentException("Tour not found: 99"));
+        when(similarToursIndex.findSimilar(99L, 5)).thenReturn(Optional.empty());
+        when(mlServiceClient.getSimilarTours(99, 5)).thenReturn(Mono.empty());
+
+        // When
+        Optional<TourDetailsDto> result = tourDetailsService.getTourDetails(99L, null);
+
+        // Then
+        assertThat(result).isEmpty();
+        verify(favoriteTourService, never()).isFavorite(any(), any());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.airline.support.ml;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузочный прогон: заданное число вызовов с фиксированным параллелизмом.
+ * Вызов, бросивший исключение или вернувший false, считается ошибкой.
+ *
+ * Можно запустить против работающего backend'а (например, поднятого с ml.service.url на StubMlServer):
+ * <pre>
+ * LoadTestDriver http://localhost:8080 &lt;jwt&gt; 32 2000 /recommendations/popular /admin/analytics/overview
+ * </pre>
+ */
+public final class LoadTestDriver {
+
+    private LoadTestDriver() {
+    }
+
+    public static Report run(String name, int concurrency, int requests, Callable<Boolean> call) {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < concurrency; w++) {
+                futures.add(workers.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        long callStart = System.nanoTime();
+                        try {
+                            if (!Boolean.TRUE.equals(call.call())) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - callStart;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Load test '" + name + "' failed", e);
+        } finally {
+            workers.shutdownNow();
+        }
+        return new Report(name, requests, errors.get(), System.nanoTime() - start, latencies);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Usage: LoadTestDriver <baseUrl> <jwt|-> <concurrency> <requests> <path>...");
+            return;
+        }
+        String baseUrl = args[0];
+        String token = args[1];
+        int concurrency = Integer.parseInt(args[2]);
+        int requests = Integer.parseInt(args[3]);
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(concurrency))
+                .build();
+
+        for (String path : Arrays.copyOfRange(args, 4, args.length)) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET();
+            if (!"-".equals(token)) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            HttpRequest request = builder.build();
+            Report report = run(path, concurrency, requests, () ->
+                    client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400);
+            System.out.println(report);
+        }
+        System.exit(0);
+    }
+
+    public record Report(String name, int requests, int errors, long elapsedNanos, long[] latencies) {
+
+        public double throughput() {
+            return requests / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        public double percentileMs(double percentile) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %6d req %5d err %9.1f req/s  p50 %7.1f ms  p95 %7.1f ms  p99 %7.1f ms  max %7.1f ms",
+                    name, requests, errors, throughput(),
+                    percentileMs(50), percentileMs(95), percentileMs(99), percentileMs(100));
+        }
+
+        public long elapsedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+    }
+}
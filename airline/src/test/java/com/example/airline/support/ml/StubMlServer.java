@@ -0,0 +1,199 @@
+package com.example.airline.support.ml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Встраиваемая замена ML-сервиса для тестов и нагрузочных прогонов.
+ *
+ * Реализует endpoint'ы, которые вызывает MlServiceClient, на JDK HttpServer.
+ * Задержка, доля ошибок (HTTP 500) и размер ответа (число элементов в списках)
+ * настраиваются на лету. Запускается на свободном порту:
+ *
+ * <pre>
+ * try (StubMlServer stub = StubMlServer.start()) {
+ *     stub.latencyMs(200).errorRate(0.1);
+ *     MlServiceClient client = new MlServiceClient(stub.url(), cache, guard);
+ * }
+ * </pre>
+ */
+public class StubMlServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonNodeFactory JSON = JsonNodeFactory.instance;
+    private static final String[] DESTINATIONS = {"Сочи", "Москва", "Казань", "Калининград", "Мурманск"};
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+
+    private volatile long latencyMs;
+    private volatile double errorRate;
+    private volatile int payloadItems = 10;
+
+    private StubMlServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static StubMlServer start() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            // Поток на запрос: задержка ответа не должна ограничивать пропускную способность заглушки
+            ExecutorService executor = Executors.newCachedThreadPool();
+            StubMlServer stub = new StubMlServer(server, executor);
+            server.createContext("/", stub::handle);
+            server.setExecutor(executor);
+            server.start();
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start stub ML server", e);
+        }
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public StubMlServer latencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    public StubMlServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public StubMlServer payloadItems(int payloadItems) {
+        this.payloadItems = payloadItems;
+        return this;
+    }
+
+    /**
+     * Число запросов, пришедших на путь (без query string)
+     */
+    public long requestCount(String path) {
+        LongAdder count = requestCounts.get(path);
+        return count != null ? count.sum() : 0;
+    }
+
+    public long totalRequests() {
+        return requestCounts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            requestCounts.computeIfAbsent(path, p -> new LongAdder()).increment();
+            exchange.getRequestBody().readAllBytes();
+
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                send(exchange, 500, JSON.objectNode().put("detail", "Stub ML server error"));
+                return;
+            }
+            Object body = respond(path);
+            if (body == null) {
+                send(exchange, 404, JSON.objectNode().put("detail", "Not Found"));
+            } else {
+                send(exchange, 200, body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object respond(String path) {
+        if (path.startsWith("/recommendations/similar/")
+                || path.equals("/recommendations/")
+                || path.equals("/recommendations/popular")) {
+            return tours();
+        }
+        return switch (path) {
+            case "/health" -> JSON.objectNode().put("status", "healthy");
+            case "/recommendations/invalidate-cache" -> JSON.objectNode().put("status", "ok");
+            case "/analytics/", "/analytics/dashboard", "/analytics/statistics" -> summary();
+            case "/analytics/forecast", "/analytics/forecast/seasonal", "/analytics/trends" -> series();
+            case "/analytics/forecast/table" -> JSON.objectNode().set("rows", series());
+            case "/analytics/all-destinations" -> {
+                ArrayNode destinations = JSON.arrayNode();
+                for (String destination : DESTINATIONS) {
+                    destinations.add(destination);
+                }
+                yield destinations;
+            }
+            case "/analytics/clusters" -> JSON.objectNode().set("clusters", tours());
+            case "/analytics/model-metrics" -> JSON.objectNode()
+                    .put("hasMore", false)
+                    .put("total", payloadItems)
+                    .set("metrics", series());
+            case "/analytics/anomalies" -> tours();
+            default -> null;
+        };
+    }
+
+    private ArrayNode tours() {
+        ArrayNode tours = JSON.arrayNode();
+        for (int i = 1; i <= payloadItems; i++) {
+            tours.addObject()
+                    .put("tour_id", i)
+                    .put("tour_name", "Тур " + i)
+                    .put("destination", DESTINATIONS[i % DESTINATIONS.length])
+                    .put("price", 30000 + i * 1000)
+                    .put("score", Math.round(1000.0 / (i + 1)) / 1000.0)
+                    .put("reason", "Stub");
+        }
+        return tours;
+    }
+
+    private ArrayNode series() {
+        ArrayNode series = JSON.arrayNode();
+        for (int i = 1; i <= payloadItems; i++) {
+            series.addObject()
+                    .put("period", String.format("2026-%02d", (i - 1) % 12 + 1))
+                    .put("destination", DESTINATIONS[i % DESTINATIONS.length])
+                    .put("value", 100 + i);
+        }
+        return series;
+    }
+
+    private ObjectNode summary() {
+        ObjectNode summary = JSON.objectNode()
+                .put("total_requests", payloadItems * 100)
+                .put("conversion_rate", 0.42);
+        summary.set("top_destinations", tours());
+        return summary;
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -6,7 +6,11 @@ from typing import List, Optional
 from app.schemas.tour import (
     RecommendationRequest, 
     RecommendationResponse,
-    TourRecommendation
+    TourRecommendation,
+    BatchRecommendationRequest,
+    BatchRecommendationResponse,
+    UserRecommendations,
+    CacheInvalidationRequest
 )
 from app.services.recommendation_service import RecommendationService
 from app.exceptions import DatabaseError, ServiceUnavailableError, DataValidationError
@@ -55,6 +59,44 @@ async def get_recommendations(request: RecommendationRequest):
         raise HTTPException(status_code=500, detail="Internal server error")
 
 
+@router.post("/batch", response_model=BatchRecommendationResponse)
+async def get_recommendations_batch(request: BatchRecommendationRequest):
+    """
+    Получить рекомендации для нескольких пользователей за один вызов.
+    
+    Используется backend'ом для предварительного расчета рекомендаций.
+    Туры и признаки загружаются один раз на весь пакет.
+    
+    - **user_ids**: ID пользователей (до 500)
+    - **limit**: Количество рекомендаций на пользователя (по умолчанию 5)
+    """
+    try:
+        results = [
+            UserRecommendations(
+                user_id=user_id,
+                recommendations=recommendation_service.get_recommendations(
+                    RecommendationRequest(user_id=user_id, limit=request.limit)
+                )
+            )
+            for user_id in request.user_ids
+        ]
+        tours = recommendation_service._load_tours()
+        return BatchRecommendationResponse(
+            results=results,
+            total_tours_analyzed=len(tours) if tours is not None else 0,
+            model_version="1.0"
+        )
+    except DataValidationError as e:
+        logger.warning(f"Validation error in get_recommendations_batch: {e}")
+        raise HTTPException(status_code=400, detail=str(e))
+    except DatabaseError as e:
+        logger.error(f"Database error in get_recommendations_batch: {e}")
+        raise HTTPException(status_code=503, detail="Database service unavailable")
+    except Exception as e:
+        logger.error(f"Unexpected error in get_recommendations_batch: {e}", exc_info=True)
+        raise HTTPException(status_code=500, detail="Internal server error")
+
+
 @router.get("/similar/{tour_id}", response_model=List[TourRecommendation])
 async def get_similar_tours(
     tour_id: int,
@@ -102,11 +144,15 @@ async def get_popular_tours(
 
 
 @router.post("/invalidate-cache")
-async def invalidate_cache():
+async def invalidate_cache(request: Optional[CacheInvalidationRequest] = None):
     """
     Сбросить кэш рекомендаций.
     
-    Вызывать после добавления/изменения туров.
+    Вызывать после добавления/изменения туров. Если переданы **tour_ids**,
+    пересчитываются только признаки этих туров (когда состав каталога не изменился).
     """
-    recommendation_service.invalidate_cache()
+    if request is not None and request.tour_ids:
+        recommendation_service.invalidate_tours(request.tour_ids)
+    else:
+        recommendation_service.invalidate_cache()
     return {"message": "Кэш успешно сброшен"}
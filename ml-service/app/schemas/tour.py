@@ -79,3 +79,45 @@ class RecommendationResponse(BaseModel):
     recommendations: List[TourRecommendation]
     total_tours_analyzed: int
     model_version: str = "1.0"
+
+
+class BatchRecommendationRequest(BaseModel):
+    """Запрос на рекомендации для нескольких пользователей за один вызов"""
+    user_ids: List[int]
+    limit: int = 5
+
+    @field_validator('user_ids')
+    @classmethod
+    def validate_user_ids(cls, v):
+        if not v or len(v) > 500:
+            raise ValueError('user_ids must contain from 1 to 500 ids')
+        if any(user_id < 1 for user_id in v):
+            raise ValueError('user_id must be positive integer')
+        return v
+
+    @field_validator('limit')
+    @classmethod
+    def validate_limit(cls, v):
+        if v < 1 or v > 100:
+            raise ValueError('limit must be between 1 and 100')
+        return v
+
+
+class UserRecommendations(BaseModel):
+    """Рекомендации одного пользователя в пакетном ответе"""
+    user_id: int
+    recommendations: List[TourRecommendation]
+
+
+class BatchRecommendationResponse(BaseModel):
+    """Ответ с рекомендациями для нескольких пользователей"""
+    model_config = ConfigDict(protected_namespaces=())
+
+    results: List[UserRecommendations]
+    total_tours_analyzed: int
+    model_version: str = "1.0"
+
+
+class CacheInvalidationRequest(BaseModel):
+    """Туры, измененные в каталоге; пустой список - полный сброс кэша"""
+    tour_ids: List[int] = []
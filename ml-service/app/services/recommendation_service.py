@@ -361,4 +361,42 @@ class RecommendationService:
                 os.remove(self._tours_hash_cache_path)
             logger.info("Cache files removed")
         except Exception as e:
-            logger.warning(f"Failed to remove cache files: {e}")
\ No newline at end of file
+            logger.warning(f"Failed to remove cache files: {e}")
+    
+    def invalidate_tours(self, tour_ids: List[int]):
+        """
+        Обновить признаки только измененных туров.
+        
+        Если изменился состав туров или набор направлений (меняются строки
+        или столбцы матрицы признаков), выполняется полный сброс кэша.
+        """
+        if self._tours_cache is None or self._features_cache is None:
+            self.invalidate_cache()
+            return
+        
+        fresh = self.data_service.get_tours(active_only=True).reset_index(drop=True)
+        cached = self._tours_cache
+        if (fresh['id'].tolist() != cached['id'].tolist()
+                or set(fresh['destination_city']) != set(cached['destination_city'])):
+            self.invalidate_cache()
+            return
+        
+        positions = np.flatnonzero(fresh['id'].isin(tour_ids).values)
+        if len(positions) == 0:
+            return
+        
+        logger.info(f"Updating features of {len(positions)} changed tours")
+        numeric_scaled = self.scaler.transform(fresh.iloc[positions][['price', 'duration_days']])
+        destination_dummies = pd.get_dummies(fresh['destination_city'], prefix='dest')
+        features = self._features_cache.copy()
+        features[positions] = np.hstack([numeric_scaled, destination_dummies.values[positions]])
+        
+        self._tours_cache = fresh
+        self._features_cache = features
+        try:
+            joblib.dump({
+                'features': features,
+                'tours_count': len(fresh)
+            }, self._features_cache_path)
+        except Exception as e:
+            logger.warning(f"Failed to save features cache: {e}")
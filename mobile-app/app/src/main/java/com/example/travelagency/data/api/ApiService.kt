@@ -13,6 +13,9 @@ interface ApiService {
     @POST("auth/register")
     suspend fun register(@Body request: RegisterRequest): Response<AuthResponse>
 
+    @POST("auth/logout")
+    suspend fun logout(@Body request: RefreshRequest): Response<Unit>
+
     // Tours
     @GET("tours")
     suspend fun getTours(
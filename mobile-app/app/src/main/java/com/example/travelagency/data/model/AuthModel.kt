@@ -16,10 +16,16 @@ data class RegisterRequest(
 
 data class AuthResponse(
     val token: String = "",
+    val refreshToken: String? = null,
+    val expiresIn: Long? = null,
     val username: String = "",
     val roles: List<String> = emptyList()
 )
 
+data class RefreshRequest(
+    val refreshToken: String
+)
+
 data class UserModel(
     val username: String = "",
     val email: String = "",
@@ -9,6 +9,7 @@ import com.example.travelagency.data.api.ApiService
 import com.example.travelagency.data.model.AuthResponse
 import com.example.travelagency.data.model.ErrorResponse
 import com.example.travelagency.data.model.LoginRequest
+import com.example.travelagency.data.model.RefreshRequest
 import com.example.travelagency.data.model.RegisterRequest
 import com.example.travelagency.data.model.Response
 import com.example.travelagency.data.model.UserModel
@@ -89,6 +90,7 @@ class AuthRepositoryImpl @Inject constructor(
             if (response.isSuccessful && response.body() != null) {
                 val authResponse = response.body()!!
                 saveToken(authResponse.token, authResponse.username)
+                saveRefreshToken(authResponse.refreshToken)
                 Log.d(TAG, "User signed in successfully: $username")
                 emit(Response.Success(authResponse))
             } else {
@@ -126,6 +128,7 @@ class AuthRepositoryImpl @Inject constructor(
             if (response.isSuccessful && response.body() != null) {
                 val authResponse = response.body()!!
                 saveToken(authResponse.token, authResponse.username)
+                saveRefreshToken(authResponse.refreshToken)
                 Log.d(TAG, "User registered successfully: $username")
                 emit(Response.Success(authResponse))
             } else {
@@ -160,11 +163,32 @@ class AuthRepositoryImpl @Inject constructor(
             .apply()
     }
 
+    private fun saveRefreshToken(refreshToken: String?) {
+        if (refreshToken != null) {
+            prefs.edit().putString("refresh_token", refreshToken).apply()
+        }
+    }
+
     override fun getToken(): String? {
         return prefs.getString("token", null)
     }
 
-    override fun logout() {
+    /**
+     * Отзывает токены на сервере и очищает локальные данные.
+     * Ошибка сети не мешает выходу: токены все равно удаляются с устройства.
+     */
+    override suspend fun logout() {
+        val refreshToken = prefs.getString("refresh_token", null)
+        if (refreshToken != null) {
+            try {
+                val response = apiService.logout(RefreshRequest(refreshToken))
+                if (!response.isSuccessful) {
+                    Log.w(TAG, "Logout request failed: ${response.code()}")
+                }
+            } catch (e: Exception) {
+                Log.w(TAG, "Logout request failed", e)
+            }
+        }
         prefs.edit().clear().apply()
     }
 
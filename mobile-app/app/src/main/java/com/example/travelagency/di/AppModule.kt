@@ -23,8 +23,15 @@ import dagger.Provides
 import dagger.hilt.InstallIn
 import dagger.hilt.android.qualifiers.ApplicationContext
 import dagger.hilt.components.SingletonComponent
+import com.example.travelagency.data.model.AuthResponse
+import com.example.travelagency.data.model.RefreshRequest
+import com.google.gson.Gson
+import okhttp3.Authenticator
 import okhttp3.Interceptor
+import okhttp3.MediaType.Companion.toMediaType
 import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.RequestBody.Companion.toRequestBody
 import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
@@ -54,7 +61,7 @@ object AppModule {
 
             val request = originalRequest.newBuilder()
             if (token != null) {
-                request.addHeader("Authorization", "Bearer $token")
+                request.header("Authorization", "Bearer $token")
                 android.util.Log.d("AuthInterceptor", "Added Authorization header")
             }
             
@@ -64,9 +71,69 @@ object AppModule {
         }
     }
 
+    /**
+     * При 401 обменивает refresh-токен на новую пару и повторяет запрос один раз.
+     * Access-токен живет недолго, поэтому без этого пользователя выбрасывало бы из приложения.
+     */
     @Provides
     @Singleton
-    fun provideOkHttpClient(authInterceptor: Interceptor): OkHttpClient {
+    fun provideTokenAuthenticator(
+        @ApplicationContext context: Context
+    ): Authenticator {
+        val refreshClient = OkHttpClient.Builder()
+            .connectTimeout(30, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .build()
+        val gson = Gson()
+        val refreshLock = Any()
+        return Authenticator { _, response ->
+            if (response.priorResponse != null || response.request.url.encodedPath.contains("/auth/")) {
+                return@Authenticator null
+            }
+            synchronized(refreshLock) {
+                val prefs = AuthRepositoryImpl.getEncryptedPrefs(context)
+                val failedToken = response.request.header("Authorization")?.removePrefix("Bearer ")
+                val currentToken = prefs.getString("token", null)
+                // Другой поток уже обновил токен - просто повторяем запрос с ним
+                if (currentToken != null && currentToken != failedToken) {
+                    return@Authenticator response.request.newBuilder()
+                        .header("Authorization", "Bearer $currentToken")
+                        .build()
+                }
+                val refreshToken = prefs.getString("refresh_token", null) ?: return@Authenticator null
+                val body = gson.toJson(RefreshRequest(refreshToken))
+                    .toRequestBody("application/json".toMediaType())
+                val refreshed = try {
+                    refreshClient.newCall(
+                        Request.Builder().url(BASE_URL + "auth/refresh").post(body).build()
+                    ).execute().use { refreshResponse ->
+                        if (refreshResponse.isSuccessful) {
+                            gson.fromJson(refreshResponse.body?.string(), AuthResponse::class.java)
+                        } else {
+                            null
+                        }
+                    }
+                } catch (e: Exception) {
+                    Log.e("TokenAuthenticator", "Token refresh failed", e)
+                    null
+                }
+                if (refreshed == null || refreshed.token.isEmpty()) {
+                    return@Authenticator null
+                }
+                prefs.edit()
+                    .putString("token", refreshed.token)
+                    .putString("refresh_token", refreshed.refreshToken)
+                    .apply()
+                response.request.newBuilder()
+                    .header("Authorization", "Bearer ${refreshed.token}")
+                    .build()
+            }
+        }
+    }
+
+    @Provides
+    @Singleton
+    fun provideOkHttpClient(authInterceptor: Interceptor, tokenAuthenticator: Authenticator): OkHttpClient {
         val loggingInterceptor = HttpLoggingInterceptor().apply {
             // Всегда включаем логирование для диагностики
             level = HttpLoggingInterceptor.Level.BODY
@@ -75,6 +142,7 @@ object AppModule {
         return OkHttpClient.Builder()
             .addInterceptor(authInterceptor)
             .addInterceptor(loggingInterceptor)
+            .authenticator(tokenAuthenticator)
             .connectTimeout(30, TimeUnit.SECONDS)
             .readTimeout(30, TimeUnit.SECONDS)
             .build()
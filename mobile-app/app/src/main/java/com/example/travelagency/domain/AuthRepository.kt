@@ -27,7 +27,7 @@ interface AuthRepository {
 
     fun getToken(): String?
 
-    fun logout()
+    suspend fun logout()
 
     fun isLoggedIn(): Boolean
 
@@ -161,9 +161,10 @@ fun ProfileScreen(
             // Кнопка выхода
                 Button(
                     onClick = {
-                        viewModel.logout()
-                        navController.navigate(Screen.SignIn.route) {
-                            popUpTo(Screen.Home.route) { inclusive = true }
+                        viewModel.logout {
+                            navController.navigate(Screen.SignIn.route) {
+                                popUpTo(Screen.Home.route) { inclusive = true }
+                            }
                         }
                     },
                     modifier = Modifier.fillMaxWidth(),
@@ -7,6 +7,7 @@ import com.example.travelagency.presentation.view.profileScreen.uiState.ProfileU
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.launch
 import javax.inject.Inject
 
 @HiltViewModel
@@ -41,7 +42,8 @@ class ProfileViewModel @Inject constructor(
         )
     }
 
-    fun logout() {
+    fun logout(onLoggedOut: () -> Unit) = viewModelScope.launch {
         authRepository.logout()
+        onLoggedOut()
     }
 }